@@ -16,6 +16,10 @@ fi
 
 FULL_SA_EMAIL="${SERVICE_ACCOUNT}@${CLOUDRUN_PROJECT}.iam.gserviceaccount.com"
 
+# Keep --max-instances at 1: the status and CRLs of issued certificates are held
+# in memory by the one instance that holds the issuance journal. Add the journal
+# volume and ISSUANCE_JOURNAL as shown in the README; without them, the service
+# does not issue or revoke certificates. See the README.
 gcloud run deploy devportal-exp \
   --image gcr.io/${REPOSITORY_PROJECT}/cloud-builds-submit/devportal-exp-backend-container:20250411 \
   --cpu 1 \
@@ -17,11 +17,28 @@ package com.google.example.devportalexp;
 
 import static io.javalin.apibuilder.ApiBuilder.*;
 
+import com.google.example.devportalexp.controller.AdminController;
+import com.google.example.devportalexp.controller.AdmissionController;
 import com.google.example.devportalexp.controller.ApigeeController;
 import com.google.example.devportalexp.controller.AuthController;
+import com.google.example.devportalexp.controller.GatewayController;
+import com.google.example.devportalexp.controller.MetricsController;
+import com.google.example.devportalexp.controller.PkiController;
+import com.google.example.devportalexp.diagnostics.FlightEvents;
+import com.google.example.devportalexp.diagnostics.FlightRecording;
+import com.google.example.devportalexp.json.Json;
+import com.google.example.devportalexp.logging.LogServiceProvider;
+import com.google.example.devportalexp.metrics.MetricsRegistry;
+import com.google.example.devportalexp.resilience.Deadline;
+import com.google.example.devportalexp.resilience.RateLimiter;
+import com.google.example.devportalexp.resilience.RejectedCallException;
 import com.google.example.devportalexp.security.JwtValidator;
 import com.google.example.devportalexp.security.SessionManager;
+import com.google.example.devportalexp.service.CertificateStatusService;
+import com.google.example.devportalexp.service.CrlPublisher;
+import com.google.example.devportalexp.service.IssuanceJournal;
 import com.google.example.devportalexp.service.StateService;
+import com.google.example.devportalexp.service.X509CertificateService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 import io.javalin.http.HttpStatus;
@@ -29,11 +46,21 @@ import io.javalin.http.UnauthorizedResponse;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class App {
-
-  //private Gson gson = new GsonBuilder().setPrettyPrinting().create();
+  private static final Logger log = LoggerFactory.getLogger(App.class);
+  private static final Logger requestLog = LoggerFactory.getLogger("devportal.requests");
+  private static final long DEFAULT_REQUEST_DEADLINE_MILLIS = 25_000;
+  private static final long DEFAULT_DEVELOPER_REQUESTS_PER_MINUTE = 120;
+  private static final long DEFAULT_DEVELOPER_REQUEST_BURST = 20;
+  private static final Duration JOURNAL_FIRST_RETRY_DELAY = Duration.ofSeconds(1);
+  private static final Duration JOURNAL_MAX_RETRY_DELAY = Duration.ofSeconds(30);
 
   /**
    * Gets the port number from the PORT environment variable. Defaults to 7070 if the variable is
@@ -44,24 +71,21 @@ public class App {
   private static int getPort() {
     String portEnv = System.getenv("PORT");
     if (portEnv == null) {
-      System.out.println("INFO: PORT environment variable not set. Using default port 7070.");
+      log.info("PORT environment variable not set. Using default port 7070.");
       return 7070; // Default port if PORT env var is not set
     }
     try {
       int port = Integer.parseInt(portEnv);
       if (port <= 0 || port > 65535) {
-        System.err.println(
-            "Warning: Invalid PORT environment variable value '"
-                + portEnv
-                + "' (must be between 1 and 65535). Using default port 7070.");
+        log.warn(
+            "Invalid PORT environment variable value '{}' (must be between 1 and 65535). Using"
+                + " default port 7070.",
+            portEnv);
         return 7070;
       }
       return port;
     } catch (NumberFormatException e) {
-      System.err.println(
-          "Warning: Invalid PORT environment variable value '"
-              + portEnv
-              + "'. Using default port 7070.");
+      log.warn("Invalid PORT environment variable value '{}'. Using default port 7070.", portEnv);
       return 7070; // Default port if parsing fails
     }
   }
@@ -125,11 +149,26 @@ public class App {
    * root-relative URLs to the /resources/web directory in the classpath.
    */
   public static void handleStaticFile(final Context ctx) throws IOException {
+    FlightEvents.StaticFile event = new FlightEvents.StaticFile();
+    event.begin();
+    try {
+      serveStaticFile(ctx);
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.path = ctx.path();
+        event.status = ctx.statusCode();
+        event.commit();
+      }
+    }
+  }
+
+  private static void serveStaticFile(final Context ctx) throws IOException {
     String requestedPath = ctx.path();
     // Default to index.html if root path is requested
     String resourcePath = requestedPath.equals("/") ? "/index.html" : requestedPath;
     String jarResourcePath = "/resources/web" + resourcePath;
-    System.out.printf("Static request: %s -> %s\n", requestedPath, jarResourcePath);
+    log.debug("Static request: {} -> {}", requestedPath, jarResourcePath);
 
     InputStream s = AppUtils.getResourceAsStream(jarResourcePath); // Use the mapped path
     if (s == null) {
@@ -137,7 +176,7 @@ public class App {
       // and serve index.html instead, letting Angular handle the routing.
       // Only do this for GET requests that likely expect HTML.
       if (ctx.method().equals(io.javalin.http.HandlerType.GET) && !requestedPath.contains(".")) {
-        System.out.println("Assuming SPA route, serving index.html for: " + requestedPath);
+        log.debug("Assuming SPA route, serving index.html for: {}", requestedPath);
         InputStream indexStream = AppUtils.getResourceAsStream("/resources/web/index.html");
         if (indexStream != null) {
           String indexContent = new String(indexStream.readAllBytes(), StandardCharsets.UTF_8);
@@ -146,12 +185,12 @@ public class App {
           ctx.result(indexContent);
           return;
         }
-        System.err.println("FATAL: index.html not found in classpath resources!");
+        log.error("index.html not found in classpath resources!");
         ctx.status(404).header("Content-Type", "text/plain").result("Not found");
         return;
       }
 
-      System.out.printf("Static resource not found: %s\n", jarResourcePath);
+      log.debug("Static resource not found: {}", jarResourcePath);
       ctx.status(404).header("Content-Type", "text/plain").result("Not found");
       return;
     }
@@ -162,29 +201,111 @@ public class App {
     ctx.result(s);
   }
 
+  private static boolean isDevLogging(Map<String, Object> appSettings) {
+    Object configured = appSettings.get("devLogging");
+    return configured != null && Boolean.parseBoolean(configured.toString().trim());
+  }
+
+  /**
+   * Opens the issuance journal, retrying with backoff while it cannot be opened, for example until
+   * the volume it is on is mounted. Without ISSUANCE_JOURNAL, it is not opened at all.
+   */
+  private static IssuanceJournal openIssuanceJournal() throws InterruptedException {
+    if (!IssuanceJournal.isConfigured()) {
+      throw new IllegalStateException(
+          "ISSUANCE_JOURNAL is not set, so certificates cannot be issued or revoked; set it to a"
+              + " file on a persistent volume");
+    }
+    Duration delay = JOURNAL_FIRST_RETRY_DELAY;
+    while (true) {
+      try {
+        return IssuanceJournal.getInstance();
+      } catch (IOException exc1) {
+        log.error("Cannot open the issuance journal, retrying in {}: {}", delay, exc1.toString());
+      }
+      Thread.sleep(delay);
+      delay = delay.multipliedBy(2);
+      if (delay.compareTo(JOURNAL_MAX_RETRY_DELAY) > 0) {
+        delay = JOURNAL_MAX_RETRY_DELAY;
+      }
+    }
+  }
+
   public static void main(String[] args) {
     try {
-      Map<String, Object> appSettings = StateService.getInstance().getSettings();
+      Startup startup = new Startup();
+      // The settings and the crypto provider do not depend on each other; load them together.
+      CompletableFuture<Map<String, Object>> settingsReady =
+          startup.start("settings", () -> StateService.getInstance().getSettings());
+      CompletableFuture<Void> cryptoProviderReady =
+          startup.start("crypto-provider", KeyUtility::ensureProviderRegistered);
       int port = getPort();
       SessionManager sessionManager = new SessionManager();
-      JwtValidator jwtValidator = new JwtValidator(appSettings);
+
+      Map<String, Object> appSettings = settingsReady.join();
+      startup.start("flight-recording", FlightRecording::getInstance);
+      CompletableFuture<JwtValidator> jwtValidatorReady =
+          startup.start("jwt-validator", () -> new JwtValidator(appSettings));
+      ApigeeController apigee =
+          startup.run("apigee-controller", () -> new ApigeeController(appSettings));
+      JwtValidator jwtValidator = jwtValidatorReady.join();
       AuthController authController = new AuthController(jwtValidator, sessionManager);
-      ApigeeController apigee = new ApigeeController(appSettings);
+      GatewayController gateway = new GatewayController(appSettings, apigee);
+      PkiController pki = new PkiController();
+      MetricsController metrics = new MetricsController(appSettings);
+      AdminController admin = new AdminController(appSettings);
+      AdmissionController admission = new AdmissionController(appSettings);
+      MetricsRegistry.getInstance()
+          .gauge("devportal_sessions_active", "Sessions that have not expired.")
+          .register(sessionManager::activeSessionCount);
+      MetricsRegistry.getInstance()
+          .counterCallback(
+              "devportal_log_records_dropped_total",
+              "Log records dropped because the log buffer was full.")
+          .register(LogServiceProvider::droppedRecords);
+      Readiness readiness = new Readiness();
+      // Each request from a developer fans out to several calls to Apigee, against a quota that
+      // all developers share; keep one busy client from using it up.
+      RateLimiter developerRateLimiter =
+          new RateLimiter(
+              "developer",
+              AppUtils.longSetting(
+                      appSettings,
+                      "developerRequestsPerMinute",
+                      DEFAULT_DEVELOPER_REQUESTS_PER_MINUTE)
+                  / 60.0,
+              (int)
+                  AppUtils.longSetting(
+                      appSettings, "developerRequestBurst", DEFAULT_DEVELOPER_REQUEST_BURST));
+      LongAdder rateLimitedRequests =
+          MetricsRegistry.getInstance()
+              .counter(
+                  "devportal_rate_limited_requests_total",
+                  "Requests from developers refused because they came too often.")
+              .labels();
+      MetricsRegistry.getInstance()
+          .gauge("devportal_rate_limited_developers", "Developers with a rate limit bucket.")
+          .register(developerRateLimiter::size);
 
       var app =
           Javalin.create(
               config -> {
                 // One can use this cheap/cheery logging, OR the devlogging (quite verbose).
-                // Not both.
-                //
-                // config.requestLogger.http(
-                //     (ctx, ms) -> {
-                //       // this gets called after the request has been handled.
-                //       System.out.printf(
-                //           "%s %s => %d (%.2f ms)\n",
-                //           ctx.method(), ctx.path(), ctx.status().getCode(), ms);
-                //     });
-                config.bundledPlugins.enableDevLogging();
+                // Not both. The devLogging setting chooses.
+                if (isDevLogging(appSettings)) {
+                  config.bundledPlugins.enableDevLogging();
+                } else {
+                  config.requestLogger.http(
+                      (ctx, ms) ->
+                          requestLog.info(
+                              "{} {} => {} ({} ms)",
+                              ctx.method(),
+                              ctx.path(),
+                              ctx.statusCode(),
+                              String.format("%.2f", ms)));
+                }
+                // ctx.json() and ctx.bodyAsClass() share the mapper used for Apigee payloads.
+                config.jsonMapper(Json.javalinMapper(config.useVirtualThreads));
                 // config.http.disableCompression();
 
                 // NOTE:
@@ -242,6 +363,7 @@ public class App {
                                         .result("use a collection path"));
 
                             get("/version", ctx -> ctx.json(StateService.getInstance().getBuildInfo()));
+                            get("/ready", readiness::getReady);
 
                             // get(
                             //     "/hello",
@@ -253,6 +375,7 @@ public class App {
                             get("/me/apps", apigee::getDeveloperApps);
                             post("/me/apps", apigee::createDeveloperApp);
                             delete("/me/apps/{appname}", apigee::deleteDeveloperApp);
+                            get("/me/bootstrap", apigee::getBootstrap);
                             get("/me", apigee::getDeveloperDetails);
                             post("/registerSelfAsDeveloper", apigee::createNewDeveloper);
                             // post("/me/attributes", apigee::updateDeveloperAttributes);
@@ -265,6 +388,36 @@ public class App {
 
                           });
 
+                      // Routes for API gateways, authorized by gateway key rather than session
+                      path(
+                          "/api/gateway",
+                          () -> {
+                            get("/certificates/owner", gateway::getCertificateOwner);
+                            get("/certificates/index", gateway::getCertificateIndexStatus);
+                            post("/certificates/index", gateway::rebuildCertificateIndex);
+                          });
+
+                      // Public, signed revocation information for issued certificates
+                      path(
+                          "/api/pki",
+                          () -> {
+                            get("/status/{serial}", pki::getCertificateStatus);
+                            get("/crl", pki::getBaseCrl);
+                            get("/crl/delta", pki::getDeltaCrl);
+                            get("/issuers", pki::getIssuers);
+                          });
+
+                      // Routes for operators, authorized by admin token rather than session
+                      path(
+                          "/api/admin",
+                          () -> {
+                            get("/recording", admin::getRecording);
+                            get("/certificates/{serial}", admin::getIssuedCertificate);
+                          });
+
+                      // Metrics, for a Prometheus scraper
+                      get("/metrics", metrics::getMetrics);
+
                       // Authentication routes
                       path(
                           "/api/auth",
@@ -278,13 +431,33 @@ public class App {
           // .error(404, ctx -> ctx.result("Not Found"))
           ; // End of Javalin.create() chain
 
+      // Time every request; this filter runs first, and the matching one after runs last.
+      app.before(metrics::startTimer);
+      // Bound the time spent on calls to Apigee for each request.
+      Duration requestDeadline =
+          Duration.ofMillis(
+              AppUtils.longSetting(
+                  appSettings, "requestDeadlineMillis", DEFAULT_REQUEST_DEADLINE_MILLIS));
+      app.before(ctx -> Deadline.begin(requestDeadline));
+
       // --- .before filter for protected API routes ---
       app.before(
           "/api/*", // Apply to all /api routes except /api/auth/**
           ctx -> {
             String path = ctx.path();
             // Allow auth and version routes to pass through
-            if (path.startsWith("/api/auth/") || path.equals("/api/version")) {
+            if (path.startsWith("/api/auth/")
+                || path.startsWith("/api/pki/")
+                || path.equals("/api/version")
+                || path.equals("/api/ready")) {
+              return;
+            }
+            if (path.startsWith("/api/gateway/")) {
+              gateway.authorize(ctx);
+              return;
+            }
+            if (path.startsWith("/api/admin/")) {
+              admin.authorize(ctx);
               return;
             }
             // Check for valid session
@@ -298,13 +471,16 @@ public class App {
                       ctx.attribute("name", session.name()); // Add first name
                       ctx.attribute("firstName", session.firstName()); // Add first name
                       ctx.attribute("lastName", session.lastName()); // Add last name
-                      System.out.printf(
-                          "Session valid for %s (%s %s), allowing request to %s\n",
-                          session.email(), session.firstName(), session.lastName(), ctx.path());
+                      log.debug(
+                          "Session valid for {} ({} {}), allowing request to {}",
+                          session.email(),
+                          session.firstName(),
+                          session.lastName(),
+                          ctx.path());
                     },
                     () -> {
                       // No valid session, halt with 401
-                      System.out.printf("No valid session found for request to %s.\n", ctx.path());
+                      log.debug("No valid session found for request to {}.", ctx.path());
                       ctx.status(HttpStatus.UNAUTHORIZED);
                       throw new UnauthorizedResponse();
                       // .json(Map.of("error", "Authentication required."))
@@ -312,30 +488,128 @@ public class App {
                     });
           });
 
+      // Limit the rate of requests from each signed-in developer.
+      app.before(
+          "/api/*",
+          ctx -> {
+            String email = ctx.attribute("userEmail");
+            if (email != null) {
+              try {
+                developerRateLimiter.acquire(email);
+              } catch (RejectedCallException exc1) {
+                rateLimitedRequests.increment();
+                throw exc1;
+              }
+            }
+          });
+
+      // Limit the requests to each route handled at once, and turn away those that wait too long.
+      app.beforeMatched(admission::admit);
+
       // --- Static file handler (must be after API routes and any ".before" filters) ---
       app.get("/*", App::handleStaticFile);
 
+      app.exception(
+          RejectedCallException.class,
+          (e, ctx) -> {
+            boolean rateLimited = e.reason() == RejectedCallException.Reason.RATE_LIMITED;
+            HttpStatus status =
+                rateLimited ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+            log.warn("{} {} => {}: {}", ctx.method(), ctx.path(), status.getCode(), e.getMessage());
+            ctx.header(
+                    "Retry-After",
+                    String.valueOf(Math.max(1, (e.retryAfter().toMillis() + 999) / 1000)))
+                .status(status)
+                .json(
+                    Map.of(
+                        "error",
+                        rateLimited
+                            ? "Too many requests; try again shortly."
+                            : "apigee".equals(e.dependency())
+                                ? "Apigee is unavailable; try again shortly."
+                                : "The service is busy; try again shortly."));
+          });
       app.exception(
           Exception.class,
           (e, ctx) -> {
-            e.printStackTrace();
-            System.out.printf("Exception %s %s => %s\n", ctx.method(), ctx.path(), e.getMessage());
+            log.error("Exception {} {} => {}", ctx.method(), ctx.path(), e.getMessage(), e);
             ctx.json("Bad request: ${e.message}.").status(500);
           });
 
+      app.after(
+          ctx -> {
+            if (ctx.header(SelfExercise.HEADER) == null) {
+              startup.markRequestServed();
+            }
+          });
+      app.after(admission::release);
+      app.after(ctx -> Deadline.end());
+      app.after(metrics::recordRequest);
+
       // Start the server after configuration and routes are defined
-      app.start(port);
+      startup.run("http-start", () -> app.start(port));
+      startup.markPortBound();
+
+      log.info("Server started. Listening on http://localhost:{}", port);
+      log.info("Frontend should be accessible at http://localhost:{}", port);
+      log.info("API base path: /api");
+
+      // With the port bound, load the issuer keys and the certificate state, so that the first
+      // request that needs them does not pay for it. A request that arrives sooner waits on the
+      // same initialization.
+      CompletableFuture<X509CertificateService> issuerReady =
+          cryptoProviderReady.thenCompose(
+              ignored -> startup.start("issuer-keys", X509CertificateService::getInstance));
+      // The journal may first have to wait for another instance to let go of it, or for its
+      // volume. Until it is open, the routes that need certificate state answer 503 rather than
+      // wait.
+      CompletableFuture<IssuanceJournal> journalReady =
+          issuerReady.thenCompose(
+              ignored -> startup.start("issuance-journal", App::openIssuanceJournal));
+      CompletableFuture<?> statusReady =
+          journalReady.thenCompose(
+              ignored ->
+                  startup.start("certificate-status", CertificateStatusService::getInstance));
+      // The CRLs are built from the revocations that the status service loads.
+      CompletableFuture<?> crlReady =
+          statusReady.thenCompose(ignored -> startup.start("crl", CrlPublisher::getInstance));
+      CompletableFuture<Void> ready = startup.finish(statusReady, crlReady);
+
+      if (SelfExercise.isCdsTrainingRun()) {
+        // Exercise the service, then exit so that the JVM writes the CDS archive.
+        ready.join();
+        SelfExercise.run(port);
+        app.stop();
+        System.exit(0);
+      }
 
-      System.out.println("Server started. Listening on http://localhost:" + port);
-      System.out.println("Frontend should be accessible at http://localhost:" + port);
-      System.out.println("API base path: /api");
+      // Fill the caches and exercise the hot paths before reporting ready.
+      readiness
+          .addCheck("access-token", apigee::warmUpAccessToken)
+          .addCheck("api-products", apigee::warmUpProducts)
+          .addCheck("jwks", jwtValidator::warmUp)
+          .addCheck("issuance", () -> X509CertificateService.getInstance().warmUp())
+          .addCheck("http", () -> SelfExercise.run(port))
+          // Retried until it succeeds: until then, certificates cannot be registered.
+          .addCheck("certificate-index", apigee::warmUpCertificateIndex)
+          // Until this instance holds the journal, and has loaded the certificate status and the
+          // CRLs from it, the certificate routes answer 503.
+          .addCheck(
+              "issuance-journal",
+              () -> {
+                if (!ready.isDone()) {
+                  throw new IllegalStateException("certificate state not loaded yet");
+                }
+                ready.join();
+              })
+          .warmUp(startup);
+      apigee.scheduleCertificateIndexRefresh();
 
       // Optional: Add a default handler for the root path if spaRoot isn't sufficient
       // app.get("/", ctx -> ctx.result("Welcome to the Javalin Backend! Static files should be
       // served."));
     } catch (java.lang.Exception exc1) {
-      System.out.println("Exception:" + exc1.toString());
-      exc1.printStackTrace();
+      log.error("Exception during startup", exc1);
       throw new RuntimeException("uncaught exception", exc1);
     }
   }
@@ -27,11 +27,15 @@ import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.Comparator;
+import java.util.Map;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class AppUtils {
+  private static final Logger log = LoggerFactory.getLogger(AppUtils.class);
 
   /**
    * Finds the name of a resource within the classpath that matches the given glob pattern.
@@ -159,10 +163,25 @@ public class AppUtils {
     if (!resourceName.startsWith("/resources")) {
       resourceName = "/resources" + resourceName;
     }
-    // Using System.out here for now to match existing pattern in App.java/StateService.java
-    // Consider replacing with SLF4J logger if standardizing logging.
-    System.out.printf("AppUtils.getResourceAsStream %s\n", resourceName);
+    log.debug("getResourceAsStream {}", resourceName);
     // Use a class known to be in the same classloader context, e.g., AppUtils itself.
     return AppUtils.class.getResourceAsStream(resourceName);
   }
+
+  /**
+   * A numeric setting, like slowApigeeCallMillis, or the default if the setting is absent or not a
+   * number.
+   */
+  public static long longSetting(Map<String, Object> appSettings, String name, long defaultValue) {
+    Object configured = appSettings.get(name);
+    if (configured == null) {
+      return defaultValue;
+    }
+    try {
+      return (long) Double.parseDouble(configured.toString());
+    } catch (NumberFormatException exc1) {
+      log.warn("Ignoring invalid {} setting: {}", name, configured);
+      return defaultValue;
+    }
+  }
 }
@@ -52,11 +52,19 @@ public class KeyUtility {
   public static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
   static {
-    java.security.Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+    if (java.security.Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+      java.security.Security.addProvider(new BouncyCastleProvider());
+    }
   }
 
   private KeyUtility() throws Exception {}
 
+  /**
+   * Makes sure the BouncyCastle provider is registered. Registration happens once, when this class
+   * is initialized; the provider is costly to construct, so no other class registers its own.
+   */
+  public static void ensureProviderRegistered() {}
+
   public static class KeyParseException extends Exception {
     private static final long serialVersionUID = 0L;
 
@@ -169,10 +177,48 @@ public class KeyUtility {
     }
   }
 
+  public static X509Certificate decodeCertificate(byte[] der) throws KeyParseException {
+    try {
+      CertificateFactory certFactory =
+          CertificateFactory.getInstance("X.509", BouncyCastleProvider.PROVIDER_NAME);
+      return (X509Certificate) certFactory.generateCertificate(new ByteArrayInputStream(der));
+    } catch (Exception ex) {
+      throw new KeyParseException("cannot instantiate certificate from DER", ex);
+    }
+  }
+
+  /**
+   * Extracts the DER bytes from the first PEM-encoded certificate in the string, without parsing
+   * the certificate itself.
+   *
+   * @param certificateString the PEM-encoded certificate
+   * @return the DER bytes, or null if the string does not hold a well-formed PEM block.
+   */
+  public static byte[] certificateDerFromPem(String certificateString) {
+    if (certificateString == null) {
+      return null;
+    }
+    int begin = certificateString.indexOf(BEGIN_CERT);
+    int end = certificateString.indexOf(END_CERT);
+    if (begin < 0 || end < begin) {
+      return null;
+    }
+    String body = certificateString.substring(begin + BEGIN_CERT.length(), end);
+    try {
+      return Base64.getMimeDecoder().decode(body);
+    } catch (IllegalArgumentException exc1) {
+      return null;
+    }
+  }
+
   public static String toPem(final X509Certificate certificate)
       throws CertificateEncodingException {
+    return toPem(certificate.getEncoded());
+  }
+
+  public static String toPem(final byte[] der) {
     final Base64.Encoder encoder = Base64.getMimeEncoder(64, LINE_SEPARATOR.getBytes());
-    final String encodedCertText = new String(encoder.encode(certificate.getEncoded()));
+    final String encodedCertText = new String(encoder.encode(der));
     return BEGIN_CERT + LINE_SEPARATOR + encodedCertText + LINE_SEPARATOR + END_CERT;
   }
 
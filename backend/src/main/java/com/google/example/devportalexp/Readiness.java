@@ -0,0 +1,126 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp;
+
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The warm-up phase, and the readiness gate in front of it.
+ *
+ * <p>A new instance is bound to its port well before it is fit to serve users quickly: the access
+ * token, the product catalog, and the Firebase JWKS are not cached yet, and the JSON and crypto
+ * paths have not been compiled. The warm-up runs a set of named checks that fill those caches and
+ * exercise those paths. GET /api/ready answers 503 until every check has succeeded once, and 200
+ * from then on. Point the startup probe of the platform at it, so that an instance gets traffic
+ * only once it is warm.
+ *
+ * <p>The checks run in parallel. A check that fails is retried with backoff until it succeeds;
+ * an instance that cannot reach its dependencies stays unready, rather than serving errors.
+ */
+public class Readiness {
+  private static final Logger log = LoggerFactory.getLogger(Readiness.class);
+  private static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(1);
+  private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(30);
+
+  /** One step of the warm-up; it fails by throwing. */
+  @FunctionalInterface
+  public interface WarmUpStep {
+    void run() throws Exception;
+  }
+
+  private record Check(String name, WarmUpStep body) {}
+
+  private final List<Check> checks = new ArrayList<>();
+  private final Map<String, String> results = new ConcurrentHashMap<>();
+  private volatile boolean ready;
+
+  /** Adds a check to the warm-up. Checks must be added before the warm-up starts. */
+  public Readiness addCheck(String name, WarmUpStep body) {
+    checks.add(new Check(name, body));
+    results.put(name, "pending");
+    return this;
+  }
+
+  /**
+   * Starts every check, each as a startup phase.
+   *
+   * @return a future that completes once all the checks have succeeded.
+   */
+  public CompletableFuture<Void> warmUp(Startup startup) {
+    CompletableFuture<?>[] running =
+        checks.stream()
+            .map(
+                check ->
+                    startup.start(
+                        "warm-up:" + check.name(),
+                        () -> {
+                          runUntilSuccess(check);
+                          return null;
+                        }))
+            .toArray(CompletableFuture<?>[]::new);
+    return CompletableFuture.allOf(running)
+        .thenRun(
+            () -> {
+              ready = true;
+              log.info("Ready to serve, {} ms after startup began", startup.elapsedMillis());
+            });
+  }
+
+  private void runUntilSuccess(Check check) throws InterruptedException {
+    Duration delay = FIRST_RETRY_DELAY;
+    while (true) {
+      try {
+        check.body().run();
+        results.put(check.name(), "ok");
+        return;
+      } catch (InterruptedException exc1) {
+        throw exc1;
+      } catch (Exception exc1) {
+        results.put(check.name(), "retrying: " + exc1);
+        log.warn(
+            "Warm-up check {} failed, retrying in {}: {}", check.name(), delay, exc1.toString());
+      }
+      Thread.sleep(delay);
+      delay = delay.multipliedBy(2);
+      if (delay.compareTo(MAX_RETRY_DELAY) > 0) {
+        delay = MAX_RETRY_DELAY;
+      }
+    }
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /** GET /api/ready */
+  public void getReady(final Context ctx) {
+    Map<String, String> checkResults = new LinkedHashMap<>();
+    checks.forEach(check -> checkResults.put(check.name(), results.get(check.name())));
+    ctx.header("Cache-Control", "no-store");
+    ctx.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+        .json(Map.of("ready", ready, "checks", checkResults));
+  }
+}
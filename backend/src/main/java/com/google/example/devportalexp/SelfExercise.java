@@ -0,0 +1,108 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the service a set of requests to itself, touching the code paths of a typical first minute
+ * in service: static content, JSON responses, session checks, login, and the signed PKI answers.
+ * None of the requests reach Apigee or Google.
+ *
+ * <p>This serves two purposes. It is the training run for the class data sharing (CDS) archive
+ * built by the appcds Maven profile: when the system property devportal.cds.training is true, App
+ * starts as usual, calls this, and exits, and the JVM, launched with -XX:ArchiveClassesAtExit,
+ * writes every class loaded along the way into the archive. And it is part of the warm-up that
+ * runs before the service reports ready, so that real users do not pay for loading and compiling
+ * those paths.
+ *
+ * <p>A request that cannot connect, or that gets a 5xx answer, fails the run, once all the requests
+ * have been sent. While the warm-up runs, that includes the PKI routes, which answer 503 until the
+ * certificate state is loaded; the warm-up retries until they answer.
+ */
+class SelfExercise {
+  private static final Logger log = LoggerFactory.getLogger(SelfExercise.class);
+  static final String CDS_TRAINING_PROPERTY = "devportal.cds.training";
+  // Marks these requests, so they do not count as traffic.
+  static final String HEADER = "X-Devportal-Self-Exercise";
+
+  private record SelfRequest(String method, String path, String body) {}
+
+  private static final List<SelfRequest> REQUESTS =
+      List.of(
+          new SelfRequest("GET", "/", null),
+          new SelfRequest("GET", "/apps", null),
+          new SelfRequest("GET", "/api/version", null),
+          new SelfRequest("GET", "/api/me", null),
+          new SelfRequest("GET", "/api/me/apps", null),
+          new SelfRequest("POST", "/api/auth/login", "{\"idToken\":\"not.a.token\"}"),
+          new SelfRequest("POST", "/api/auth/logout", null),
+          new SelfRequest("GET", "/api/gateway/certificates/index", null),
+          new SelfRequest("GET", "/api/pki/issuers", null),
+          new SelfRequest("GET", "/api/pki/crl", null),
+          new SelfRequest("GET", "/api/pki/crl/delta", null),
+          new SelfRequest("GET", "/api/pki/status/01", null));
+
+  static boolean isCdsTrainingRun() {
+    return Boolean.getBoolean(CDS_TRAINING_PROPERTY);
+  }
+
+  /**
+   * Sends the requests to the service listening on the given port.
+   *
+   * @throws IOException if any request could not connect, or got a 5xx answer.
+   */
+  static void run(int port) throws IOException, InterruptedException {
+    List<String> failures = new ArrayList<>();
+    HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    for (SelfRequest request : REQUESTS) {
+      HttpRequest.BodyPublisher body =
+          (request.body() == null)
+              ? HttpRequest.BodyPublishers.noBody()
+              : HttpRequest.BodyPublishers.ofString(request.body());
+      HttpRequest httpRequest =
+          HttpRequest.newBuilder(URI.create("http://localhost:" + port + request.path()))
+              .method(request.method(), body)
+              .header("Content-Type", "application/json")
+              .header(HEADER, "true")
+              .timeout(Duration.ofSeconds(10))
+              .build();
+      String description = request.method() + " " + request.path();
+      try {
+        HttpResponse<byte[]> response =
+            client.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+        log.debug("Self-exercise {} => {}", description, response.statusCode());
+        if (response.statusCode() >= 500) {
+          failures.add(description + " => " + response.statusCode());
+        }
+      } catch (IOException exc1) {
+        failures.add(description + " failed: " + exc1);
+      }
+    }
+    if (!failures.isEmpty()) {
+      throw new IOException("self-exercise failed: " + String.join(", ", failures));
+    }
+  }
+}
@@ -0,0 +1,145 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the phases of service startup, and records how long each one takes.
+ *
+ * <p>Phases that do not depend on each other are started together, each on its own virtual thread,
+ * and joined where their results are needed. App.main uses this to get the HTTP port bound as soon
+ * as the routes can be built, and to load the issuer keys and certificate state in the
+ * background afterwards.
+ *
+ * <p>It also reports three milestones, measured from the start of the JVM: entry to main, the port
+ * bound, and the first request served. These are the numbers to compare when tuning cold start,
+ * for example with and without the class data sharing archive built by the appcds profile.
+ */
+public class Startup {
+  private static final Logger log = LoggerFactory.getLogger(Startup.class);
+
+  private final long startNanos = System.nanoTime();
+  private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+  private final long mainEnteredMillis = System.currentTimeMillis() - jvmStartMillis;
+  private final AtomicBoolean firstRequestServed = new AtomicBoolean();
+  private volatile long portBoundMillis = -1;
+  private final Map<String, Long> phaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  /** Starts a phase in the background. */
+  public <T> CompletableFuture<T> start(String name, Callable<T> body) {
+    return CompletableFuture.supplyAsync(() -> run(name, body), executor);
+  }
+
+  /** Starts a phase in the background. */
+  public CompletableFuture<Void> start(String name, Runnable body) {
+    return CompletableFuture.runAsync(() -> run(name, Executors.callable(body)), executor);
+  }
+
+  /** Runs a phase on the calling thread. */
+  public <T> T run(String name, Callable<T> body) {
+    long begin = System.nanoTime();
+    try {
+      return body.call();
+    } catch (RuntimeException exc1) {
+      throw exc1;
+    } catch (Exception exc1) {
+      throw new CompletionException(exc1);
+    } finally {
+      long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+      phaseMillis.put(name, elapsed);
+      log.info("Startup phase {} took {} ms", name, elapsed);
+    }
+  }
+
+  /**
+   * Logs a summary once all the given phases have completed.
+   *
+   * @return a future that completes along with the last of the phases.
+   */
+  public CompletableFuture<Void> finish(CompletableFuture<?>... phases) {
+    return CompletableFuture.allOf(phases)
+        .whenComplete(
+            (ignored, exc1) -> {
+              if (exc1 != null) {
+                log.error("Startup failed after {} ms", elapsedMillis(), exc1);
+              } else {
+                log.info("Startup complete in {} ms: {}", elapsedMillis(), getPhaseMillis());
+              }
+            });
+  }
+
+  /** Records that the HTTP port is bound. */
+  public void markPortBound() {
+    portBoundMillis = System.currentTimeMillis() - jvmStartMillis;
+    log.info(
+        "Port bound {} ms after JVM start ({} ms in main); class data sharing: {}",
+        portBoundMillis,
+        portBoundMillis - mainEnteredMillis,
+        describeClassDataSharing());
+  }
+
+  /** Records that a request has been served; only the first call has any effect. */
+  public void markRequestServed() {
+    if (!firstRequestServed.getAndSet(true)) {
+      long firstRequestMillis = System.currentTimeMillis() - jvmStartMillis;
+      log.info(
+          "Startup timing: main at {} ms, port bound at {} ms, first request served at {} ms",
+          mainEnteredMillis,
+          portBoundMillis,
+          firstRequestMillis);
+    }
+  }
+
+  /** Tells whether the JVM uses class data sharing, and with which archive. */
+  public static String describeClassDataSharing() {
+    // HotSpot reports "sharing" here when classes are mapped from a CDS archive.
+    if (!System.getProperty("java.vm.info", "").contains("sharing")) {
+      return "off";
+    }
+    String archive =
+        ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+            .getVMOption("SharedArchiveFile")
+            .getValue();
+    return archive.isEmpty() ? "on, JDK archive only" : "on, with " + archive;
+  }
+
+  /** Milliseconds since this Startup was created. */
+  public long elapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
+  /** The duration of each phase that has completed, in milliseconds, in order of completion. */
+  public Map<String, Long> getPhaseMillis() {
+    synchronized (phaseMillis) {
+      return new LinkedHashMap<>(phaseMillis);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.controller;
+
+import com.google.example.devportalexp.KeyUtility;
+import com.google.example.devportalexp.diagnostics.FlightRecording;
+import com.google.example.devportalexp.service.IssuanceJournal;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.NotFoundResponse;
+import io.javalin.http.UnauthorizedResponse;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handlers for the routes under /api/admin, for operators rather than developers. These routes do
+ * not use the session cookie; instead the caller must present the admin token as a bearer token.
+ * When no admin token is configured, the routes are disabled.
+ */
+public class AdminController {
+  private static final Logger log = LoggerFactory.getLogger(AdminController.class);
+  private static final DateTimeFormatter FILE_TIMESTAMP =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+  private final byte[] adminToken;
+
+  public AdminController(Map<String, Object> appSettings) {
+    String token = (String) appSettings.get("adminToken");
+    this.adminToken =
+        (token == null || token.isBlank()) ? null : token.getBytes(StandardCharsets.UTF_8);
+    if (this.adminToken == null) {
+      log.info("No admin token configured; the /api/admin routes are disabled.");
+    }
+  }
+
+  /** Before-filter check for the /api/admin routes. */
+  public void authorize(final Context ctx) {
+    if (adminToken == null) {
+      throw new NotFoundResponse();
+    }
+    String authorization = ctx.header("Authorization");
+    String presented =
+        (authorization != null && authorization.startsWith("Bearer "))
+            ? authorization.substring("Bearer ".length())
+            : "";
+    if (!MessageDigest.isEqual(adminToken, presented.getBytes(StandardCharsets.UTF_8))) {
+      log.warn("Rejected admin request to {} without a valid admin token.", ctx.path());
+      throw new UnauthorizedResponse();
+    }
+  }
+
+  /** GET /api/admin/recording: the flight recording so far, as a .jfr file. */
+  public void getRecording(final Context ctx) throws IOException {
+    FlightRecording flightRecording = FlightRecording.getInstance();
+    if (!flightRecording.isRecording()) {
+      ctx.status(HttpStatus.CONFLICT).json(Map.of("error", "Flight recording is off."));
+      return;
+    }
+    Path file = flightRecording.dump();
+    log.info("Dumped the flight recording, {} bytes, for {}", Files.size(file), ctx.ip());
+    ctx.header("Cache-Control", "no-store");
+    ctx.header(
+        "Content-Disposition",
+        String.format(
+            "attachment; filename=\"devportal-%s.jfr\"", FILE_TIMESTAMP.format(Instant.now())));
+    ctx.contentType("application/octet-stream");
+    // The file is removed once the response has been written and the stream closed.
+    ctx.result(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+  }
+
+  /**
+   * GET /api/admin/certificates/{serial}: what the issuance journal holds for a certificate the
+   * portal issued, and its revocation if any. The serial is given in hex, optionally with colons
+   * between octets.
+   */
+  public void getIssuedCertificate(final Context ctx) throws IOException {
+    BigInteger serial;
+    try {
+      serial = new BigInteger(ctx.pathParam("serial").replace(":", ""), 16);
+    } catch (NumberFormatException e) {
+      ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("error", "serial must be hexadecimal."));
+      return;
+    }
+    if (!IssuanceJournal.isOpen()) {
+      ctx.header("Retry-After", "5");
+      ctx.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .json(Map.of("error", "The issuance journal is not open yet."));
+      return;
+    }
+    IssuanceJournal journal = IssuanceJournal.getInstance();
+    Optional<IssuanceJournal.JournalEntry> issued = journal.findBySerial(serial);
+    if (issued.isEmpty()) {
+      ctx.status(HttpStatus.NOT_FOUND).json(Map.of("error", "not in the issuance journal"));
+      return;
+    }
+    IssuanceJournal.JournalEntry entry = issued.get();
+    Map<String, Object> description = new LinkedHashMap<>();
+    description.put("serial", entry.serial().toString(16));
+    description.put("fingerprint", entry.fingerprint());
+    description.put("subject", entry.subject());
+    description.put("issuedAt", entry.recordedAt().toString());
+    description.put("notAfter", entry.notAfter().toString());
+    journal
+        .findRevocation(serial)
+        .ifPresent(revocation -> description.put("revokedAt", revocation.recordedAt().toString()));
+    description.put("certificate", KeyUtility.toPem(entry.der()));
+    ctx.header("Cache-Control", "no-store");
+    ctx.status(HttpStatus.OK).json(description);
+  }
+}
@@ -0,0 +1,144 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.controller;
+
+import com.google.example.devportalexp.AppUtils;
+import com.google.example.devportalexp.metrics.MetricsRegistry;
+import com.google.example.devportalexp.resilience.ConcurrencyLimiter;
+import com.google.example.devportalexp.resilience.Deadline;
+import com.google.example.devportalexp.resilience.RejectedCallException;
+import io.javalin.http.Context;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admission control for the /api routes. Each route has its own {@link ConcurrencyLimiter}, so
+ * that a burst of requests to one route, like certificate issuance, waits or is turned away at
+ * that route, rather than taking every worker thread and pushing the other routes into timeouts.
+ *
+ * <p>Issuing a certificate and verifying an ID token at login spend most of their time signing
+ * and checking RSA signatures, so those routes start at about one request per processor. The others
+ * mostly wait on Apigee, and start higher. Either way, the limits then adapt to latency. A
+ * request waits for a slot for no longer than admissionQueueTimeoutMillis, and is then answered
+ * with 503. Set admissionControl to "off" to disable it.
+ */
+public class AdmissionController {
+  private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+  private static final String PERMIT_ATTRIBUTE = "admission.permit";
+  private static final String LIMITER_ATTRIBUTE = "admission.limiter";
+  private static final Set<String> CPU_BOUND_ROUTES =
+      Set.of("POST /api/me/certificates", "POST /api/auth/login");
+  // Health checks must answer even when everything else is turned away.
+  private static final Set<String> UNLIMITED_ROUTES = Set.of("/api/version", "/api/ready");
+  private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+  // They call Apigee too, so allow some overlap even with a single processor.
+  private static final int CPU_BOUND_INITIAL_LIMIT = Math.max(2, PROCESSORS);
+  private static final int IO_BOUND_INITIAL_LIMIT = 32;
+  private static final int IO_BOUND_MIN_LIMIT = 4;
+  private static final int IO_BOUND_MAX_LIMIT = 256;
+  private static final int MAX_QUEUED = 64;
+  private static final long DEFAULT_QUEUE_TIMEOUT_MILLIS = 500;
+
+  private final MetricsRegistry registry = MetricsRegistry.getInstance();
+  private final MetricsRegistry.Family<LongAdder> rejected =
+      registry.counter(
+          "devportal_admission_rejected_total",
+          "Requests turned away with 503 because their route was at its limit, by reason.",
+          "method",
+          "route",
+          "reason");
+  private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+  private final boolean enabled;
+  private final Duration queueTimeout;
+
+  public AdmissionController(Map<String, Object> appSettings) {
+    Object configured = appSettings.get("admissionControl");
+    this.enabled = configured == null || !"off".equalsIgnoreCase(configured.toString().trim());
+    this.queueTimeout =
+        Duration.ofMillis(
+            AppUtils.longSetting(
+                appSettings, "admissionQueueTimeoutMillis", DEFAULT_QUEUE_TIMEOUT_MILLIS));
+    if (!enabled) {
+      log.info("Admission control is off.");
+    }
+  }
+
+  /** Before-filter for requests that matched a route: admits the request, or rejects it. */
+  public void admit(final Context ctx) throws RejectedCallException, InterruptedException {
+    if (!enabled) {
+      return;
+    }
+    String route = ctx.endpointHandlerPath();
+    if (!route.startsWith("/api/") || UNLIMITED_ROUTES.contains(route)) {
+      return;
+    }
+    String method = ctx.method().name();
+    ConcurrencyLimiter limiter =
+        limiters.computeIfAbsent(method + " " + route, key -> newLimiter(method, route));
+    ConcurrencyLimiter.Permit permit;
+    try {
+      permit = limiter.acquire(Deadline.cap(queueTimeout));
+    } catch (RejectedCallException exc1) {
+      rejected.labels(method, route, exc1.reason().label).increment();
+      throw exc1;
+    }
+    ctx.attribute(LIMITER_ATTRIBUTE, limiter);
+    ctx.attribute(PERMIT_ATTRIBUTE, permit);
+  }
+
+  /** After-filter for every request: gives back the permit of an admitted request. */
+  public void release(final Context ctx) {
+    ConcurrencyLimiter.Permit permit = ctx.attribute(PERMIT_ATTRIBUTE);
+    if (permit == null) {
+      return;
+    }
+    ConcurrencyLimiter limiter = ctx.attribute(LIMITER_ATTRIBUTE);
+    ctx.attribute(PERMIT_ATTRIBUTE, null);
+    limiter.release(permit);
+  }
+
+  private ConcurrencyLimiter newLimiter(String method, String route) {
+    String name = method + " " + route;
+    ConcurrencyLimiter limiter =
+        CPU_BOUND_ROUTES.contains(name)
+            ? new ConcurrencyLimiter(name, CPU_BOUND_INITIAL_LIMIT, 1, 4 * PROCESSORS, MAX_QUEUED)
+            : new ConcurrencyLimiter(
+                name, IO_BOUND_INITIAL_LIMIT, IO_BOUND_MIN_LIMIT, IO_BOUND_MAX_LIMIT, MAX_QUEUED);
+    registry
+        .gauge(
+            "devportal_admission_limit",
+            "Requests to a route admitted at once, as adapted to its latency.",
+            "method",
+            "route")
+        .register(limiter::limit, method, route);
+    registry
+        .gauge("devportal_admission_in_flight", "Requests to a route admitted.", "method", "route")
+        .register(limiter::inFlight, method, route);
+    registry
+        .gauge(
+            "devportal_admission_queued",
+            "Requests to a route waiting to be admitted.",
+            "method",
+            "route")
+        .register(limiter::queued, method, route);
+    return limiter;
+  }
+}
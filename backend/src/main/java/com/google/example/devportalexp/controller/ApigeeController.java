@@ -17,31 +17,51 @@ package com.google.example.devportalexp.controller;
 
 import com.google.example.devportalexp.AppUtils;
 import com.google.example.devportalexp.KeyUtility;
+import com.google.example.devportalexp.diagnostics.FlightEvents;
+import com.google.example.devportalexp.json.Json;
+import com.google.example.devportalexp.metrics.Histogram;
+import com.google.example.devportalexp.metrics.MetricsRegistry;
+import com.google.example.devportalexp.metrics.OutboundTrace;
 import com.google.example.devportalexp.model.ApiProduct;
+import com.google.example.devportalexp.model.Bootstrap;
+import com.google.example.devportalexp.model.DeveloperDetails;
+import com.google.example.devportalexp.model.apigee.ApigeeJson;
+import com.google.example.devportalexp.model.apigee.Attribute;
+import com.google.example.devportalexp.model.apigee.Developer;
+import com.google.example.devportalexp.model.apigee.DeveloperApp;
+import com.google.example.devportalexp.resilience.Bulkhead;
+import com.google.example.devportalexp.resilience.CircuitBreaker;
+import com.google.example.devportalexp.resilience.Deadline;
+import com.google.example.devportalexp.resilience.HedgeBudget;
+import com.google.example.devportalexp.resilience.RejectedCallException;
+import com.google.example.devportalexp.resilience.TokenBucket;
 import com.google.example.devportalexp.service.CacheService;
+import com.google.example.devportalexp.service.CertificateIndex;
+import com.google.example.devportalexp.service.CertificateValidationCache;
+import com.google.example.devportalexp.service.IssuanceJournal;
+import com.google.example.devportalexp.service.SingleFlight;
 import com.google.example.devportalexp.service.StateService;
 import com.google.example.devportalexp.service.X509CertificateService;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 import io.javalin.http.Context;
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Type;
+import java.io.PushbackInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
+import java.security.GeneralSecurityException;
 import java.security.PublicKey;
-import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -50,16 +70,33 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,19 +104,252 @@ public class ApigeeController {
   public static final int MAX_CERTIFICATES = 6;
   public static final int MAX_DEVELOPER_APPS = 10;
   private static final int MAX_API_PRODUCTS_PER_APP = 5;
+  private static final int DEVELOPER_LIST_PAGE_SIZE = 1000;
+  private static final int CERTIFICATE_INDEX_SCAN_PARALLELISM = 8;
+  // The rebuild of the certificate index takes at most this share of the calls to Apigee allowed
+  // per second, and leaves the rest for requests.
+  private static final double CERTIFICATE_INDEX_SCAN_SHARE = 0.25;
+  // Certificate attributes may also change in Apigee other than through the portal.
+  private static final long DEFAULT_CERTIFICATE_INDEX_REFRESH_MINUTES = 60;
   private static final Logger log = LoggerFactory.getLogger(ApigeeController.class);
-  private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-  private static final Type mapType = new TypeToken<HashMap<String, Object>>() {}.getType();
+  private static final Map<String, String> PATH_PLACEHOLDERS =
+      Map.of(
+          "developers", "{developer}",
+          "apps", "{app}",
+          "apiproducts", "{apiproduct}",
+          "keys", "{key}",
+          "attributes", "{attribute}");
+  private static final MetricsRegistry.Family<Histogram> apigeeRequestDuration =
+      MetricsRegistry.getInstance()
+          .histogram(
+              "devportal_apigee_request_duration_seconds",
+              "Latency of calls to the Apigee API, by path template.",
+              "method",
+              "path");
+  private static final MetricsRegistry.Family<LongAdder> apigeeRequests =
+      MetricsRegistry.getInstance()
+          .counter(
+              "devportal_apigee_requests_total",
+              "Calls to the Apigee API, by path template and status.",
+              "method",
+              "path",
+              "status");
+  private static final MetricsRegistry.Family<LongAdder> apigeeResponseBytes =
+      MetricsRegistry.getInstance()
+          .counter(
+              "devportal_apigee_response_bytes_total",
+              "Bytes of Apigee responses, as received on the wire and once decompressed.",
+              "method",
+              "path",
+              "form");
+  // Apigee compresses its responses only when asked. Developer attribute lists, which can hold
+  // several PEM certificates, shrink to a fraction of their size.
+  private static final String ACCEPT_ENCODING = "gzip, deflate";
+  // One client for every outbound call, so that calls, and the hedges of slow calls, reuse pooled
+  // connections rather than each paying for a new TCP and TLS handshake.
+  private static final HttpClient httpClient = HttpClient.newHttpClient();
+  private static final int DECOMPRESSION_BUFFER_SIZE = 8192;
+  private static final MetricsRegistry.Family<LongAdder> apigeeCoalescedReads =
+      MetricsRegistry.getInstance()
+          .counter(
+              "devportal_apigee_coalesced_reads_total",
+              "Reads from Apigee that shared the response of an identical read in flight.",
+              "path");
+  private static final MetricsRegistry.Family<LongAdder> apigeeRejectedCalls =
+      MetricsRegistry.getInstance()
+          .counter(
+              "devportal_apigee_rejected_calls_total",
+              "Calls to Apigee refused without being attempted, by reason.",
+              "reason");
+  private static final MetricsRegistry.Family<LongAdder> apigeeRetries =
+      MetricsRegistry.getInstance()
+          .counter(
+              "devportal_apigee_retries_total",
+              "GETs to Apigee attempted again after a failure, by path template.",
+              "path");
+  private static final MetricsRegistry.Family<LongAdder> apigeeCircuitTransitions =
+      MetricsRegistry.getInstance()
+          .counter(
+              "devportal_apigee_circuit_transitions_total",
+              "Changes of state of the circuit breaker in front of Apigee, by new state.",
+              "state");
+  private static final MetricsRegistry.Family<LongAdder> apigeeHedges =
+      MetricsRegistry.getInstance()
+          .counter(
+              "devportal_apigee_hedged_reads_total",
+              "Slow GETs to Apigee that were sent a second time, by path template and by which"
+                  + " call answered first; skipped when the budget or the guards did not allow it.",
+              "path",
+              "result");
+  private static final long DEFAULT_SLOW_CALL_MILLIS = 1000;
+  private static final long DEFAULT_CALL_TIMEOUT_MILLIS = 10_000;
+  private static final int DEFAULT_MAX_CONCURRENT_CALLS = 32;
+  private static final int DEFAULT_MAX_QUEUED_CALLS = 64;
+  // Retries, for GETs only: up to 3 attempts in all, after a backoff with full jitter.
+  private static final int MAX_ATTEMPTS = 3;
+  private static final Duration RETRY_BASE_DELAY = Duration.ofMillis(100);
+  private static final Duration RETRY_MAX_DELAY = Duration.ofSeconds(1);
+  // An attempt is not worth starting with less time than this before the deadline, or than the
+  // call timeout, if that is shorter.
+  private static final Duration MIN_ATTEMPT_TIME = Duration.ofMillis(250);
+  // Hedging is off unless a percentile is set. A path needs this many calls before its percentile
+  // is taken as its usual latency.
+  private static final long DEFAULT_HEDGE_BUDGET_PERCENT = 5;
+  private static final long HEDGE_MIN_SAMPLES = 50;
+  // The management API allows an org 6000 calls a minute.
+  private static final long DEFAULT_CALLS_PER_SECOND = 100;
+  private static final long DEFAULT_CALL_BURST = 200;
+  private static final String DEFAULT_APIGEE_BASE_URL = "https://apigee.googleapis.com";
   private Map<String, Object> appSettings;
+  private final long slowCallThresholdNanos;
+  private final URI apigeeBaseUri;
+  private final SingleFlight<ReadKey, ApigeeResponse<?>> inFlightReads = new SingleFlight<>();
+  private final Duration callTimeout;
+  private final Duration minAttemptTime;
+  private final Bulkhead bulkhead;
+  private final CircuitBreaker circuitBreaker;
+  private final double hedgeQuantile;
+  private final HedgeBudget hedgeBudget;
+  private final TokenBucket outboundBudget;
+  private final TokenBucket indexScanBudget;
+  private final long certificateIndexRefreshMinutes;
 
   public ApigeeController(Map<String, Object> appSettings)
       throws IOException, InterruptedException, URISyntaxException {
     this.appSettings = appSettings;
+    this.slowCallThresholdNanos =
+        TimeUnit.MILLISECONDS.toNanos(
+            AppUtils.longSetting(appSettings, "slowApigeeCallMillis", DEFAULT_SLOW_CALL_MILLIS));
+    // The apigeeBaseUrl setting points elsewhere, for example at a stand-in during load tests.
+    this.apigeeBaseUri =
+        new URI((String) appSettings.getOrDefault("apigeeBaseUrl", DEFAULT_APIGEE_BASE_URL));
 
     CacheService.getInstance()
         .registerLoader(
             (key) -> key.endsWith("token"), (_ignoredKey) -> this.loadGcpAccessToken(_ignoredKey))
         .registerLoader((key) -> key.endsWith("products"), (_ignoredKey) -> this.loadProducts());
+    MetricsRegistry.getInstance()
+        .gauge("devportal_apigee_reads_in_flight", "Distinct reads from Apigee in flight.")
+        .register(inFlightReads::size);
+
+    // Keep a slow or failing Apigee from tying up every worker thread.
+    this.callTimeout =
+        Duration.ofMillis(
+            AppUtils.longSetting(
+                appSettings, "apigeeCallTimeoutMillis", DEFAULT_CALL_TIMEOUT_MILLIS));
+    this.minAttemptTime =
+        (callTimeout.compareTo(MIN_ATTEMPT_TIME) < 0) ? callTimeout : MIN_ATTEMPT_TIME;
+    this.bulkhead =
+        new Bulkhead(
+            "apigee",
+            (int)
+                AppUtils.longSetting(
+                    appSettings, "apigeeMaxConcurrentCalls", DEFAULT_MAX_CONCURRENT_CALLS),
+            (int)
+                AppUtils.longSetting(
+                    appSettings, "apigeeMaxQueuedCalls", DEFAULT_MAX_QUEUED_CALLS));
+    this.circuitBreaker =
+        new CircuitBreaker(
+            "apigee",
+            20,
+            10,
+            0.5,
+            Duration.ofSeconds(15),
+            2,
+            (from, to) -> apigeeCircuitTransitions.labels(to.name().toLowerCase()).increment());
+    // A GET that is slower than the given percentile of the calls to its path so far is sent
+    // again, for no more than the given percentage of GETs.
+    long hedgePercentile = AppUtils.longSetting(appSettings, "apigeeHedgePercentile", 0);
+    this.hedgeQuantile =
+        (hedgePercentile > 0 && hedgePercentile < 100) ? hedgePercentile / 100.0 : 0;
+    this.hedgeBudget =
+        new HedgeBudget(
+            AppUtils.longSetting(
+                appSettings, "apigeeHedgeBudgetPercent", DEFAULT_HEDGE_BUDGET_PERCENT));
+    // Every attempt, retries and hedges included, counts against the org's quota for the
+    // management API; stay under it, so that no one client can use it all up.
+    long callsPerSecond =
+        AppUtils.longSetting(appSettings, "apigeeCallsPerSecond", DEFAULT_CALLS_PER_SECOND);
+    this.outboundBudget =
+        new TokenBucket(
+            callsPerSecond,
+            (int) AppUtils.longSetting(appSettings, "apigeeCallBurst", DEFAULT_CALL_BURST));
+    this.indexScanBudget =
+        new TokenBucket(
+            callsPerSecond * CERTIFICATE_INDEX_SCAN_SHARE, CERTIFICATE_INDEX_SCAN_PARALLELISM);
+    this.certificateIndexRefreshMinutes =
+        AppUtils.longSetting(
+            appSettings,
+            "certificateIndexRefreshMinutes",
+            DEFAULT_CERTIFICATE_INDEX_REFRESH_MINUTES);
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    registry
+        .gauge(
+            "devportal_apigee_circuit_state",
+            "State of the circuit breaker in front of Apigee: 0 closed, 1 half-open, 2 open.")
+        .register(() -> circuitBreaker.state().gaugeValue);
+    registry
+        .gauge("devportal_apigee_bulkhead_in_use", "Calls to Apigee holding a bulkhead slot.")
+        .register(bulkhead::inUse);
+    registry
+        .gauge("devportal_apigee_bulkhead_queued", "Calls to Apigee waiting for a bulkhead slot.")
+        .register(bulkhead::queued);
+  }
+
+  /**
+   * Puts the access token for Apigee into the cache, ahead of the first request that needs it.
+   *
+   * @throws IllegalStateException if no token can be obtained.
+   */
+  public void warmUpAccessToken() {
+    if (CacheService.getInstance().get("apigeetoken") == null) {
+      throw new IllegalStateException("no access token");
+    }
+  }
+
+  /**
+   * Puts the API product catalog into the cache, ahead of the first request that needs it.
+   *
+   * @throws IllegalStateException if the catalog cannot be loaded.
+   */
+  public void warmUpProducts() {
+    if (CacheService.getInstance().get("apiproducts") == null) {
+      throw new IllegalStateException("no API products");
+    }
+  }
+
+  /**
+   * Builds the certificate index, unless it has been built already. Certificates cannot be
+   * registered until it is.
+   *
+   * @throws IllegalStateException if the index could not be built.
+   */
+  public void warmUpCertificateIndex() {
+    if (!CertificateIndex.getInstance().isReady() && !rebuildCertificateIndex()) {
+      throw new IllegalStateException("certificate index not built");
+    }
+  }
+
+  /**
+   * Rebuilds the certificate index every CERTIFICATE_INDEX_REFRESH_MINUTES, to pick up changes
+   * made in Apigee other than through the portal. A value of 0 turns the refresh off.
+   */
+  public void scheduleCertificateIndexRefresh() {
+    if (certificateIndexRefreshMinutes <= 0) {
+      return;
+    }
+    ScheduledExecutorService scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "certificate-index-refresh");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.scheduleWithFixedDelay(
+        this::rebuildCertificateIndex,
+        certificateIndexRefreshMinutes,
+        certificateIndexRefreshMinutes,
+        TimeUnit.MINUTES);
   }
 
   /**
@@ -90,6 +360,11 @@ public class ApigeeController {
    * @return The access token as a String, or null if an error occurs.
    */
   private Object loadGcpAccessToken(String ignoredKey) {
+    String configuredToken = (String) appSettings.get("apigeeAccessToken");
+    if (configuredToken != null) {
+      log.info("Using the access token from the apigeeAccessToken setting.");
+      return configuredToken;
+    }
     if (StateService.isRunningInCloud()) {
       log.info("Running in Cloud Run, fetching token from metadata server...");
       String metadataUrl = "/computeMetadata/v1/instance/service-accounts/default/token";
@@ -103,7 +378,7 @@ public class ApigeeController {
                 Map.of("Metadata-Flavor", "Google"),
                 null);
         if (responseBody != null) {
-          Map<String, Object> tokenResponse = gson.fromJson(responseBody, mapType);
+          Map<String, Object> tokenResponse = Json.readMap(responseBody);
           if (tokenResponse != null && tokenResponse.containsKey("access_token")) {
             String accessToken = (String) tokenResponse.get("access_token");
             log.info("Successfully fetched token from metadata server.");
@@ -144,8 +419,51 @@ public class ApigeeController {
       Map<String, String> requestHeaders,
       Map<String, Object> payload)
       throws URISyntaxException, IOException, InterruptedException {
-    final String userInfo = null;
-    final int port = -1;
+    URI base = new URI(scheme, null, host, -1, null, null, null);
+    String body =
+        send(
+                base,
+                method,
+                pathAndQuery,
+                requestHeaders,
+                payload,
+                null,
+                HttpResponse.BodyHandlers.ofString())
+            .body();
+    log.debug("\n\n=>\n{}", body);
+    return body;
+  }
+
+  /**
+   * Sends a request to the server at the given base URI. The path of the base URI, if any, is
+   * prepended to the path of the request. If a timeout is given, the call fails with an
+   * HttpTimeoutException unless the response headers arrive within it.
+   */
+  private static <T> HttpResponse<T> send(
+      URI base,
+      String method,
+      String pathAndQuery,
+      Map<String, String> requestHeaders,
+      Object payload,
+      Duration timeout,
+      HttpResponse.BodyHandler<T> bodyHandler)
+      throws URISyntaxException, IOException, InterruptedException {
+    HttpRequest request =
+        buildRequest(base, method, pathAndQuery, requestHeaders, payload, timeout);
+    HttpResponse<T> response = httpClient.send(request, bodyHandler);
+    HttpHeaders responseHeaders = response.headers();
+    log.debug("Response headers:\n{}", responseHeaders.toString());
+    return response;
+  }
+
+  private static HttpRequest buildRequest(
+      URI base,
+      String method,
+      String pathAndQuery,
+      Map<String, String> requestHeaders,
+      Object payload,
+      Duration timeout)
+      throws URISyntaxException, IOException {
     String uriPath = pathAndQuery;
     String query = "";
 
@@ -157,10 +475,22 @@ public class ApigeeController {
 
     // NB: use the 7-param URI ctor to get proper % encoding of the path
     // segments containing spaces.
-    URI uri = new URI(scheme, userInfo, host, port, uriPath, query, null);
+    String basePath = (base.getPath() == null) ? "" : base.getPath().replaceAll("/+$", "");
+    URI uri =
+        new URI(
+            base.getScheme(),
+            base.getUserInfo(),
+            base.getHost(),
+            base.getPort(),
+            basePath + uriPath,
+            query,
+            null);
     log.debug("*** fetch uri {}", uri.toString());
 
     HttpRequest.Builder builder = HttpRequest.newBuilder().uri(uri);
+    if (timeout != null) {
+      builder.timeout(timeout);
+    }
     if (requestHeaders != null) {
       for (Map.Entry<String, String> entry : requestHeaders.entrySet()) {
         builder.header(entry.getKey(), entry.getValue());
@@ -173,48 +503,515 @@ public class ApigeeController {
       builder =
           builder
               .header("Content-Type", "application/json")
-              .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload)));
+              .POST(HttpRequest.BodyPublishers.ofByteArray(Json.toBytes(payload)));
     } else if ("DELETE".equals(method)) {
       builder = builder.DELETE();
     } else {
       throw new RuntimeException("HTTP method not supported: " + method);
     }
+    return builder.build();
+  }
 
-    HttpRequest request = builder.build();
-    HttpClient client = HttpClient.newHttpClient();
-    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-    HttpHeaders responseHeaders = response.headers();
-    log.debug("Response headers:\n{}", responseHeaders.toString());
-    String body = response.body();
-    log.debug("\n\n=>\n{}", body);
-    return body;
+  /**
+   * The status of a response from Apigee, and its body: decoded with the given decoder if the call
+   * succeeded, or, if it failed, the message of the error.
+   */
+  private record ApigeeResponse<T>(int status, T body, String error) {
+    boolean isSuccess() {
+      return status >= 200 && status < 300;
+    }
+  }
+
+  /** Counts the bytes read through it, for responses that have no Content-Length. */
+  private static final class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int n = super.read(buffer, offset, length);
+      if (n > 0) {
+        count += n;
+      }
+      return n;
+    }
+
+    long count() {
+      return count;
+    }
+  }
+
+  /** The body of a response, decompressed as it is read, according to its Content-Encoding. */
+  private static InputStream decompressing(InputStream wire, String contentEncoding)
+      throws IOException {
+    String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+    if (encoding.equals("identity")) {
+      return wire;
+    }
+    // An empty body, as of a 204, has no compression header to read.
+    PushbackInputStream in = new PushbackInputStream(wire, 1);
+    int first = in.read();
+    if (first == -1) {
+      return InputStream.nullInputStream();
+    }
+    in.unread(first);
+    return switch (encoding) {
+      case "gzip", "x-gzip" -> new GZIPInputStream(in, DECOMPRESSION_BUFFER_SIZE);
+      case "deflate" -> new InflaterInputStream(in);
+      default -> throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
+    };
+  }
+
+  /**
+   * Identifies a read from Apigee that can be shared: the same path, with the same token, decoded
+   * the same way. Decoders are compared by identity, so callers pass the shared instances from
+   * {@link ApigeeJson}, like ApigeeJson.DEVELOPER, and reads from different handlers share.
+   */
+  private record ReadKey(String pathFragment, String token, ApigeeJson.Decoder<?> decoder) {
+
+    /** Whether a write to the given path may change what this read returns. */
+    boolean affectedBy(String writePath) {
+      String scope = developerScope(writePath);
+      return pathFragment.equals(scope)
+          || pathFragment.startsWith(scope + "/")
+          || pathFragment.startsWith(scope + "?");
+    }
+  }
+
+  /**
+   * The part of a path that names a developer, like /developers/{developer}; or, for a path that
+   * names none, like that of POST /developers, its first segment.
+   */
+  static String developerScope(String pathFragment) {
+    int ix = pathFragment.indexOf('?');
+    String path = (ix == -1) ? pathFragment : pathFragment.substring(0, ix);
+    String[] segments = path.split("/", 4);
+    if (segments.length >= 3 && segments[1].equals("developers") && !segments[2].isEmpty()) {
+      return "/developers/" + segments[2];
+    }
+    return (segments.length >= 2) ? "/" + segments[1] : path;
+  }
+
+  /**
+   * Calls Apigee, and decodes the response as it streams in.
+   *
+   * <p>Identical GETs in flight at the same time, as when a page fires several requests at once
+   * or a user has several tabs open, share one call to Apigee and its decoded response. Writes go
+   * straight through, and detach the reads in flight for the same developer, before and after,
+   * so that no one reads what was there before the write.
+   */
+  private <T> ApigeeResponse<T> apigeeFetch(
+      String pathFragment, String method, Object payload, ApigeeJson.Decoder<T> decoder)
+      throws URISyntaxException, IOException, InterruptedException {
+    String apigeeOrgToken = (String) CacheService.getInstance().get("apigeetoken");
+    if (!"GET".equals(method)) {
+      inFlightReads.forget(key -> key.affectedBy(pathFragment));
+      try {
+        return sendToApigee(pathFragment, method, payload, decoder, apigeeOrgToken);
+      } finally {
+        inFlightReads.forget(key -> key.affectedBy(pathFragment));
+      }
+    }
+    ReadKey key = new ReadKey(pathFragment, apigeeOrgToken, decoder);
+    SingleFlight.Flight<ApigeeResponse<?>> flight = inFlightReads.join(key);
+    if (!flight.leader()) {
+      apigeeCoalescedReads.labels(apigeePathTemplate(pathFragment)).increment();
+      Duration wait = Deadline.cap(callTimeout.multipliedBy(MAX_ATTEMPTS));
+      try {
+        @SuppressWarnings("unchecked") // The decoder is part of the key.
+        ApigeeResponse<T> shared =
+            (ApigeeResponse<T>) flight.result().get(wait.toNanos(), TimeUnit.NANOSECONDS);
+        return shared;
+      } catch (TimeoutException exc1) {
+        throw reject(RejectedCallException.Reason.DEADLINE_EXCEEDED);
+      } catch (ExecutionException exc1) {
+        if (exc1.getCause() instanceof RejectedCallException rejected) {
+          throw reject(rejected.reason(), rejected.retryAfter());
+        }
+        throw new IOException("Shared Apigee call failed: " + exc1.getCause(), exc1.getCause());
+      }
+    }
+    try {
+      ApigeeResponse<T> response =
+          sendToApigee(pathFragment, method, payload, decoder, apigeeOrgToken);
+      inFlightReads.complete(key, flight, response);
+      return response;
+    } catch (Throwable exc1) {
+      inFlightReads.fail(key, flight, exc1);
+      throw exc1;
+    }
+  }
+
+  private RejectedCallException reject(RejectedCallException.Reason reason) {
+    return reject(reason, Duration.ofSeconds(1));
+  }
+
+  private RejectedCallException reject(RejectedCallException.Reason reason, Duration retryAfter) {
+    apigeeRejectedCalls.labels(reason.label).increment();
+    return new RejectedCallException("apigee", reason, retryAfter);
   }
 
-  private Map<String, Object> apigeeFetch(
-      String pathFragment, String method, Map<String, Object> payload)
+  /** Whether Apigee failed a call, as opposed to answering it, even with a client error. */
+  private static boolean isServerFailure(int status) {
+    return status >= 500 || status == 429;
+  }
+
+  /**
+   * Sends a call to Apigee, within the outbound budget, through the circuit breaker and the
+   * bulkhead, within the deadline of the inbound request. A GET that fails, with an I/O error, a
+   * timeout, or a server error, is retried after a jittered backoff, as long as the deadline and
+   * the budget leave room for it. Other methods are not retried, since they may have taken effect.
+   */
+  private <T> ApigeeResponse<T> sendToApigee(
+      String pathFragment,
+      String method,
+      Object payload,
+      ApigeeJson.Decoder<T> decoder,
+      String apigeeOrgToken)
+      throws URISyntaxException, IOException, InterruptedException {
+    boolean retryable = "GET".equals(method);
+    long budgetWait = outboundBudget.tryAcquire();
+    if (budgetWait > 0) {
+      if (OutboundTrace.current() != null) {
+        throw reject(RejectedCallException.Reason.RATE_LIMITED, Duration.ofNanos(budgetWait));
+      }
+      // Background work, like the rebuild of the certificate index, has no caller waiting on an
+      // answer; rather than fail, it waits its turn.
+      outboundBudget.acquire();
+    }
+    for (int attempt = 1; ; attempt++) {
+      CircuitBreaker.Permit permit;
+      try {
+        permit = circuitBreaker.acquire();
+      } catch (RejectedCallException exc1) {
+        apigeeRejectedCalls.labels(exc1.reason().label).increment();
+        throw exc1;
+      }
+      Duration queueWait = Deadline.cap(callTimeout);
+      if (queueWait.compareTo(minAttemptTime) < 0) {
+        circuitBreaker.release(permit);
+        throw reject(RejectedCallException.Reason.DEADLINE_EXCEEDED);
+      }
+      try {
+        bulkhead.acquire(queueWait);
+      } catch (RejectedCallException exc1) {
+        circuitBreaker.release(permit);
+        apigeeRejectedCalls.labels(exc1.reason().label).increment();
+        throw exc1;
+      }
+      ApigeeResponse<T> response = null;
+      IOException failure = null;
+      try {
+        response =
+            attemptApigeeCall(
+                pathFragment, method, payload, decoder, apigeeOrgToken, Deadline.cap(callTimeout));
+      } catch (IOException exc1) {
+        failure = exc1;
+      } catch (URISyntaxException | InterruptedException | RuntimeException exc1) {
+        circuitBreaker.release(permit);
+        throw exc1;
+      } finally {
+        bulkhead.release();
+      }
+      boolean failed = (failure != null) || isServerFailure(response.status());
+      if (failed) {
+        circuitBreaker.onFailure(permit);
+      } else {
+        circuitBreaker.onSuccess(permit);
+      }
+      Duration backoff = retryDelay(attempt);
+      if (!failed
+          || !retryable
+          || attempt >= MAX_ATTEMPTS
+          || !Deadline.allows(backoff.plus(minAttemptTime))
+          || outboundBudget.tryAcquire() > 0) {
+        if (failure != null) {
+          throw failure;
+        }
+        return response;
+      }
+      apigeeRetries.labels(apigeePathTemplate(pathFragment)).increment();
+      log.debug(
+          "Retrying {} {} in {} ms after {}",
+          method,
+          apigeePathTemplate(pathFragment),
+          backoff.toMillis(),
+          (failure != null) ? failure.toString() : response.status());
+      Thread.sleep(backoff);
+    }
+  }
+
+  /** A random delay up to an exponentially growing bound, so that retries do not bunch up. */
+  private static Duration retryDelay(int attempt) {
+    long bound =
+        Math.min(RETRY_MAX_DELAY.toNanos(), RETRY_BASE_DELAY.toNanos() << (attempt - 1));
+    return Duration.ofNanos(ThreadLocalRandom.current().nextLong(bound + 1));
+  }
+
+  /**
+   * Makes one call to Apigee, and decodes the response as it streams in, decompressing it if
+   * needed, without holding the body as a string or as a tree of maps.
+   */
+  private <T> ApigeeResponse<T> attemptApigeeCall(
+      String pathFragment,
+      String method,
+      Object payload,
+      ApigeeJson.Decoder<T> decoder,
+      String apigeeOrgToken,
+      Duration timeout)
       throws URISyntaxException, IOException, InterruptedException {
     String apigeeProject = (String) appSettings.get("project");
     String uriPath = String.format("/v1/organizations/%s%s", apigeeProject, pathFragment);
-    String apigeeOrgToken = (String) CacheService.getInstance().get("apigeetoken");
-    String stringResult =
-        fetch(
-            method,
-            "apigee.googleapis.com",
-            uriPath,
-            Map.of("Authorization", "Bearer " + apigeeOrgToken),
-            payload);
-    Map<String, Object> json = gson.fromJson(stringResult, mapType);
-    return json;
-  }
-
-  private Map<String, Object> apigeeGet(String path)
+    String pathTemplate = apigeePathTemplate(pathFragment);
+    Map<String, String> headers =
+        Map.of("Authorization", "Bearer " + apigeeOrgToken, "Accept-Encoding", ACCEPT_ENCODING);
+    Duration hedgeDelay = hedgeDelay(method, pathTemplate, timeout);
+    FlightEvents.ApigeeCall event = new FlightEvents.ApigeeCall();
+    event.begin();
+    long begin = System.nanoTime();
+    String status = "error";
+    long bytes = 0;
+    long decodedBytes = 0;
+    try {
+      HttpResponse<InputStream> response =
+          (hedgeDelay == null)
+              ? send(
+                  apigeeBaseUri,
+                  method,
+                  uriPath,
+                  headers,
+                  payload,
+                  timeout,
+                  HttpResponse.BodyHandlers.ofInputStream())
+              : sendHedged(
+                  buildRequest(apigeeBaseUri, method, uriPath, headers, payload, timeout),
+                  hedgeDelay,
+                  pathTemplate);
+      status = String.valueOf(response.statusCode());
+      OptionalLong contentLength = response.headers().firstValueAsLong("Content-Length");
+      String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+      bytes = contentLength.orElse(0);
+      try (CountingInputStream wire = new CountingInputStream(response.body());
+          CountingInputStream body =
+              new CountingInputStream(decompressing(wire, contentEncoding))) {
+        ApigeeResponse<T> decoded;
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+          decoded =
+              new ApigeeResponse<>(response.statusCode(), ApigeeJson.decode(body, decoder), null);
+        } else {
+          decoded =
+              new ApigeeResponse<>(
+                  response.statusCode(), null, ApigeeJson.decode(body, ApigeeJson::errorMessage));
+        }
+        bytes = contentLength.orElse(wire.count());
+        decodedBytes = body.count();
+        return decoded;
+      }
+    } catch (HttpTimeoutException exc1) {
+      status = "timeout";
+      throw exc1;
+    } finally {
+      event.end();
+      OutboundTrace.Call call =
+          new OutboundTrace.Call(
+              method,
+              pathTemplate,
+              status,
+              bytes,
+              decodedBytes,
+              begin,
+              System.nanoTime() - begin);
+      if (event.shouldCommit()) {
+        event.method = call.method();
+        event.pathTemplate = call.pathTemplate();
+        event.status = call.status();
+        event.bytes = call.bytes();
+        event.decodedBytes = call.decodedBytes();
+        event.inbound = OutboundTrace.describeCurrent();
+        event.commit();
+      }
+      recordApigeeCall(call);
+    }
+  }
+
+  /**
+   * How long to wait for the first attempt at a call before hedging it, or null if it is not to be
+   * hedged: hedging is off, the call is not a GET, there are too few calls to the path to know its
+   * usual latency, or the delay would leave no time for the hedge.
+   */
+  private Duration hedgeDelay(String method, String pathTemplate, Duration timeout) {
+    if (hedgeQuantile == 0 || !"GET".equals(method)) {
+      return null;
+    }
+    hedgeBudget.onCall();
+    Histogram.Snapshot latency = apigeeRequestDuration.labels(method, pathTemplate).snapshot();
+    if (latency.count() < HEDGE_MIN_SAMPLES) {
+      return null;
+    }
+    Duration delay = Duration.ofNanos(latency.quantileMicros(hedgeQuantile) * 1000);
+    return (delay.compareTo(timeout) < 0) ? delay : null;
+  }
+
+  /**
+   * Sends a GET, and sends it again if no response has arrived after the given delay, provided the
+   * hedge budget and the outbound budget have room, the circuit is closed, and the bulkhead has a
+   * free slot. The first response to arrive is used; the other call is cancelled, or, if it answers
+   * anyway, its body is discarded. The hedge must finish within the timeout of the first attempt.
+   */
+  private HttpResponse<InputStream> sendHedged(
+      HttpRequest request, Duration hedgeDelay, String pathTemplate)
+      throws IOException, InterruptedException {
+    CompletableFuture<HttpResponse<InputStream>> primary =
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+    try {
+      return primary.get(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException exc1) {
+      // Slower than usual: hedge it, if allowed.
+    } catch (ExecutionException exc1) {
+      throw sendFailure(exc1);
+    } catch (InterruptedException exc1) {
+      primary.cancel(true);
+      throw exc1;
+    }
+    if (circuitBreaker.state() != CircuitBreaker.State.CLOSED || !bulkhead.tryAcquire()) {
+      apigeeHedges.labels(pathTemplate, "skipped").increment();
+      return awaitResponse(primary);
+    }
+    CompletableFuture<HttpResponse<InputStream>> hedge = null;
+    try {
+      if (!hedgeBudget.tryAcquire() || outboundBudget.tryAcquire() > 0) {
+        apigeeHedges.labels(pathTemplate, "skipped").increment();
+        return awaitResponse(primary);
+      }
+      Duration hedgeTimeout = request.timeout().orElseThrow().minus(hedgeDelay);
+      hedge =
+          httpClient.sendAsync(
+              HttpRequest.newBuilder(request, (name, value) -> true).timeout(hedgeTimeout).build(),
+              HttpResponse.BodyHandlers.ofInputStream());
+      HttpResponse<InputStream> response = awaitResponse(firstResponse(primary, hedge));
+      boolean hedgeWon =
+          hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.join() == response;
+      apigeeHedges.labels(pathTemplate, hedgeWon ? "won" : "lost").increment();
+      return response;
+    } finally {
+      primary.cancel(true);
+      if (hedge != null) {
+        hedge.cancel(true);
+      }
+      bulkhead.release();
+    }
+  }
+
+  /**
+   * The first of two calls to answer; or, if both fail, the failure of the last. The body of a
+   * response that arrives second is closed, since no one will read it.
+   */
+  private static CompletableFuture<HttpResponse<InputStream>> firstResponse(
+      CompletableFuture<HttpResponse<InputStream>> first,
+      CompletableFuture<HttpResponse<InputStream>> second) {
+    CompletableFuture<HttpResponse<InputStream>> winner = new CompletableFuture<>();
+    AtomicInteger failures = new AtomicInteger();
+    for (CompletableFuture<HttpResponse<InputStream>> call : List.of(first, second)) {
+      call.whenComplete(
+          (response, failure) -> {
+            if (failure == null) {
+              if (!winner.complete(response)) {
+                try {
+                  response.body().close();
+                } catch (IOException exc1) {
+                  log.debug("Discarding a hedged response: {}", exc1.toString());
+                }
+              }
+            } else if (failures.incrementAndGet() == 2) {
+              winner.completeExceptionally(failure);
+            }
+          });
+    }
+    return winner;
+  }
+
+  private static HttpResponse<InputStream> awaitResponse(
+      CompletableFuture<HttpResponse<InputStream>> call) throws IOException, InterruptedException {
+    try {
+      return call.get();
+    } catch (ExecutionException exc1) {
+      throw sendFailure(exc1);
+    } catch (InterruptedException exc1) {
+      call.cancel(true);
+      throw exc1;
+    }
+  }
+
+  /** The failure of an asynchronous call, as send would have thrown it. */
+  private static IOException sendFailure(ExecutionException exc1) {
+    Throwable cause = exc1.getCause();
+    return (cause instanceof IOException io) ? io : new IOException(cause);
+  }
+
+  private void recordApigeeCall(OutboundTrace.Call call) {
+    apigeeRequestDuration
+        .labels(call.method(), call.pathTemplate())
+        .recordNanos(call.durationNanos());
+    apigeeRequests.labels(call.method(), call.pathTemplate(), call.status()).increment();
+    apigeeResponseBytes.labels(call.method(), call.pathTemplate(), "wire").add(call.bytes());
+    apigeeResponseBytes
+        .labels(call.method(), call.pathTemplate(), "decoded")
+        .add(call.decodedBytes());
+    OutboundTrace.record(call);
+    if (call.durationNanos() >= slowCallThresholdNanos) {
+      log.warn(
+          "Slow Apigee call: {} {} -> {}, {} bytes ({} decoded), {} ms, during {}",
+          call.method(),
+          call.pathTemplate(),
+          call.status(),
+          call.bytes(),
+          call.decodedBytes(),
+          TimeUnit.NANOSECONDS.toMillis(call.durationNanos()),
+          OutboundTrace.describeCurrent());
+    }
+  }
+
+  /**
+   * The path of an Apigee request with the query removed, and the names of developers, apps,
+   * products, keys, and attributes replaced by placeholders, for use as a metric label. For
+   * example, /developers/{developer}/apps/{app}.
+   */
+  static String apigeePathTemplate(String pathFragment) {
+    int ix = pathFragment.indexOf('?');
+    String path = (ix == -1) ? pathFragment : pathFragment.substring(0, ix);
+    String[] segments = path.split("/", -1);
+    for (int i = 1; i < segments.length; i++) {
+      String placeholder = PATH_PLACEHOLDERS.get(segments[i - 1]);
+      if (placeholder != null && !segments[i].isEmpty()) {
+        segments[i] = placeholder;
+        i++;
+      }
+    }
+    return String.join("/", segments);
+  }
+
+  /** Reads from Apigee; null if the call failed. */
+  private <T> T apigeeGet(String path, ApigeeJson.Decoder<T> decoder)
       throws URISyntaxException, IOException, InterruptedException {
-    return apigeeFetch(path, "GET", null);
+    return apigeeFetch(path, "GET", null, decoder).body();
   }
 
-  private Map<String, Object> apigeePost(String partialPath, Map<String, Object> payload)
+  private <T> ApigeeResponse<T> apigeePost(
+      String partialPath, Object payload, ApigeeJson.Decoder<T> decoder)
       throws URISyntaxException, IOException, InterruptedException {
-    return apigeeFetch(partialPath, "POST", payload);
+    return apigeeFetch(partialPath, "POST", payload, decoder);
   }
 
   private static String yamlSpecPath(String productName) {
@@ -288,15 +1085,15 @@ public class ApigeeController {
 
   private List<ApiProduct> loadProducts() {
     try {
-      Map<String, Object> productResponse = apigeeGet("/apiproducts?expand=false");
-      @SuppressWarnings("unchecked")
-      List<Map<String, Object>> productList =
-          (List<Map<String, Object>>) productResponse.get("apiProduct");
-      // result is List<ApiProduct> apiProducts = new ArrayList<>();
-      return productList.stream()
+      var productResponse =
+          apigeeFetch("/apiproducts?expand=false", "GET", null, ApigeeJson.API_PRODUCT_LIST);
+      if (!productResponse.isSuccess()) {
+        throw new IOException("cannot list API products: " + productResponse.error());
+      }
+      return productResponse.body().stream()
           .map(
               rec -> {
-                String productName = (String) rec.get("name");
+                String productName = rec.name();
                 return new ApiProduct(
                     productName,
                     productName + " API",
@@ -318,16 +1115,35 @@ public class ApigeeController {
     ctx.json((apiProducts != null) ? apiProducts : Collections.emptyList());
   }
 
-  /** GET /api/me/apps */
+  /**
+   * GET /api/me/apps returns the names of the apps of the developer. With expand=true, it returns
+   * the details of every app, as GET /api/me/apps/{appname} would, from one call to Apigee, so that
+   * a page that lists apps needs one request rather than one per app.
+   */
   public void getDeveloperApps(final Context ctx)
       throws IOException, InterruptedException, URISyntaxException {
     // Session is valid, add user info to context if needed
     log.info("GET /api/me/apps");
     String devEmail = ctx.attribute("userEmail");
-    Map<String, Object> devResponse = apigeeGet("/developers/" + devEmail);
-    @SuppressWarnings("unchecked")
-    List<String> appList = (List<String>) devResponse.get("apps");
-    ctx.json((appList != null) ? appList : Collections.emptyList());
+    if ("true".equalsIgnoreCase(ctx.queryParam("expand"))) {
+      ApigeeResponse<List<DeveloperApp>> apps =
+          apigeeFetch(
+              String.format("/developers/%s/apps?expand=true", devEmail),
+              "GET",
+              null,
+              ApigeeJson.APP_LIST);
+      if (apps.status() == 404) {
+        // Not yet registered as a developer; like the list of names, the list is empty.
+        ctx.json(Collections.emptyList());
+      } else if (!apps.isSuccess()) {
+        ctx.status(apps.status()).json(Map.of("error", String.valueOf(apps.error())));
+      } else {
+        ctx.json((apps.body() != null) ? apps.body() : Collections.emptyList());
+      }
+      return;
+    }
+    Developer developer = apigeeGet("/developers/" + devEmail, ApigeeJson.DEVELOPER);
+    ctx.json((developer != null) ? developer.apps() : Collections.emptyList());
   }
 
   /** GET /api/me/apps/{appname} */
@@ -343,9 +1159,17 @@ public class ApigeeController {
       return;
     }
     log.info("Fetching app details for userEmail {} app {}", devEmail, appName);
-    Map<String, Object> appDetails =
-        apigeeGet(String.format("/developers/%s/apps/%s", devEmail, appName));
-    ctx.json(appDetails);
+    ApigeeResponse<DeveloperApp> appDetails =
+        apigeeFetch(
+            String.format("/developers/%s/apps/%s", devEmail, appName),
+            "GET",
+            null,
+            ApigeeJson.DEVELOPER_APP);
+    if (!appDetails.isSuccess()) {
+      ctx.status(appDetails.status()).json(Map.of("error", String.valueOf(appDetails.error())));
+      return;
+    }
+    ctx.json(appDetails.body());
   }
 
   /**
@@ -366,57 +1190,44 @@ public class ApigeeController {
     for (String productName : apiProducts) {
       try {
         log.info("Fetching details for API product: {}", productName);
-        Map<String, Object> productDetails = apigeeGet("/apiproducts/" + productName);
+        var productDetails = apigeeGet("/apiproducts/" + productName, ApigeeJson.API_PRODUCT);
+        if (productDetails == null) {
+          throw new IOException("cannot read API product " + productName);
+        }
 
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> attributes =
-            (List<Map<String, Object>>) productDetails.get("attributes");
-
-        if (attributes != null) {
-          Optional<String> lifetimeValue =
-              attributes.stream()
-                  .filter(
-                      attr ->
-                          "max-key-lifetime".equals(attr.get("name"))
-                              && attr.get("value") instanceof String)
-                  .map(attr -> (String) attr.get("value"))
-                  .findFirst();
-
-          if (lifetimeValue.isPresent()) {
-            String timespanStr = lifetimeValue.get();
+        Optional<String> lifetimeValue = productDetails.attribute("max-key-lifetime");
+        if (lifetimeValue.isPresent()) {
+          String timespanStr = lifetimeValue.get();
+          log.info(
+              "Found 'max-key-lifetime' attribute for product {}: {}", productName, timespanStr);
+          try {
+            long currentProductExpirySeconds = parseTimespanToSeconds(timespanStr);
             log.info(
-                "Found 'max-key-lifetime' attribute for product {}: {}", productName, timespanStr);
-            try {
-              long currentProductExpirySeconds = parseTimespanToSeconds(timespanStr);
-              log.info(
-                  "Parsed expiry for {} to {} seconds", productName, currentProductExpirySeconds);
-
-              if (currentProductExpirySeconds != -1) { // If the current product has a limit
-                if (minExpirySeconds == -1
-                    || currentProductExpirySeconds < minExpirySeconds) { // If it's the first limit
-                  // found or smaller than
-                  // current min
-                  minExpirySeconds = currentProductExpirySeconds;
-                  log.info("New minimum expiry set to {} seconds", minExpirySeconds);
-                }
+                "Parsed expiry for {} to {} seconds", productName, currentProductExpirySeconds);
+
+            if (currentProductExpirySeconds != -1) { // If the current product has a limit
+              if (minExpirySeconds == -1
+                  || currentProductExpirySeconds < minExpirySeconds) { // If it's the first limit
+                // found or smaller than
+                // current min
+                minExpirySeconds = currentProductExpirySeconds;
+                log.info("New minimum expiry set to {} seconds", minExpirySeconds);
               }
-              // If currentProductExpirySeconds is -1 (no limit for this product), it doesn't
-              // affect the minimum unless minExpirySeconds is still -1.
-            } catch (IllegalArgumentException e) {
-              log.warn(
-                  "Could not parse 'max-key-lifetime' value '{}' for product {}: {}",
-                  timespanStr,
-                  productName,
-                  e.getMessage());
-              // Currently ignoring parse errors and proceeding.
             }
-          } else {
-            log.info(
-                "No 'max-key-lifetime' attribute found for product {}. Assuming no limit.",
-                productName);
+            // If currentProductExpirySeconds is -1 (no limit for this product), it doesn't
+            // affect the minimum unless minExpirySeconds is still -1.
+          } catch (IllegalArgumentException e) {
+            log.warn(
+                "Could not parse 'max-key-lifetime' value '{}' for product {}: {}",
+                timespanStr,
+                productName,
+                e.getMessage());
+            // Currently ignoring parse errors and proceeding.
           }
         } else {
-          log.info("No attributes found for product {}. Assuming no limit.", productName);
+          log.info(
+              "No 'max-key-lifetime' attribute found for product {}. Assuming no limit.",
+              productName);
         }
       } catch (Exception e) {
         log.error(
@@ -457,9 +1268,7 @@ public class ApigeeController {
       throws IOException, InterruptedException, URISyntaxException {
     try {
       String appsUri = String.format("/developers/%s/apps", devEmail);
-      Map<String, Object> currentAppsResponse = apigeeGet(appsUri);
-      @SuppressWarnings("unchecked")
-      List<String> currentAppList = (List<String>) currentAppsResponse.get("app");
+      List<String> currentAppList = apigeeGet(appsUri, ApigeeJson.APP_ID_LIST);
       int appCount = (currentAppList != null) ? currentAppList.size() : 0;
 
       if (appCount >= MAX_DEVELOPER_APPS) {
@@ -586,9 +1395,15 @@ public class ApigeeController {
     }
 
     // Create the developer app.
-    Map<String, Object> appDetails =
-        apigeePost(String.format("/developers/%s/apps", devEmail), payloadMap);
-    ctx.status(201).json(appDetails);
+    ApigeeResponse<DeveloperApp> appDetails =
+        apigeePost(
+            String.format("/developers/%s/apps", devEmail), payloadMap, ApigeeJson.DEVELOPER_APP);
+    if (!appDetails.isSuccess()) {
+      log.warn("Apigee refused to create an app for {}: {}", devEmail, appDetails.error());
+      ctx.status(appDetails.status()).json(Map.of("error", String.valueOf(appDetails.error())));
+      return;
+    }
+    ctx.status(201).json(appDetails.body());
   }
 
   /** GET /api/me */
@@ -602,41 +1417,19 @@ public class ApigeeController {
     }
     try {
       String uri = String.format("/developers/%s", devEmail);
-      Map<String, Object> devDetails = apigeeGet(uri);
-      if (devDetails.containsKey("error")) {
+      ApigeeResponse<Developer> devDetails = apigeeFetch(uri, "GET", null, ApigeeJson.DEVELOPER);
+      if (!devDetails.isSuccess()) {
         // TODO: be more thorough, check for error code 404 from Apigee API
         log.warn(
             String.format(
-                "Error retrieving developer details for %s: %s", devEmail, devDetails.toString()));
+                "Error retrieving developer details for %s: %s", devEmail, devDetails.error()));
         ctx.status(404).json(Collections.emptyMap());
         return;
       }
-      Map<String, Object> devAttrs = apigeeGet(uri + "/attributes");
-      @SuppressWarnings("unchecked")
-      List<Map<String, Object>> attrList = (List<Map<String, Object>>) devAttrs.get("attribute");
-      if (attrList == null) {
-        devDetails.put("attribute", Collections.emptyList());
-        devDetails.put("certificates", Collections.emptyList());
-      } else {
-        Map<Boolean, List<Map<String, Object>>> partitionedMap =
-            partitionByCertFingerprint(attrList);
-        List<Map<String, Object>> otherAttrs =
-            partitionedMap.getOrDefault(false, Collections.emptyList());
-        devDetails.put("attribute", otherAttrs);
-
-        List<Map<String, Object>> certs =
-            partitionedMap.getOrDefault(true, Collections.emptyList());
-        List<Map<String, String>> xformedCerts =
-            certs.stream()
-                .map(
-                    originalMap ->
-                        Map.of(
-                            "id", (String) originalMap.get("name"),
-                            "fingerprint", (String) originalMap.get("value")))
-                .collect(Collectors.toList());
-        devDetails.put("certificates", xformedCerts);
-      }
-      ctx.status(200).json(devDetails);
+      List<Attribute> attrList = apigeeGet(uri + "/attributes", ApigeeJson.ATTRIBUTE_LIST);
+      ctx.status(200).json(developerDetails(devDetails.body(), attrList));
+    } catch (RejectedCallException exc1) {
+      throw exc1;
     } catch (Exception e) {
       log.warn(String.format("Exception while getting details for %s", devEmail), e);
       ctx.status(500).json(Map.of("error", "Invalid JSON payload or structure"));
@@ -644,22 +1437,162 @@ public class ApigeeController {
     }
   }
 
-  private static Map<Boolean, List<Map<String, Object>>> partitionByCertFingerprint(
-      List<Map<String, Object>> attrList) {
-    Predicate<Map<String, Object>> startsWithCert =
-        mapEntry -> {
-          if (mapEntry == null) return false;
-          Object nameValue = mapEntry.get("name");
-          return nameValue instanceof String
-              && ((String) nameValue).startsWith("cert-")
-              && ((String) nameValue).endsWith("-fingerprint");
-        };
+  /** The developer as the portal shows it, with the certificates apart from other attributes. */
+  private static DeveloperDetails developerDetails(Developer developer, List<Attribute> attrList) {
+    if (attrList == null) {
+      attrList = Collections.emptyList();
+    }
+    Map<Boolean, List<Attribute>> partitionedMap = partitionByCertFingerprint(attrList);
+    List<Attribute> otherAttrs = partitionedMap.getOrDefault(false, Collections.emptyList());
+    List<DeveloperDetails.Certificate> certs =
+        partitionedMap.getOrDefault(true, Collections.emptyList()).stream()
+            .map(attr -> new DeveloperDetails.Certificate(attr.name(), attr.value()))
+            .toList();
+    return DeveloperDetails.of(developer, otherAttrs, certs);
+  }
 
-    // Use Collectors.partitioningBy to split the stream into two lists based on the predicate
-    Map<Boolean, List<Map<String, Object>>> partitionedMap =
-        attrList.stream().collect(Collectors.partitioningBy(startsWithCert));
+  /**
+   * GET /api/me/bootstrap
+   *
+   * <p>Everything the portal shows on its first pages after sign-in, in one response, in place of
+   * separate requests for the version, the developer, the apps and each of their details, and the
+   * API products. The sections are loaded at the same time, on virtual threads that carry the
+   * deadline and the outbound trace of this request; the API products come from the catalog cache.
+   * A section that fails is left out and its error is reported under "errors", so the portal can
+   * still show the rest. A developer who has not yet registered gets a 404 for "me".
+   */
+  public void getBootstrap(final Context ctx) throws InterruptedException {
+    String devEmail = ctx.attribute("userEmail");
+    if (devEmail == null || devEmail.isBlank()) {
+      log.warn("Error: userEmail not found in context.");
+      ctx.status(500).json("Internal server error: User email not found.");
+      return;
+    }
+    String uri = "/developers/" + devEmail;
+    Future<ApigeeResponse<Developer>> developer;
+    Future<List<Attribute>> attributes;
+    Future<ApigeeResponse<List<DeveloperApp>>> apps;
+    Future<List<ApiProduct>> apiProducts;
+    try (ExecutorService sections = Executors.newVirtualThreadPerTaskExecutor()) {
+      developer =
+          sections.submit(
+              forThisRequest(() -> apigeeFetch(uri, "GET", null, ApigeeJson.DEVELOPER)));
+      attributes =
+          sections.submit(
+              forThisRequest(() -> apigeeGet(uri + "/attributes", ApigeeJson.ATTRIBUTE_LIST)));
+      apps =
+          sections.submit(
+              forThisRequest(
+                  () -> apigeeFetch(uri + "/apps?expand=true", "GET", null, ApigeeJson.APP_LIST)));
+      apiProducts = sections.submit(forThisRequest(ApigeeController::cachedApiProducts));
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedException("interrupted while loading the bootstrap");
+    }
+
+    Map<String, Bootstrap.SectionError> errors = new LinkedHashMap<>();
+    DeveloperDetails me = null;
+    ApigeeResponse<Developer> developerResponse = sectionResult("me", developer, errors);
+    if (developerResponse != null) {
+      if (!developerResponse.isSuccess()) {
+        errors.put("me", sectionError(developerResponse));
+      } else {
+        List<Attribute> attrList = sectionResult("me", attributes, errors);
+        if (attrList != null || !errors.containsKey("me")) {
+          me = developerDetails(developerResponse.body(), attrList);
+        }
+      }
+    }
+    List<DeveloperApp> appList = null;
+    ApigeeResponse<List<DeveloperApp>> appsResponse = sectionResult("apps", apps, errors);
+    if (appsResponse != null) {
+      if (appsResponse.status() == 404) {
+        // Not yet registered as a developer; as at GET /api/me/apps, the list is empty.
+        appList = Collections.emptyList();
+      } else if (!appsResponse.isSuccess()) {
+        errors.put("apps", sectionError(appsResponse));
+      } else {
+        appList = (appsResponse.body() != null) ? appsResponse.body() : Collections.emptyList();
+      }
+    }
+    List<ApiProduct> productList = sectionResult("apiProducts", apiProducts, errors);
+    if (productList == null && !errors.containsKey("apiProducts")) {
+      errors.put(
+          "apiProducts", new Bootstrap.SectionError(503, "API products are not available."));
+    }
+    ctx.json(
+        new Bootstrap(
+            StateService.getInstance().getBuildInfo(),
+            me,
+            appList,
+            productList,
+            errors.isEmpty() ? null : errors));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<ApiProduct> cachedApiProducts() {
+    return (List<ApiProduct>) CacheService.getInstance().get("apiproducts");
+  }
+
+  /**
+   * The task, to be run on another thread for the request on this one: with its deadline, so that
+   * calls made by the task are cut short with the request, and its trace, so they are counted.
+   */
+  private static <T> Callable<T> forThisRequest(Callable<T> task) {
+    Long deadline = Deadline.current();
+    OutboundTrace trace = OutboundTrace.current();
+    return () -> {
+      Deadline.resume(deadline);
+      OutboundTrace.attach(trace);
+      try {
+        return task.call();
+      } finally {
+        OutboundTrace.attach(null);
+        Deadline.resume(null);
+      }
+    };
+  }
+
+  /**
+   * The result of a finished section, or null if it failed; then the failure is recorded under the
+   * section name, unless an earlier failure of the same section already was.
+   */
+  private static <T> T sectionResult(
+      String section, Future<T> result, Map<String, Bootstrap.SectionError> errors) {
+    if (result.state() == Future.State.SUCCESS) {
+      return result.resultNow();
+    }
+    Throwable failure =
+        (result.state() == Future.State.FAILED)
+            ? result.exceptionNow()
+            : new CancellationException("not finished");
+    Bootstrap.SectionError error;
+    if (failure instanceof RejectedCallException rejected) {
+      boolean rateLimited = rejected.reason() == RejectedCallException.Reason.RATE_LIMITED;
+      error =
+          new Bootstrap.SectionError(
+              rateLimited ? 429 : 503,
+              rateLimited
+                  ? "Too many requests; try again shortly."
+                  : "apigee".equals(rejected.dependency())
+                      ? "Apigee is unavailable; try again shortly."
+                      : "The service is busy; try again shortly.");
+    } else {
+      error = new Bootstrap.SectionError(500, "Internal server error.");
+    }
+    log.warn("Bootstrap section {} failed: {}", section, failure.toString());
+    errors.putIfAbsent(section, error);
+    return null;
+  }
 
-    return partitionedMap;
+  private static Bootstrap.SectionError sectionError(ApigeeResponse<?> response) {
+    return new Bootstrap.SectionError(response.status(), String.valueOf(response.error()));
+  }
+
+  private static Map<Boolean, List<Attribute>> partitionByCertFingerprint(
+      List<Attribute> attrList) {
+    return attrList.stream()
+        .collect(Collectors.partitioningBy(Attribute::holdsCertificateFingerprint));
   }
 
   // /** POST /api/me/attributes */
@@ -758,21 +1691,26 @@ public class ApigeeController {
               "lastName", lastName,
               "userName", userName);
 
-      Map<String, Object> responsePayload = apigeePost("/developers", requestPayload);
+      ApigeeResponse<Developer> responsePayload =
+          apigeePost("/developers", requestPayload, ApigeeJson.DEVELOPER);
+      if (!responsePayload.isSuccess()) {
+        log.warn("Apigee refused to create developer {}: {}", devEmail, responsePayload.error());
+        ctx.status(responsePayload.status())
+            .json(Map.of("error", String.valueOf(responsePayload.error())));
+        return;
+      }
 
       // --------------------------------------------
       // Set a default partner company name
       String uri = String.format("/developers/%s/attributes", devEmail);
-      List<Map<String, Object>> attrlist = new ArrayList<>();
+      List<Attribute> attrlist = new ArrayList<>();
       attrlist.add(
-          Map.of(
-              "name",
+          new Attribute(
               "partner-name",
-              "value",
               String.format("CymbalPartner %04d LLC", (new Random()).nextInt(10000))));
-      apigeePost(uri, Map.of("attribute", attrlist));
+      apigeePost(uri, Map.of("attribute", attrlist), ApigeeJson.DISCARD);
       // --------------------------------------------
-      ctx.status(201).json(responsePayload);
+      ctx.status(201).json(responsePayload.body());
     } catch (Exception e) {
       log.error("Error creating new developer", e);
       ctx.status(500).json(Map.of("error", "unhandled error"));
@@ -782,7 +1720,7 @@ public class ApigeeController {
 
   // --- Helper methods for registerCertificate ---
 
-  private record ProcessedCertificate(X509Certificate certificate, String pem) {}
+  private record ProcessedCertificate(X509Certificate certificate, String pem, String fingerprint) {}
 
   private Optional<Map<String, Object>> parseAndValidateRegisterCertificateRequest(Context ctx) {
     String contentType = ctx.contentType();
@@ -794,7 +1732,9 @@ public class ApigeeController {
 
     Map<String, Object> payload;
     try {
-      payload = gson.fromJson(ctx.body(), mapType);
+      @SuppressWarnings("unchecked")
+      Map<String, Object> parsed = (Map<String, Object>) ctx.bodyAsClass(Map.class);
+      payload = parsed;
     } catch (Exception e) {
       log.warn("Failed to parse JSON payload for registerCertificate", e);
       ctx.status(400).json(Map.of("error", "Payload cannot be parsed"));
@@ -826,26 +1766,14 @@ public class ApigeeController {
     return Optional.of(payload);
   }
 
-  private Optional<List<Map<String, Object>>> checkCertificateLimitAndGetAttributes(
+  private Optional<List<Attribute>> checkCertificateLimitAndGetAttributes(
       Context ctx, String devEmail) throws IOException, InterruptedException, URISyntaxException {
     String attributesUri = String.format("/developers/%s/attributes", devEmail);
-    Map<String, Object> currentDevAttrsResponse = apigeeGet(attributesUri);
-
-    @SuppressWarnings("unchecked")
-    List<Map<String, Object>> currentAttrList =
-        (List<Map<String, Object>>) currentDevAttrsResponse.get("attribute");
+    List<Attribute> currentAttrList = apigeeGet(attributesUri, ApigeeJson.ATTRIBUTE_LIST);
 
     long certificateCount = 0;
     if (currentAttrList != null) {
-      certificateCount =
-          currentAttrList.stream()
-              .filter(
-                  mapEntry -> {
-                    if (mapEntry == null) return false;
-                    Object nameValue = mapEntry.get("name");
-                    return nameValue instanceof String && ((String) nameValue).startsWith("cert-");
-                  })
-              .count();
+      certificateCount = currentAttrList.stream().filter(Attribute::holdsCertificate).count();
     }
 
     if (certificateCount >= MAX_CERTIFICATES) {
@@ -875,25 +1803,18 @@ public class ApigeeController {
       String devEmail,
       String userName, // Full name from session
       Map<String, Object> payload,
-      List<Map<String, Object>> currentDevAttrs) {
+      List<Attribute> currentDevAttrs) {
     try {
       String certificatePem;
       X509Certificate x509Cert;
+      String fingerprint;
 
       if (payload.containsKey("publicKey")) {
         // Generate a certificate from an uploaded public key
         String partnerOrgName = "Unknown Partner Org"; // Default
         if (currentDevAttrs != null) {
           partnerOrgName =
-              currentDevAttrs.stream()
-                  .filter(
-                      attr ->
-                          attr != null
-                              && "partner-name".equals(attr.get("name"))
-                              && attr.get("value") instanceof String)
-                  .map(attr -> (String) attr.get("value"))
-                  .findFirst()
-                  .orElse(partnerOrgName);
+              findAttributeValue(currentDevAttrs, "partner-name").orElse(partnerOrgName);
         }
         log.info("Using partner organization name for cert generation: {}", partnerOrgName);
 
@@ -909,15 +1830,18 @@ public class ApigeeController {
             X509CertificateService.getInstance()
                 .generateNewSignedCertificate(publicKeyToSign, subjectDN, devEmail, partnerOrgName);
         certificatePem = KeyUtility.toPem(x509Cert);
+        fingerprint = KeyUtility.fingerprintBase64(x509Cert);
         log.info("Successfully generated new certificate for dev {}", devEmail);
       } else {
         // User is uploading a previously-generated certificate
         certificatePem = (String) payload.get("certificate");
-        x509Cert = KeyUtility.decodeCertificate(certificatePem);
-        X509CertificateService.enforceClientCertificateConstraints(x509Cert);
+        CertificateValidationCache.ValidatedCertificate validated =
+            CertificateValidationCache.getInstance().decodeAndValidate(certificatePem);
+        x509Cert = validated.certificate();
+        fingerprint = validated.fingerprint();
         log.info("Successfully processed uploaded certificate for dev {}", devEmail);
       }
-      return Optional.of(new ProcessedCertificate(x509Cert, certificatePem));
+      return Optional.of(new ProcessedCertificate(x509Cert, certificatePem, fingerprint));
     } catch (KeyUtility.KeyParseException | IllegalArgumentException e) {
       log.warn("Error processing/validating certificate/key: {}", e.getMessage());
       ctx.status(400).json(Map.of("error", e.getMessage()));
@@ -935,24 +1859,47 @@ public class ApigeeController {
       ProcessedCertificate processedCert,
       // X509Certificate certificate,
       // String certificatePem,
-      List<Map<String, Object>> currentAttributes)
+      List<Attribute> currentAttributes)
       throws IOException, InterruptedException, URISyntaxException {
     try {
-      String fingerprint = KeyUtility.fingerprintBase64(processedCert.certificate());
+      String fingerprint = processedCert.fingerprint();
       // The verifyFingerprintUniqueness method throws IllegalArgumentException if duplicate
       verifyFingerprintUniqueness(fingerprint, currentAttributes);
+      // Reserve the fingerprint before writing it, so that a concurrent registration of the same
+      // certificate, by this developer or another, cannot pass the checks as well.
+      CertificateIndex index = CertificateIndex.getInstance();
+      if (!index.reserve(fingerprint, devEmail)) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Certificate with fingerprint '%s' is already registered to another developer,"
+                    + " or is being registered.",
+                fingerprint));
+      }
 
       String nowId = nowAsYyyyMmDdHHmmss();
       String fingerprintIdentifier = String.format("cert-%s-fingerprint", nowId);
       String pemIdentifier = String.format("cert-%s-pem", nowId);
-
-      // Create a mutable list for attributes if it's not already or make a copy
-      List<Map<String, Object>> updatedAttributes = new ArrayList<>(currentAttributes);
-      updatedAttributes.add(Map.of("name", fingerprintIdentifier, "value", fingerprint));
-      updatedAttributes.add(Map.of("name", pemIdentifier, "value", processedCert.pem()));
-
-      String attributesUri = String.format("/developers/%s/attributes", devEmail);
-      apigeePost(attributesUri, Map.of("attribute", updatedAttributes));
+      try {
+        // Create a mutable list for attributes if it's not already or make a copy
+        List<Attribute> updatedAttributes = new ArrayList<>(currentAttributes);
+        updatedAttributes.add(new Attribute(fingerprintIdentifier, fingerprint));
+        updatedAttributes.add(new Attribute(pemIdentifier, processedCert.pem()));
+
+        String attributesUri = String.format("/developers/%s/attributes", devEmail);
+        ApigeeResponse<Void> written =
+            apigeePost(attributesUri, Map.of("attribute", updatedAttributes), ApigeeJson.DISCARD);
+        if (!written.isSuccess()) {
+          throw new IOException("Apigee refused the certificate attributes: " + written.error());
+        }
+        index.put(
+            fingerprint,
+            new CertificateIndex.CertificateOwner(
+                devEmail,
+                fingerprintIdentifier,
+                processedCert.certificate().getNotAfter().toInstant()));
+      } finally {
+        index.release(fingerprint);
+      }
       log.info(
           "Successfully updated developer attributes for {} with new certificate ID: {}",
           devEmail,
@@ -993,6 +1940,22 @@ public class ApigeeController {
       return;
     }
     log.info("Attempting to register certificate for developer: {}", devEmail);
+    if (!CertificateIndex.getInstance().isReady()) {
+      // Until the index is loaded, a fingerprint registered to another developer is not found.
+      log.warn("Certificate index not loaded; refusing to register a certificate for {}", devEmail);
+      ctx.header("Retry-After", "5")
+          .status(503)
+          .json(Map.of("error", "Certificate registration is starting up; try again shortly."));
+      return;
+    }
+    if (!IssuanceJournal.isOpen()) {
+      // Until this instance holds the journal, it cannot record what it issues.
+      log.warn("Issuance journal not open; refusing to register a certificate for {}", devEmail);
+      ctx.header("Retry-After", "5")
+          .status(503)
+          .json(Map.of("error", "Certificate registration is starting up; try again shortly."));
+      return;
+    }
 
     Optional<Map<String, Object>> payloadOptional = parseAndValidateRegisterCertificateRequest(ctx);
     if (payloadOptional.isEmpty()) {
@@ -1000,12 +1963,12 @@ public class ApigeeController {
     }
     Map<String, Object> payload = payloadOptional.get();
 
-    Optional<List<Map<String, Object>>> attributesOptional =
+    Optional<List<Attribute>> attributesOptional =
         checkCertificateLimitAndGetAttributes(ctx, devEmail);
     if (attributesOptional.isEmpty()) {
       return; // Error handled in helper
     }
-    List<Map<String, Object>> currentDevAttrs = attributesOptional.get();
+    List<Attribute> currentDevAttrs = attributesOptional.get();
 
     Optional<ProcessedCertificate> processedCertOptional =
         generateOrUploadCertificate(ctx, devEmail, userName, payload, currentDevAttrs);
@@ -1019,10 +1982,7 @@ public class ApigeeController {
     // complex locking or conditional update mechanism via Apigee would be needed.
     // For this example, we'll re-fetch.
     String attributesUri = String.format("/developers/%s/attributes", devEmail);
-    Map<String, Object> freshDevAttrsResponse = apigeeGet(attributesUri);
-    @SuppressWarnings("unchecked")
-    List<Map<String, Object>> freshDevAttrs =
-        (List<Map<String, Object>>) freshDevAttrsResponse.get("attribute");
+    List<Attribute> freshDevAttrs = apigeeGet(attributesUri, ApigeeJson.ATTRIBUTE_LIST);
     if (freshDevAttrs == null) {
       freshDevAttrs = new ArrayList<>();
     }
@@ -1034,29 +1994,21 @@ public class ApigeeController {
     }
     String newCertificateIdentifier = newCertIdOptional.get();
 
-    try {
-      Map<String, Object> response =
-          Map.of(
-              "pem",
-              processedCert.pem(),
-              "fingerprint",
-              KeyUtility.fingerprintBase64(processedCert.certificate()),
-              "certificate-id",
-              newCertificateIdentifier,
-              "subjectDN",
-              processedCert.certificate().getSubjectX500Principal().toString(),
-              "notBefore",
-              certDate(processedCert.certificate().getNotBefore()),
-              "notAfter",
-              certDate(processedCert.certificate().getNotAfter()));
-      ctx.status(200).json(response);
-    } catch (NoSuchProviderException
-        | NoSuchAlgorithmException
-        | CertificateEncodingException exc1) {
-      log.error(
-          "Exception during certificate registration finalization: {}", exc1.toString(), exc1);
-      ctx.status(500).json("Internal server error hwile registering a certificate.");
-    }
+    Map<String, Object> response =
+        Map.of(
+            "pem",
+            processedCert.pem(),
+            "fingerprint",
+            processedCert.fingerprint(),
+            "certificate-id",
+            newCertificateIdentifier,
+            "subjectDN",
+            processedCert.certificate().getSubjectX500Principal().toString(),
+            "notBefore",
+            certDate(processedCert.certificate().getNotBefore()),
+            "notAfter",
+            certDate(processedCert.certificate().getNotAfter()));
+    ctx.status(200).json(response);
   }
 
   /**
@@ -1068,25 +2020,17 @@ public class ApigeeController {
    * @throws IllegalArgumentException if a duplicate fingerprint is found.
    */
   private static void verifyFingerprintUniqueness(
-      String fingerprint, List<Map<String, Object>> attrlist) {
+      String fingerprint, List<Attribute> attrlist) {
     if (attrlist == null || fingerprint == null) {
       return; // Nothing to check against or no fingerprint provided
     }
 
-    for (Map<String, Object> mapEntry : attrlist) {
-      if (mapEntry == null) {
-        continue;
-      }
-      Object nameValue = mapEntry.get("name");
-      Object valueValue = mapEntry.get("value");
-
-      if (nameValue instanceof String && ((String) nameValue).startsWith("cert-")) {
-        if (fingerprint.equals(valueValue)) {
-          throw new IllegalArgumentException(
-              String.format(
-                  "Certificate with fingerprint '%s' already exists (attribute name: %s).",
-                  fingerprint, nameValue));
-        }
+    for (Attribute attr : attrlist) {
+      if (attr.holdsCertificate() && fingerprint.equals(attr.value())) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Certificate with fingerprint '%s' already exists (attribute name: %s).",
+                fingerprint, attr.name()));
       }
     }
   }
@@ -1102,15 +2046,19 @@ public class ApigeeController {
     }
     String certId = ctx.pathParam("certId");
     log.info("deregisterCertificate [{} {}]...", devEmail, certId);
+    if (!IssuanceJournal.isOpen()) {
+      // Until this instance holds the journal, it cannot revoke what it deregisters.
+      log.warn("Issuance journal not open; refusing to deregister a certificate for {}", devEmail);
+      ctx.header("Retry-After", "5")
+          .status(503)
+          .json(Map.of("error", "Certificate deregistration is starting up; try again shortly."));
+      return;
+    }
 
     try {
       // get and put
       String uri = String.format("/developers/%s/attributes", devEmail);
-      Map<String, Object> devAttrResponse = apigeeGet(uri);
-
-      @SuppressWarnings("unchecked")
-      List<Map<String, Object>> attrList =
-          (List<Map<String, Object>>) devAttrResponse.get("attribute");
+      List<Attribute> attrList = apigeeGet(uri, ApigeeJson.ATTRIBUTE_LIST);
       if (attrList == null) {
         // nothing to delete
         ctx.status(200).json(Collections.emptyMap());
@@ -1118,19 +2066,33 @@ public class ApigeeController {
       }
 
       String pemId = certId.replace("fingerprint", "pem");
-      List<Map<String, Object>> attrsToKeep =
+      List<Attribute> attrsToKeep =
           attrList.stream()
               .filter(
-                  mapEntry -> {
-                    if (mapEntry == null) return false;
-                    Object nameValue = mapEntry.get("name");
-                    return nameValue instanceof String
-                        && !(((String) nameValue).equals(certId)
-                            || ((String) nameValue).equals(pemId));
-                  })
+                  attr ->
+                      attr.name() != null
+                          && !(attr.name().equals(certId) || attr.name().equals(pemId)))
               .collect(Collectors.toList());
 
-      apigeePost(uri, Map.of("attribute", attrsToKeep));
+      Optional<String> removedFingerprint = findAttributeValue(attrList, certId);
+      Optional<String> removedPem = findAttributeValue(attrList, pemId);
+
+      // Revoke first, so that if revocation fails, the certificate stays registered and can be
+      // deregistered again, rather than being gone from Apigee while still reported good.
+      if (removedPem.isPresent()) {
+        revokeIfIssuedHere(removedPem.get(), devEmail, certId);
+      }
+      ApigeeResponse<Void> written =
+          apigeePost(uri, Map.of("attribute", attrsToKeep), ApigeeJson.DISCARD);
+      if (!written.isSuccess()) {
+        // The certificate is revoked but still registered. That fails closed: its status and
+        // the CRL report it revoked, and the developer can deregister it again.
+        log.warn(
+            "Apigee refused to remove certificate {} of {}: {}", certId, devEmail, written.error());
+        ctx.status(written.status()).json(Map.of("error", String.valueOf(written.error())));
+        return;
+      }
+      removedFingerprint.ifPresent(CertificateIndex.getInstance()::remove);
       ctx.status(200).json(Collections.emptyMap());
     } catch (Exception e) {
       log.error("Error deregistering certificate", e);
@@ -1139,6 +2101,148 @@ public class ApigeeController {
     }
   }
 
+  /**
+   * Rebuilds the certificate fingerprint index by listing all developers in the organization and
+   * reading the certificate attributes of several developers at a time. The scan is paced to a
+   * share of the calls to Apigee allowed, so that requests are not starved while it runs.
+   *
+   * @return false if a rebuild was already in progress, or if the scan failed.
+   */
+  public boolean rebuildCertificateIndex() {
+    CertificateIndex index = CertificateIndex.getInstance();
+    if (!index.beginRebuild()) {
+      log.info("Certificate index rebuild is already in progress.");
+      return false;
+    }
+    try {
+      long startMillis = System.currentTimeMillis();
+      List<String> developerEmails = listAllDeveloperEmails();
+      Map<String, CertificateIndex.CertificateOwner> scanned = new ConcurrentHashMap<>();
+      List<Callable<Void>> tasks =
+          developerEmails.stream()
+              .map(
+                  email ->
+                      (Callable<Void>)
+                          () -> {
+                            scanned.putAll(scanDeveloperCertificates(email));
+                            return null;
+                          })
+              .collect(Collectors.toList());
+      try (ExecutorService executor =
+          Executors.newFixedThreadPool(CERTIFICATE_INDEX_SCAN_PARALLELISM)) {
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+          future.get();
+        }
+      }
+      index.completeRebuild(scanned);
+      log.info(
+          "Rebuilt certificate index: {} certificates across {} developers in {} ms",
+          scanned.size(),
+          developerEmails.size(),
+          System.currentTimeMillis() - startMillis);
+      return true;
+    } catch (Exception e) {
+      index.abortRebuild();
+      log.error("Failed to rebuild certificate index: {}", e.getMessage(), e);
+      return false;
+    }
+  }
+
+  private List<String> listAllDeveloperEmails()
+      throws IOException, InterruptedException, URISyntaxException {
+    List<String> emails = new ArrayList<>();
+    String startKey = null;
+    while (true) {
+      String path = "/developers?count=" + DEVELOPER_LIST_PAGE_SIZE;
+      if (startKey != null) {
+        path += "&startKey=" + URLEncoder.encode(startKey, StandardCharsets.UTF_8);
+      }
+      indexScanBudget.acquire();
+      List<String> page = apigeeGet(path, ApigeeJson.DEVELOPER_EMAIL_LIST);
+      if (page == null) {
+        break;
+      }
+      for (String email : page) {
+        // A page that starts at startKey repeats that developer.
+        if (email != null && !email.equals(startKey)) {
+          emails.add(email);
+        }
+      }
+      if (page.size() < DEVELOPER_LIST_PAGE_SIZE || emails.isEmpty()) {
+        break;
+      }
+      startKey = emails.get(emails.size() - 1);
+    }
+    return emails;
+  }
+
+  private Map<String, CertificateIndex.CertificateOwner> scanDeveloperCertificates(String devEmail)
+      throws IOException, InterruptedException, URISyntaxException {
+    indexScanBudget.acquire();
+    List<Attribute> attrList =
+        apigeeGet(String.format("/developers/%s/attributes", devEmail), ApigeeJson.ATTRIBUTE_LIST);
+    if (attrList == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, String> attrValues = new HashMap<>();
+    for (Attribute attr : attrList) {
+      if (attr.name() != null && attr.value() != null) {
+        attrValues.put(attr.name(), attr.value());
+      }
+    }
+    Map<String, CertificateIndex.CertificateOwner> owners = new HashMap<>();
+    for (Attribute certAttr :
+        partitionByCertFingerprint(attrList).getOrDefault(true, Collections.emptyList())) {
+      String certId = certAttr.name();
+      String fingerprint = certAttr.value();
+      if (fingerprint == null) {
+        continue;
+      }
+      Instant notAfter = null;
+      String pem = attrValues.get(certId.replace("fingerprint", "pem"));
+      if (pem != null) {
+        try {
+          notAfter = KeyUtility.decodeCertificate(pem).getNotAfter().toInstant();
+        } catch (KeyUtility.KeyParseException e) {
+          log.warn("Cannot parse certificate {} for developer {}", certId, devEmail);
+        }
+      }
+      owners.put(fingerprint, new CertificateIndex.CertificateOwner(devEmail, certId, notAfter));
+    }
+    return owners;
+  }
+
+  private static Optional<String> findAttributeValue(List<Attribute> attrList, String name) {
+    return attrList.stream()
+        .filter(attr -> name.equals(attr.name()) && attr.value() != null)
+        .map(Attribute::value)
+        .findFirst();
+  }
+
+  /**
+   * Marks a certificate that is being deregistered as revoked, if this portal issued it. A PEM
+   * that does not parse cannot have come from this portal, and is skipped.
+   *
+   * @throws IOException if the revocation cannot be recorded; the deregistration must then fail.
+   */
+  private static void revokeIfIssuedHere(String pem, String devEmail, String certId)
+      throws IOException, GeneralSecurityException {
+    X509Certificate certificate;
+    try {
+      certificate = KeyUtility.decodeCertificate(pem);
+    } catch (KeyUtility.KeyParseException e) {
+      log.warn("Cannot parse certificate {} of developer {}; not revoking it", certId, devEmail);
+      return;
+    }
+    if (X509CertificateService.getInstance().revokeCertificate(certificate)) {
+      log.info(
+          "Revoked certificate {} (serial {}) of developer {}",
+          certId,
+          certificate.getSerialNumber().toString(16),
+          devEmail);
+    }
+  }
+
   private static String certDate(Date d) {
     Instant instant = d.toInstant();
     return DateTimeFormatter.ISO_INSTANT.format(instant);
@@ -1173,7 +2277,7 @@ public class ApigeeController {
 
     try {
       String path = String.format("/developers/%s/apps/%s", devEmail, appName);
-      apigeeFetch(path, "DELETE", null);
+      apigeeFetch(path, "DELETE", null, ApigeeJson.DISCARD);
       log.info("Successfully deleted app {} for developer {}", appName, devEmail);
       ctx.status(204);
     } catch (Exception e) {
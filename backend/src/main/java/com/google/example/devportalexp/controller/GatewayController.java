@@ -0,0 +1,106 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.controller;
+
+import com.google.example.devportalexp.service.CertificateIndex;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.NotFoundResponse;
+import io.javalin.http.UnauthorizedResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handlers for the routes under /api/gateway, which are called by API gateways (for example, the
+ * mTLS gateway that needs to map a client certificate to a developer) rather than by the portal
+ * UI. These routes do not use the session cookie; instead the caller must present the shared
+ * gateway key in the X-Gateway-Key header. When no gateway key is configured, the routes are
+ * disabled.
+ */
+public class GatewayController {
+  private static final Logger log = LoggerFactory.getLogger(GatewayController.class);
+  private static final String GATEWAY_KEY_HEADER = "X-Gateway-Key";
+
+  private final byte[] gatewayApiKey;
+  private final ApigeeController apigee;
+
+  public GatewayController(Map<String, Object> appSettings, ApigeeController apigee) {
+    String key = (String) appSettings.get("gatewayApiKey");
+    this.gatewayApiKey =
+        (key == null || key.isBlank()) ? null : key.getBytes(StandardCharsets.UTF_8);
+    this.apigee = apigee;
+    if (this.gatewayApiKey == null) {
+      log.info("No gateway key configured; the /api/gateway routes are disabled.");
+    }
+  }
+
+  /** Before-filter check for the /api/gateway routes. */
+  public void authorize(final Context ctx) {
+    if (gatewayApiKey == null) {
+      throw new NotFoundResponse();
+    }
+    String presented = ctx.header(GATEWAY_KEY_HEADER);
+    if (presented == null
+        || !MessageDigest.isEqual(gatewayApiKey, presented.getBytes(StandardCharsets.UTF_8))) {
+      log.warn("Rejected gateway request to {} without a valid gateway key.", ctx.path());
+      throw new UnauthorizedResponse();
+    }
+  }
+
+  /** GET /api/gateway/certificates/owner?fingerprint=... */
+  public void getCertificateOwner(final Context ctx) {
+    String fingerprint = ctx.queryParam("fingerprint");
+    if (fingerprint == null || fingerprint.isBlank()) {
+      ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("error", "fingerprint is required."));
+      return;
+    }
+    CertificateIndex.getInstance()
+        .lookup(fingerprint)
+        .ifPresentOrElse(
+            owner -> {
+              Map<String, Object> response = new HashMap<>();
+              response.put("fingerprint", CertificateIndex.normalizeFingerprint(fingerprint));
+              response.put("developerEmail", owner.developerEmail());
+              response.put("certificateId", owner.certId());
+              if (owner.notAfter() != null) {
+                response.put("notAfter", owner.notAfter().toString());
+              }
+              ctx.status(HttpStatus.OK).json(response);
+            },
+            () ->
+                ctx.status(HttpStatus.NOT_FOUND)
+                    .json(Map.of("error", "No developer owns that certificate.")));
+  }
+
+  /** GET /api/gateway/certificates/index */
+  public void getCertificateIndexStatus(final Context ctx) {
+    ctx.status(HttpStatus.OK).json(CertificateIndex.getInstance().getStatus());
+  }
+
+  /**
+   * POST /api/gateway/certificates/index
+   *
+   * <p>Starts a rebuild of the certificate index in the background.
+   */
+  public void rebuildCertificateIndex(final Context ctx) {
+    Thread.ofVirtual().name("certificate-index-rebuild").start(apigee::rebuildCertificateIndex);
+    ctx.status(HttpStatus.ACCEPTED).json(CertificateIndex.getInstance().getStatus());
+  }
+}
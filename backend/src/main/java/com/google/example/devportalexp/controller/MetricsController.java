@@ -0,0 +1,147 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.controller;
+
+import com.google.example.devportalexp.metrics.Histogram;
+import com.google.example.devportalexp.metrics.MetricsRegistry;
+import com.google.example.devportalexp.metrics.OutboundTrace;
+import io.javalin.http.Context;
+import io.javalin.http.NotFoundResponse;
+import io.javalin.http.UnauthorizedResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the latency and status of every request, and serves GET /metrics, in the Prometheus
+ * text format, for a scraper. It also traces the calls to Apigee made by each request, and
+ * reports how many there were, and how long they took, in the Server-Timing response header.
+ *
+ * <p>Requests are labeled with the route template (like /api/me/apps/{appname}) rather than the
+ * path, so the number of series stays bounded. The scraper must present the metricsToken setting
+ * as a bearer token; when it is not set, GET /metrics is disabled.
+ */
+public class MetricsController {
+  private static final Logger log = LoggerFactory.getLogger(MetricsController.class);
+  private static final String START_ATTRIBUTE = "metrics.startNanos";
+
+  private final MetricsRegistry registry = MetricsRegistry.getInstance();
+  private final MetricsRegistry.Family<Histogram> requestDuration =
+      registry.histogram(
+          "devportal_http_request_duration_seconds",
+          "Latency of HTTP requests, by route.",
+          "method",
+          "route");
+  private final MetricsRegistry.Family<LongAdder> requests =
+      registry.counter(
+          "devportal_http_requests_total",
+          "HTTP requests, by route and status.",
+          "method",
+          "route",
+          "status");
+  private final MetricsRegistry.Family<LongAdder> fanOut =
+      registry.counter(
+          "devportal_http_request_apigee_calls_total",
+          "Calls to the Apigee API made while handling requests, by route. Divide by"
+              + " devportal_http_requests_total for the fan-out of each route.",
+          "method",
+          "route");
+  private final byte[] metricsToken;
+
+  public MetricsController(Map<String, Object> appSettings) {
+    String token = (String) appSettings.get("metricsToken");
+    this.metricsToken =
+        (token == null || token.isBlank()) ? null : token.getBytes(StandardCharsets.UTF_8);
+    if (this.metricsToken == null) {
+      log.info("No metrics token configured; GET /metrics is disabled.");
+    }
+  }
+
+  /** Before-filter for every request: notes when it began, and starts tracing outbound calls. */
+  public void startTimer(final Context ctx) {
+    ctx.attribute(START_ATTRIBUTE, System.nanoTime());
+    OutboundTrace.begin(ctx.method() + " " + ctx.path());
+  }
+
+  /**
+   * After-filter for every request: records its latency and status, and reports the outbound
+   * calls it made in a Server-Timing header, like {@code apigee;dur=182.4;desc="3 calls"}. The
+   * duration is the time spent waiting on Apigee, whether the calls were made in turn or together.
+   */
+  public void recordRequest(final Context ctx) {
+    OutboundTrace trace = OutboundTrace.end();
+    Long begin = ctx.attribute(START_ATTRIBUTE);
+    if (begin == null) {
+      return;
+    }
+    String method = ctx.method().name();
+    String route = routeOf(ctx);
+    long elapsedNanos = System.nanoTime() - begin;
+    requestDuration.labels(method, route).recordNanos(elapsedNanos);
+    requests.labels(method, route, String.valueOf(ctx.statusCode())).increment();
+
+    int calls = (trace == null) ? 0 : trace.callCount();
+    ctx.header(
+        "Server-Timing",
+        String.format(
+            Locale.ROOT,
+            "apigee;dur=%.1f;desc=\"%d calls\", total;dur=%.1f",
+            (trace == null) ? 0.0 : trace.elapsedMillis(),
+            calls,
+            elapsedNanos / 1_000_000.0));
+    if (calls > 0) {
+      fanOut.labels(method, route).add(calls);
+      log.debug(
+          "{} made {} Apigee calls in {} ms:{}",
+          trace.inbound(),
+          calls,
+          String.format(Locale.ROOT, "%.1f", trace.elapsedMillis()),
+          trace.describeCalls());
+    }
+  }
+
+  private static String routeOf(final Context ctx) {
+    try {
+      // Javalin reports a description rather than a path when no route matched.
+      String route = ctx.endpointHandlerPath();
+      return route.startsWith("/") ? route : "unmatched";
+    } catch (IllegalStateException exc1) {
+      // No endpoint handled this request; a before-filter ended it.
+      return "unmatched";
+    }
+  }
+
+  /** GET /metrics */
+  public void getMetrics(final Context ctx) {
+    if (metricsToken == null) {
+      throw new NotFoundResponse();
+    }
+    String authorization = ctx.header("Authorization");
+    String presented =
+        (authorization != null && authorization.startsWith("Bearer "))
+            ? authorization.substring("Bearer ".length())
+            : "";
+    if (!MessageDigest.isEqual(metricsToken, presented.getBytes(StandardCharsets.UTF_8))) {
+      throw new UnauthorizedResponse();
+    }
+    ctx.header("Cache-Control", "no-store");
+    ctx.contentType("text/plain; version=0.0.4; charset=utf-8").result(registry.scrape());
+  }
+}
@@ -0,0 +1,188 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.controller;
+
+import com.google.example.devportalexp.KeyUtility;
+import com.google.example.devportalexp.service.CertificateIndex;
+import com.google.example.devportalexp.service.CertificateStatusService;
+import com.google.example.devportalexp.service.CrlPublisher;
+import com.google.example.devportalexp.service.IssuanceJournal;
+import com.google.example.devportalexp.service.IssuerKeyProvider;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import java.math.BigInteger;
+import java.security.cert.CertificateEncodingException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Handlers for the routes under /api/pki, which publish revocation information about the client
+ * certificates issued by the portal. Like OCSP responses, the answers are signed and carry no
+ * secrets, so these routes are public.
+ */
+public class PkiController {
+
+  /**
+   * GET /api/pki/status/{serial}
+   *
+   * <p>The serial is given in hex, optionally with colons between octets. The response is a JWT
+   * (application/jwt) signed by the issuer of the certificate, cacheable until its exp claim.
+   */
+  public void getCertificateStatus(final Context ctx) {
+    BigInteger serial;
+    try {
+      serial = new BigInteger(ctx.pathParam("serial").replace(":", ""), 16);
+    } catch (NumberFormatException e) {
+      ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("error", "serial must be hexadecimal."));
+      return;
+    }
+    if (!IssuanceJournal.isOpen()) {
+      // Until the journal is loaded, a revoked serial would read as unknown, or as good.
+      sendNotLoaded(ctx);
+      return;
+    }
+
+    Optional<CertificateStatusService.SignedStatus> signedStatus =
+        CertificateStatusService.getInstance().getSignedStatus(serial);
+    if (signedStatus.isEmpty()) {
+      ctx.status(HttpStatus.NOT_FOUND).json(Map.of("error", "unknown serial number"));
+      return;
+    }
+    CertificateStatusService.SignedStatus status = signedStatus.get();
+    long maxAge = Math.max(0, Duration.between(Instant.now(), status.nextUpdate()).getSeconds());
+    ctx.header("ETag", status.etag());
+    ctx.header("Cache-Control", "public, max-age=" + maxAge);
+    if (status.etag().equals(ctx.header("If-None-Match"))) {
+      ctx.status(HttpStatus.NOT_MODIFIED);
+      return;
+    }
+    ctx.status(HttpStatus.OK).contentType("application/jwt").result(status.token());
+  }
+
+  /**
+   * GET /api/pki/crl?issuer={fingerprint}
+   *
+   * <p>The base CRL of an issuer, DER-encoded, listing every revoked certificate it issued that has
+   * not expired. Without the issuer parameter, the CRL of the current issuer.
+   */
+  public void getBaseCrl(final Context ctx) {
+    if (!IssuanceJournal.isOpen()) {
+      sendNotLoaded(ctx);
+      return;
+    }
+    String issuer = issuerParam(ctx);
+    if (isUnknownIssuer(ctx, issuer)) {
+      return;
+    }
+    CrlPublisher.PublishedCrl crl = CrlPublisher.getInstance().getBaseCrl(issuer);
+    long maxAge =
+        crl == null ? 0 : Math.max(0, Duration.between(Instant.now(), crl.refreshAt()).getSeconds());
+    sendCrl(ctx, crl, "public, max-age=" + maxAge);
+  }
+
+  /**
+   * GET /api/pki/crl/delta?issuer={fingerprint}
+   *
+   * <p>The delta CRL of an issuer, DER-encoded, listing revocations since its base CRL. This
+   * changes with every revocation, so callers should revalidate it with If-None-Match on every
+   * use.
+   */
+  public void getDeltaCrl(final Context ctx) {
+    if (!IssuanceJournal.isOpen()) {
+      sendNotLoaded(ctx);
+      return;
+    }
+    String issuer = issuerParam(ctx);
+    if (isUnknownIssuer(ctx, issuer)) {
+      return;
+    }
+    sendCrl(ctx, CrlPublisher.getInstance().getDeltaCrl(issuer), "no-cache");
+  }
+
+  private static String issuerParam(Context ctx) {
+    String issuer = ctx.queryParam("issuer");
+    return (issuer == null || issuer.isBlank())
+        ? null
+        : CertificateIndex.normalizeFingerprint(issuer);
+  }
+
+  private static boolean isUnknownIssuer(Context ctx, String issuer) {
+    if (issuer == null || CrlPublisher.getInstance().hasIssuer(issuer)) {
+      return false;
+    }
+    ctx.status(HttpStatus.NOT_FOUND).json(Map.of("error", "unknown issuer"));
+    return true;
+  }
+
+  /**
+   * GET /api/pki/issuers
+   *
+   * <p>The issuers whose certificates relying parties should currently trust: the one now issuing,
+   * and any retired ones still within their overlap window.
+   */
+  public void getIssuers(final Context ctx) throws CertificateEncodingException {
+    IssuerKeyProvider.Snapshot snapshot = IssuerKeyProvider.getInstance().getSnapshot();
+    List<Map<String, Object>> issuers = new ArrayList<>();
+    issuers.add(describeIssuer(snapshot.current(), null));
+    for (IssuerKeyProvider.RetiredIssuer retired : snapshot.activeRetired()) {
+      issuers.add(describeIssuer(retired.keys(), retired.retiresAt()));
+    }
+    ctx.header("Cache-Control", "public, max-age=300");
+    ctx.status(HttpStatus.OK).json(Map.of("issuers", issuers));
+  }
+
+  private static Map<String, Object> describeIssuer(
+      IssuerKeyProvider.IssuerKeys keys, Instant retiresAt) throws CertificateEncodingException {
+    Map<String, Object> description = new HashMap<>();
+    description.put("fingerprint", keys.fingerprint());
+    description.put("subject", keys.certificate().getSubjectX500Principal().getName());
+    description.put("notAfter", keys.certificate().getNotAfter().toInstant().toString());
+    description.put("current", retiresAt == null);
+    if (retiresAt != null) {
+      description.put("retiresAt", retiresAt.toString());
+    }
+    description.put("certificate", KeyUtility.toPem(keys.certificate()));
+    String issuerParam = keys.fingerprint().replace('+', '-').replace('/', '_');
+    description.put("crl", "/api/pki/crl?issuer=" + issuerParam);
+    description.put("deltaCrl", "/api/pki/crl/delta?issuer=" + issuerParam);
+    return description;
+  }
+
+  private static void sendNotLoaded(Context ctx) {
+    ctx.header("Retry-After", "5");
+    ctx.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .json(Map.of("error", "Revocation information is loading; try again shortly."));
+  }
+
+  private static void sendCrl(Context ctx, CrlPublisher.PublishedCrl crl, String cacheControl) {
+    if (crl == null) {
+      ctx.status(HttpStatus.SERVICE_UNAVAILABLE).json(Map.of("error", "CRL not available"));
+      return;
+    }
+    ctx.header("ETag", crl.etag());
+    ctx.header("Cache-Control", cacheControl);
+    if (crl.etag().equals(ctx.header("If-None-Match"))) {
+      ctx.status(HttpStatus.NOT_MODIFIED);
+      return;
+    }
+    ctx.status(HttpStatus.OK).contentType("application/pkix-crl").result(crl.der());
+  }
+}
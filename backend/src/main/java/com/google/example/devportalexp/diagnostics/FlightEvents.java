@@ -0,0 +1,128 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for the hot paths of the service.
+ *
+ * <p>Each event is timed with begin() and end(), and its fields are filled in only if
+ * shouldCommit() says that the event is enabled and over its threshold. When an event is
+ * disabled, the JIT reduces all of that to nothing. Which events are enabled, and their
+ * thresholds, are set in the devportal.jfc profile; see {@link FlightRecording}.
+ */
+public final class FlightEvents {
+  private static final String CATEGORY = "Developer Portal";
+
+  private FlightEvents() {}
+
+  @Name("devportal.ApigeeCall")
+  @Label("Apigee Call")
+  @Description("A call to the Apigee management API")
+  @Category({CATEGORY, "Outbound"})
+  @StackTrace(false)
+  public static class ApigeeCall extends Event {
+    @Label("Method")
+    public String method;
+
+    @Label("Path Template")
+    public String pathTemplate;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Response Size")
+    @Description("The size of the response on the wire, compressed if Apigee compressed it")
+    @DataAmount
+    public long bytes;
+
+    @Label("Decoded Response Size")
+    @DataAmount
+    public long decodedBytes;
+
+    @Label("Inbound Request")
+    public String inbound;
+  }
+
+  @Name("devportal.CacheLoad")
+  @Label("Cache Load")
+  @Description("A miss in the Apigee data cache, and the load that filled it")
+  @Category({CATEGORY, "Cache"})
+  @StackTrace(false)
+  public static class CacheLoad extends Event {
+    @Label("Key")
+    public String key;
+
+    @Label("Loaded")
+    public boolean loaded;
+  }
+
+  @Name("devportal.JwtVerification")
+  @Label("JWT Verification")
+  @Description("Verification of a Firebase ID token at login")
+  @Category({CATEGORY, "Security"})
+  @StackTrace(false)
+  public static class JwtVerification extends Event {
+    @Label("Key ID")
+    public String keyId;
+
+    @Label("Verified")
+    public boolean verified;
+  }
+
+  @Name("devportal.CertificateSigning")
+  @Label("Certificate Signing")
+  @Description("Signing of a client certificate with the issuer key")
+  @Category({CATEGORY, "Security"})
+  @StackTrace(false)
+  public static class CertificateSigning extends Event {
+    @Label("Issuer Fingerprint")
+    public String issuerFingerprint;
+
+    @Label("Signed")
+    public boolean signed;
+  }
+
+  @Name("devportal.SessionLookup")
+  @Label("Session Lookup")
+  @Description("Lookup of the session for a request")
+  @Category({CATEGORY, "Security"})
+  @StackTrace(false)
+  public static class SessionLookup extends Event {
+    @Label("Outcome")
+    public String outcome;
+  }
+
+  @Name("devportal.StaticFile")
+  @Label("Static File")
+  @Description("A file of the web app served from the jar")
+  @Category({CATEGORY, "HTTP"})
+  @StackTrace(false)
+  public static class StaticFile extends Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Status")
+    public int status;
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.diagnostics;
+
+import com.google.example.devportalexp.AppUtils;
+import com.google.example.devportalexp.service.StateService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The always-on flight recording of the service.
+ *
+ * <p>The recording uses the JDK "default" profile, plus the settings for the {@link FlightEvents}
+ * from the devportal.jfc profile packaged in the jar. It keeps the last hour, up to 64 MB, in the
+ * repository on disk, and is dumped on demand through the admin routes, so that a misbehaving
+ * instance can be examined without restarting it. Set flightRecording to "off" to disable it.
+ */
+public class FlightRecording {
+  private static final Logger log = LoggerFactory.getLogger(FlightRecording.class);
+  private static final String PROFILE_RESOURCE = "jfr/devportal.jfc";
+  private static final Duration MAX_AGE = Duration.ofHours(1);
+  private static final long MAX_SIZE_BYTES = 64L * 1024 * 1024;
+  private static FlightRecording instance;
+
+  private final Recording recording;
+
+  public static synchronized FlightRecording getInstance() {
+    if (instance == null) {
+      instance = new FlightRecording(StateService.getInstance().getSettings());
+    }
+    return instance;
+  }
+
+  private FlightRecording(Map<String, Object> appSettings) {
+    Object configured = appSettings.get("flightRecording");
+    if (configured != null && "off".equalsIgnoreCase(configured.toString().trim())) {
+      log.info("Flight recording is off.");
+      recording = null;
+      return;
+    }
+    Recording started = null;
+    try {
+      started = new Recording(profileSettings());
+      started.setName("devportal");
+      started.setMaxAge(MAX_AGE);
+      started.setMaxSize(MAX_SIZE_BYTES);
+      started.setToDisk(true);
+      started.start();
+      log.info("Flight recording started, keeping the last {}", MAX_AGE);
+    } catch (IOException | ParseException | RuntimeException exc1) {
+      log.warn("Cannot start the flight recording", exc1);
+      if (started != null) {
+        started.close();
+      }
+      started = null;
+    }
+    recording = started;
+  }
+
+  /** The JDK default settings, overlaid with the settings for the service's own events. */
+  static Map<String, String> profileSettings() throws IOException, ParseException {
+    Map<String, String> settings =
+        new HashMap<>(Configuration.getConfiguration("default").getSettings());
+    try (InputStream profile = AppUtils.getResourceAsStream(PROFILE_RESOURCE)) {
+      if (profile == null) {
+        throw new IOException("missing resource " + PROFILE_RESOURCE);
+      }
+      try (Reader reader = new InputStreamReader(profile, StandardCharsets.UTF_8)) {
+        settings.putAll(Configuration.create(reader).getSettings());
+      }
+    }
+    return settings;
+  }
+
+  public boolean isRecording() {
+    return recording != null;
+  }
+
+  /**
+   * Writes what the recording holds now to a new temporary file. The caller must delete it.
+   *
+   * @throws IllegalStateException if flight recording is off.
+   */
+  public Path dump() throws IOException {
+    if (recording == null) {
+      throw new IllegalStateException("flight recording is off");
+    }
+    Path file = Files.createTempFile("devportal-", ".jfr");
+    try {
+      recording.dump(file);
+    } catch (IOException | RuntimeException exc1) {
+      Files.deleteIfExists(file);
+      throw exc1;
+    }
+    return file;
+  }
+}
@@ -0,0 +1,80 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.json;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.javalin.json.JavalinJackson;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * The one JSON mapper of the process.
+ *
+ * <p>Inbound request bodies, outgoing responses, payloads sent to Apigee, and the settings file
+ * all go through the same ObjectMapper, so there is one set of serializers to warm up and cache.
+ * The mapper writes compact output and leaves out null members, as Apigee expects. The Blackbird
+ * module replaces reflective property access with generated lambdas once a type has been seen.
+ * The streaming decoders of the Apigee responses use parsers from the same factory.
+ */
+public final class Json {
+  private static final ObjectMapper mapper =
+      JsonMapper.builder()
+          .addModule(new BlackbirdModule())
+          .disable(SerializationFeature.INDENT_OUTPUT)
+          .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+          .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+          .serializationInclusion(JsonInclude.Include.NON_NULL)
+          .build();
+
+  private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+  private Json() {}
+
+  public static ObjectMapper mapper() {
+    return mapper;
+  }
+
+  /** The mapper, for Javalin's ctx.json() and ctx.bodyAsClass(). */
+  public static JavalinJackson javalinMapper(boolean useVirtualThreads) {
+    return new JavalinJackson(mapper, useVirtualThreads);
+  }
+
+  /** Serializes a value straight to UTF-8 bytes, without an intermediate string. */
+  public static byte[] toBytes(Object value) throws IOException {
+    return mapper.writeValueAsBytes(value);
+  }
+
+  public static Map<String, Object> readMap(String json) throws IOException {
+    return mapper.readValue(json, MAP_TYPE);
+  }
+
+  public static Map<String, Object> readMap(InputStream json) throws IOException {
+    return mapper.readValue(json, MAP_TYPE);
+  }
+
+  /** A streaming parser over the given bytes; the caller closes it. */
+  public static JsonParser parser(InputStream json) throws IOException {
+    return mapper.createParser(json);
+  }
+}
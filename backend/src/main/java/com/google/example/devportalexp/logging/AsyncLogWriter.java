@@ -0,0 +1,258 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.logging;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.event.Level;
+
+/**
+ * Writes log records to standard output from a single background thread.
+ *
+ * <p>Request threads put records into a ring buffer and return; they never wait on the console,
+ * or on each other. A producer claims a slot with one compare-and-set on the sequence counter,
+ * and fills it. The writer thread takes the slots in order, formats them, and flushes whenever it
+ * has caught up. When the buffer is full, records are dropped rather than making the request
+ * wait; the writer reports how many, once it catches up.
+ *
+ * <p>In the json format, each record is one line, with the fields that Cloud Logging reads from
+ * the output of a Cloud Run service: severity, message, and time.
+ */
+final class AsyncLogWriter {
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final DateTimeFormatter TEXT_TIME =
+      DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+  /** One log record, with its message already formatted. */
+  record LogRecord(
+      long epochMillis,
+      Level level,
+      String logger,
+      String thread,
+      String message,
+      Throwable throwable) {}
+
+  private final AtomicReferenceArray<LogRecord> slots;
+  private final int mask;
+  private final AtomicLong claimed = new AtomicLong();
+  private final LongAdder dropped = new LongAdder();
+  private final LogConfig.Format format;
+  private final Writer out;
+  private final Thread writerThread;
+  // The next sequence the writer will take; written only by the writer thread.
+  private volatile long consumed;
+  private volatile boolean writerParked;
+  private volatile boolean closing;
+  private long droppedReported;
+
+  AsyncLogWriter(int requestedCapacity, LogConfig.Format format) {
+    int capacity = Integer.highestOneBit(Math.max(requestedCapacity, 64) - 1) << 1;
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.mask = capacity - 1;
+    this.format = format;
+    this.out =
+        new BufferedWriter(
+            new OutputStreamWriter(
+                new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8),
+            64 * 1024);
+    this.writerThread = new Thread(this::run, "log-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(this::close, "log-writer-shutdown"));
+  }
+
+  /** Queues a record; returns false, and counts it as dropped, if the buffer is full. */
+  boolean offer(LogRecord record) {
+    long sequence;
+    do {
+      sequence = claimed.get();
+      if (sequence - consumed > mask) {
+        dropped.increment();
+        return false;
+      }
+    } while (!claimed.compareAndSet(sequence, sequence + 1));
+    slots.set((int) sequence & mask, record);
+    if (writerParked) {
+      LockSupport.unpark(writerThread);
+    }
+    return true;
+  }
+
+  long droppedCount() {
+    return dropped.sum();
+  }
+
+  private void run() {
+    long next = 0;
+    while (true) {
+      int index = (int) next & mask;
+      LogRecord record = slots.get(index);
+      if (record != null) {
+        slots.set(index, null);
+        next++;
+        consumed = next;
+        write(record);
+        continue;
+      }
+      // Caught up, or a producer has claimed the slot and not yet filled it.
+      reportDropped();
+      flush();
+      if (closing && claimed.get() == next) {
+        return;
+      }
+      writerParked = true;
+      if (slots.get(index) == null && !closing) {
+        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+      }
+      writerParked = false;
+    }
+  }
+
+  private void close() {
+    closing = true;
+    LockSupport.unpark(writerThread);
+    try {
+      writerThread.join(TimeUnit.SECONDS.toMillis(2));
+    } catch (InterruptedException exc1) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void reportDropped() {
+    long total = dropped.sum();
+    if (total != droppedReported) {
+      write(
+          new LogRecord(
+              System.currentTimeMillis(),
+              Level.WARN,
+              AsyncLogWriter.class.getName(),
+              writerThread.getName(),
+              String.format(
+                  "Dropped %d log records; the log buffer was full", total - droppedReported),
+              null));
+      droppedReported = total;
+    }
+  }
+
+  private void write(LogRecord record) {
+    try {
+      if (format == LogConfig.Format.JSON) {
+        writeJson(record);
+      } else {
+        writeText(record);
+      }
+    } catch (IOException | RuntimeException exc1) {
+      // Nowhere else to report it.
+      System.err.println("Cannot write a log record: " + exc1);
+    }
+  }
+
+  private void writeText(LogRecord record) throws IOException {
+    out.write(TEXT_TIME.format(Instant.ofEpochMilli(record.epochMillis())));
+    out.write(' ');
+    out.write(record.level().name());
+    out.write(" [");
+    out.write(record.thread());
+    out.write("] ");
+    out.write(record.logger());
+    out.write(" - ");
+    out.write(record.message());
+    out.write('\n');
+    if (record.throwable() != null) {
+      out.write(stackTrace(record.throwable()));
+    }
+  }
+
+  private void writeJson(LogRecord record) throws IOException {
+    out.write("{\"severity\":\"");
+    out.write(severity(record.level()));
+    out.write("\",\"time\":\"");
+    out.write(Instant.ofEpochMilli(record.epochMillis()).toString());
+    out.write("\",\"logger\":");
+    writeJsonString(record.logger());
+    out.write(",\"thread\":");
+    writeJsonString(record.thread());
+    out.write(",\"message\":");
+    // Cloud Error Reporting finds stack traces at the end of the message.
+    writeJsonString(
+        (record.throwable() == null)
+            ? record.message()
+            : record.message() + "\n" + stackTrace(record.throwable()));
+    out.write("}\n");
+  }
+
+  private static String severity(Level level) {
+    return switch (level) {
+      case ERROR -> "ERROR";
+      case WARN -> "WARNING";
+      case INFO -> "INFO";
+      case DEBUG, TRACE -> "DEBUG";
+    };
+  }
+
+  private void writeJsonString(String value) throws IOException {
+    out.write('"');
+    if (value != null) {
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        switch (c) {
+          case '"' -> out.write("\\\"");
+          case '\\' -> out.write("\\\\");
+          case '\n' -> out.write("\\n");
+          case '\r' -> out.write("\\r");
+          case '\t' -> out.write("\\t");
+          default -> {
+            if (c < 0x20) {
+              out.write(String.format("\\u%04x", (int) c));
+            } else {
+              out.write(c);
+            }
+          }
+        }
+      }
+    }
+    out.write('"');
+  }
+
+  private static String stackTrace(Throwable throwable) {
+    StringWriter trace = new StringWriter();
+    throwable.printStackTrace(new PrintWriter(trace));
+    return trace.toString();
+  }
+
+  private void flush() {
+    try {
+      out.flush();
+    } catch (IOException exc1) {
+      System.err.println("Cannot flush the log: " + exc1);
+    }
+  }
+}
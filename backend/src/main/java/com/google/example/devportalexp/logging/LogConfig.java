@@ -0,0 +1,154 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.logging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+import org.slf4j.event.Level;
+
+/**
+ * The logging configuration: the level and sampling rate of each subsystem, and the output
+ * format.
+ *
+ * <p>A subsystem is a logger name prefix, like com.google.example.devportalexp.controller or
+ * org.eclipse.jetty; the longest prefix that matches a logger wins. The defaults are in
+ * conf/logging.properties, in the jar. Environment variables override them, since logging starts
+ * before the settings are loaded:
+ *
+ * <ul>
+ *   <li>LOG_LEVEL: the level of loggers that match no prefix.
+ *   <li>LOG_LEVELS: levels by prefix, like {@code io.javalin=debug,org.eclipse.jetty=warn}.
+ *   <li>LOG_SAMPLING: sampling by prefix, like {@code devportal.requests=100}, to keep one record
+ *       in 100 below WARN.
+ *   <li>LOG_FORMAT: json (the default, for Cloud Logging) or text.
+ * </ul>
+ */
+final class LogConfig {
+  private static final String RESOURCE = "/resources/conf/logging.properties";
+  static final int OFF = Integer.MAX_VALUE;
+
+  enum Format {
+    JSON,
+    TEXT
+  }
+
+  private final Map<String, Integer> levels = new HashMap<>();
+  private final Map<String, Integer> sampling = new HashMap<>();
+  private int rootLevel = Level.INFO.toInt();
+  private Format format = Format.JSON;
+  private int bufferSize = 8192;
+
+  static LogConfig load() {
+    LogConfig config = new LogConfig();
+    Properties defaults = new Properties();
+    try (InputStream input = LogConfig.class.getResourceAsStream(RESOURCE)) {
+      if (input != null) {
+        defaults.load(new InputStreamReader(input, StandardCharsets.UTF_8));
+      }
+    } catch (IOException exc1) {
+      // Logging is not running yet; fall back to the built-in defaults.
+      System.err.println("Cannot read " + RESOURCE + ": " + exc1);
+    }
+    defaults.stringPropertyNames().forEach(key -> config.apply(key, defaults.getProperty(key)));
+
+    applyEnvironment("LOG_LEVEL", value -> config.apply("level", value));
+    applyEnvironment("LOG_LEVELS", value -> config.applyList("level.", value));
+    applyEnvironment("LOG_SAMPLING", value -> config.applyList("sample.", value));
+    applyEnvironment("LOG_FORMAT", value -> config.apply("format", value));
+    return config;
+  }
+
+  private static void applyEnvironment(String name, Consumer<String> action) {
+    String value = System.getenv(name);
+    if (value != null && !value.isBlank()) {
+      action.accept(value.trim());
+    }
+  }
+
+  private void applyList(String keyPrefix, String list) {
+    for (String item : list.split(",")) {
+      int ix = item.indexOf('=');
+      if (ix > 0) {
+        apply(keyPrefix + item.substring(0, ix).trim(), item.substring(ix + 1).trim());
+      }
+    }
+  }
+
+  private void apply(String key, String value) {
+    try {
+      if (key.equals("level")) {
+        rootLevel = parseLevel(value);
+      } else if (key.startsWith("level.")) {
+        levels.put(key.substring("level.".length()), parseLevel(value));
+      } else if (key.startsWith("sample.")) {
+        sampling.put(key.substring("sample.".length()), Math.max(1, Integer.parseInt(value)));
+      } else if (key.equals("format")) {
+        format = Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+      } else if (key.equals("bufferSize")) {
+        bufferSize = Integer.parseInt(value.trim());
+      }
+    } catch (IllegalArgumentException exc1) {
+      System.err.printf("Ignoring invalid logging setting %s=%s%n", key, value);
+    }
+  }
+
+  private static int parseLevel(String value) {
+    String name = value.trim().toUpperCase(Locale.ROOT);
+    return name.equals("OFF") ? OFF : Level.valueOf(name).toInt();
+  }
+
+  /** The lowest level logged for the given logger, as from {@link Level#toInt()}. */
+  int levelFor(String loggerName) {
+    Integer level = longestPrefixMatch(levels, loggerName);
+    return (level == null) ? rootLevel : level;
+  }
+
+  /** For the given logger, keep one record in this many below WARN. */
+  int sampleEveryFor(String loggerName) {
+    Integer every = longestPrefixMatch(sampling, loggerName);
+    return (every == null) ? 1 : every;
+  }
+
+  private static Integer longestPrefixMatch(Map<String, Integer> byPrefix, String loggerName) {
+    String name = loggerName;
+    while (true) {
+      Integer value = byPrefix.get(name);
+      if (value != null) {
+        return value;
+      }
+      int ix = name.lastIndexOf('.');
+      if (ix < 0) {
+        return null;
+      }
+      name = name.substring(0, ix);
+    }
+  }
+
+  Format format() {
+    return format;
+  }
+
+  int bufferSize() {
+    return bufferSize;
+  }
+}
@@ -0,0 +1,79 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.IMarkerFactory;
+import org.slf4j.Logger;
+import org.slf4j.helpers.BasicMDCAdapter;
+import org.slf4j.helpers.BasicMarkerFactory;
+import org.slf4j.spi.MDCAdapter;
+import org.slf4j.spi.SLF4JServiceProvider;
+
+/**
+ * The SLF4J provider for the service: every logger, ours and those of Javalin and Jetty, writes
+ * through one {@link AsyncLogWriter}, configured by {@link LogConfig}. It is registered for the
+ * ServiceLoader in src/main/services, which the build copies to META-INF/services.
+ */
+public final class LogServiceProvider implements SLF4JServiceProvider {
+  private static final String REQUESTED_API_VERSION = "2.0.99";
+  private static volatile LogServiceProvider initialized;
+
+  private ILoggerFactory loggerFactory;
+  private IMarkerFactory markerFactory;
+  private MDCAdapter mdcAdapter;
+  private AsyncLogWriter writer;
+
+  /** The number of records dropped because the buffer was full; 0 if this is not the provider. */
+  public static long droppedRecords() {
+    LogServiceProvider provider = initialized;
+    return (provider == null) ? 0 : provider.writer.droppedCount();
+  }
+
+  @Override
+  public void initialize() {
+    LogConfig config = LogConfig.load();
+    writer = new AsyncLogWriter(config.bufferSize(), config.format());
+    Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    loggerFactory =
+        name -> loggers.computeIfAbsent(name, key -> new PipelineLogger(key, config, writer));
+    markerFactory = new BasicMarkerFactory();
+    mdcAdapter = new BasicMDCAdapter();
+    initialized = this;
+  }
+
+  @Override
+  public ILoggerFactory getLoggerFactory() {
+    return loggerFactory;
+  }
+
+  @Override
+  public IMarkerFactory getMarkerFactory() {
+    return markerFactory;
+  }
+
+  @Override
+  public MDCAdapter getMDCAdapter() {
+    return mdcAdapter;
+  }
+
+  @Override
+  public String getRequestedApiVersion() {
+    return REQUESTED_API_VERSION;
+  }
+}
@@ -0,0 +1,98 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Marker;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.LegacyAbstractLogger;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * A logger that formats its messages on the calling thread, and hands them to the {@link
+ * AsyncLogWriter}. Its level and sampling rate are fixed when it is created, from the {@link
+ * LogConfig}, so that checking whether a level is enabled is one comparison.
+ */
+final class PipelineLogger extends LegacyAbstractLogger {
+  private static final long serialVersionUID = 1L;
+
+  private final transient AsyncLogWriter writer;
+  private final int level;
+  private final int sampleEvery;
+  private final AtomicLong sampled = new AtomicLong();
+
+  PipelineLogger(String name, LogConfig config, AsyncLogWriter writer) {
+    this.name = name;
+    this.writer = writer;
+    this.level = config.levelFor(name);
+    this.sampleEvery = config.sampleEveryFor(name);
+  }
+
+  @Override
+  public boolean isTraceEnabled() {
+    return level <= Level.TRACE.toInt();
+  }
+
+  @Override
+  public boolean isDebugEnabled() {
+    return level <= Level.DEBUG.toInt();
+  }
+
+  @Override
+  public boolean isInfoEnabled() {
+    return level <= Level.INFO.toInt();
+  }
+
+  @Override
+  public boolean isWarnEnabled() {
+    return level <= Level.WARN.toInt();
+  }
+
+  @Override
+  public boolean isErrorEnabled() {
+    return level <= Level.ERROR.toInt();
+  }
+
+  @Override
+  protected String getFullyQualifiedCallerName() {
+    return null;
+  }
+
+  @Override
+  protected void handleNormalizedLoggingCall(
+      Level recordLevel,
+      Marker marker,
+      String messagePattern,
+      Object[] arguments,
+      Throwable throwable) {
+    // Warnings and errors are never sampled away.
+    if (sampleEvery > 1
+        && recordLevel.toInt() < Level.WARN.toInt()
+        && sampled.getAndIncrement() % sampleEvery != 0) {
+      return;
+    }
+    Thread thread = Thread.currentThread();
+    String threadName = thread.getName();
+    writer.offer(
+        new AsyncLogWriter.LogRecord(
+            System.currentTimeMillis(),
+            recordLevel,
+            name,
+            threadName.isEmpty() ? "virtual-" + thread.threadId() : threadName,
+            MessageFormatter.basicArrayFormat(messagePattern, arguments),
+            throwable));
+  }
+}
@@ -0,0 +1,249 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The process-wide set of metrics, rendered for scraping in the Prometheus text format.
+ *
+ * <p>Metrics are grouped in families: a name, a type, and the names of its labels. Each distinct
+ * set of label values is a series. Counters are LongAdders and histograms are {@link Histogram}s,
+ * so recording never takes a lock. Gauges, and counters kept elsewhere (like the statistics of a
+ * Caffeine cache), are registered as callbacks that are read only when the metrics are scraped.
+ *
+ * <p>Label values must come from a small, fixed set, like route templates and status codes;
+ * never developer emails, app names, or other unbounded values.
+ */
+public final class MetricsRegistry {
+  private static final MetricsRegistry instance = new MetricsRegistry();
+
+  // Bucket bounds for the exported histograms, in seconds.
+  private static final double[] EXPORTED_BOUNDS_SECONDS = {
+    0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+  };
+
+  enum Type {
+    COUNTER("counter"),
+    GAUGE("gauge"),
+    HISTOGRAM("histogram");
+
+    final String exposition;
+
+    Type(String exposition) {
+      this.exposition = exposition;
+    }
+  }
+
+  /** A named metric with labels. Look up a series with {@link #labels}. */
+  public static final class Family<T> {
+    private final String name;
+    private final String help;
+    private final Type type;
+    private final String[] labelNames;
+    private final Function<List<String>, T> factory;
+    private final Map<List<String>, T> series = new ConcurrentHashMap<>();
+
+    private Family(
+        String name, String help, Type type, String[] labelNames, Function<List<String>, T> factory) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+      this.labelNames = labelNames;
+      this.factory = factory;
+    }
+
+    /** The series for the given label values, created on first use. */
+    public T labels(String... labelValues) {
+      if (labelValues.length != labelNames.length) {
+        throw new IllegalArgumentException(
+            String.format("%s takes %d label values", name, labelNames.length));
+      }
+      List<String> key = Arrays.asList(labelValues);
+      T existing = series.get(key);
+      return (existing != null) ? existing : series.computeIfAbsent(key, factory);
+    }
+
+    /** Registers a series whose value is read, when scraped, from the given callback. */
+    public void register(Supplier<? extends Number> callback, String... labelValues) {
+      series.put(Arrays.asList(labelValues), castCallback(callback));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T castCallback(Supplier<? extends Number> callback) {
+      return (T) callback;
+    }
+  }
+
+  private final Map<String, Family<?>> families = new ConcurrentHashMap<>();
+
+  public static MetricsRegistry getInstance() {
+    return instance;
+  }
+
+  private MetricsRegistry() {}
+
+  public Family<LongAdder> counter(String name, String help, String... labelNames) {
+    return family(name, help, Type.COUNTER, labelNames, labels -> new LongAdder());
+  }
+
+  public Family<Histogram> histogram(String name, String help, String... labelNames) {
+    return family(name, help, Type.HISTOGRAM, labelNames, labels -> new Histogram());
+  }
+
+  /** A family of counters whose values are read from callbacks. */
+  public Family<Supplier<? extends Number>> counterCallback(
+      String name, String help, String... labelNames) {
+    return family(name, help, Type.COUNTER, labelNames, labels -> null);
+  }
+
+  /** A family of gauges whose values are read from callbacks. */
+  public Family<Supplier<? extends Number>> gauge(String name, String help, String... labelNames) {
+    return family(name, help, Type.GAUGE, labelNames, labels -> null);
+  }
+
+  /**
+   * Reports the hit, miss, and eviction counts, and the size, of a Caffeine cache. The cache must
+   * be built with recordStats().
+   */
+  public void registerCache(String cacheName, Cache<?, ?> cache) {
+    Family<Supplier<? extends Number>> requests =
+        counterCallback(
+            "devportal_cache_requests_total", "Cache lookups, by result.", "cache", "result");
+    requests.register(() -> cache.stats().hitCount(), cacheName, "hit");
+    requests.register(() -> cache.stats().missCount(), cacheName, "miss");
+    counterCallback("devportal_cache_evictions_total", "Cache evictions.", "cache")
+        .register(() -> cache.stats().evictionCount(), cacheName);
+    counterCallback(
+            "devportal_cache_load_failures_total", "Cache loads that failed.", "cache")
+        .register(() -> cache.stats().loadFailureCount(), cacheName);
+    gauge("devportal_cache_size", "Approximate number of entries in the cache.", "cache")
+        .register(cache::estimatedSize, cacheName);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Family<T> family(
+      String name, String help, Type type, String[] labelNames, Function<List<String>, T> factory) {
+    Family<?> family =
+        families.computeIfAbsent(
+            name, key -> new Family<>(name, help, type, labelNames, factory));
+    if (family.type != type || !Arrays.equals(family.labelNames, labelNames)) {
+      throw new IllegalArgumentException("metric " + name + " is already registered differently");
+    }
+    return (Family<T>) family;
+  }
+
+  /** Renders every metric in the Prometheus text exposition format, version 0.0.4. */
+  public String scrape() {
+    StringBuilder out = new StringBuilder(8192);
+    List<Family<?>> sorted = new ArrayList<>(families.values());
+    sorted.sort(Comparator.comparing(family -> family.name));
+    for (Family<?> family : sorted) {
+      out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+      out.append("# TYPE ").append(family.name).append(' ').append(family.type.exposition);
+      out.append('\n');
+      List<Map.Entry<List<String>, ?>> entries = new ArrayList<>(family.series.entrySet());
+      entries.sort(Comparator.comparing(entry -> String.join("\u0000", entry.getKey())));
+      for (Map.Entry<List<String>, ?> entry : entries) {
+        String labels = renderLabels(family.labelNames, entry.getKey());
+        Object value = entry.getValue();
+        if (value instanceof Histogram histogram) {
+          renderHistogram(out, family.name, family.labelNames, entry.getKey(), histogram);
+        } else if (value instanceof LongAdder adder) {
+          appendSample(out, family.name, labels, adder.sum());
+        } else if (value instanceof Supplier<?> callback) {
+          Object sample = callback.get();
+          if (sample instanceof Number number) {
+            appendSample(out, family.name, labels, number.doubleValue());
+          }
+        }
+      }
+    }
+    return out.toString();
+  }
+
+  private static void renderHistogram(
+      StringBuilder out,
+      String name,
+      String[] labelNames,
+      List<String> labelValues,
+      Histogram histogram) {
+    Histogram.Snapshot snapshot = histogram.snapshot();
+    String[] bucketLabelNames = Arrays.copyOf(labelNames, labelNames.length + 1);
+    bucketLabelNames[labelNames.length] = "le";
+    List<String> bucketLabelValues = new ArrayList<>(labelValues);
+    bucketLabelValues.add("");
+    for (double bound : EXPORTED_BOUNDS_SECONDS) {
+      bucketLabelValues.set(labelValues.size(), formatDouble(bound));
+      appendSample(
+          out,
+          name + "_bucket",
+          renderLabels(bucketLabelNames, bucketLabelValues),
+          snapshot.countBelow(Math.round(bound * 1_000_000)));
+    }
+    bucketLabelValues.set(labelValues.size(), "+Inf");
+    appendSample(
+        out, name + "_bucket", renderLabels(bucketLabelNames, bucketLabelValues), snapshot.count());
+    String labels = renderLabels(labelNames, labelValues);
+    appendSample(out, name + "_sum", labels, snapshot.sumMicros() / 1_000_000.0);
+    appendSample(out, name + "_count", labels, snapshot.count());
+  }
+
+  private static String renderLabels(String[] labelNames, List<String> labelValues) {
+    if (labelNames.length == 0) {
+      return "";
+    }
+    StringBuilder labels = new StringBuilder("{");
+    for (int i = 0; i < labelNames.length; i++) {
+      if (i > 0) {
+        labels.append(',');
+      }
+      labels.append(labelNames[i]).append("=\"");
+      String value = labelValues.get(i);
+      for (int j = 0; j < value.length(); j++) {
+        char c = value.charAt(j);
+        switch (c) {
+          case '\\' -> labels.append("\\\\");
+          case '"' -> labels.append("\\\"");
+          case '\n' -> labels.append("\\n");
+          default -> labels.append(c);
+        }
+      }
+      labels.append('"');
+    }
+    return labels.append('}').toString();
+  }
+
+  private static void appendSample(StringBuilder out, String name, String labels, double value) {
+    out.append(name).append(labels).append(' ').append(formatDouble(value)).append('\n');
+  }
+
+  private static String formatDouble(double value) {
+    if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+}
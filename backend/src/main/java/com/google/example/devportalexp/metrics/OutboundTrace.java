@@ -0,0 +1,172 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outbound calls made while handling one inbound request.
+ *
+ * <p>The trace is bound to the thread that handles the request, from the first before-filter to
+ * the last after-filter. Handlers and cache loaders run on that thread, so each outbound call can
+ * be attributed to the request that caused it without passing the trace around. A handler that
+ * fans out to other threads attaches its trace to them. Calls made on other threads, like the
+ * background rebuild of the certificate index, have no trace.
+ */
+public final class OutboundTrace {
+  private static final ThreadLocal<OutboundTrace> current = new ThreadLocal<>();
+
+  /**
+   * One outbound call, begun at startNanos, in System.nanoTime() terms. The bytes are those of the
+   * response as it came over the wire; the decoded bytes are the same once decompressed, and equal
+   * to them if the response was not compressed.
+   */
+  public record Call(
+      String method,
+      String pathTemplate,
+      String status,
+      long bytes,
+      long decodedBytes,
+      long startNanos,
+      long durationNanos) {
+    public double durationMillis() {
+      return durationNanos / 1_000_000.0;
+    }
+  }
+
+  private final String inbound;
+  private final List<Call> calls = Collections.synchronizedList(new ArrayList<>());
+
+  private OutboundTrace(String inbound) {
+    this.inbound = inbound;
+  }
+
+  /** Starts a trace for the inbound request handled on this thread. */
+  public static OutboundTrace begin(String inbound) {
+    OutboundTrace trace = new OutboundTrace(inbound);
+    current.set(trace);
+    return trace;
+  }
+
+  /** The trace on this thread, or null if there is none. */
+  public static OutboundTrace current() {
+    return current.get();
+  }
+
+  /**
+   * Binds a trace, from {@link #current} on the thread of the request, to this thread, which is
+   * doing work for the same request; or unbinds it, if the trace is null.
+   */
+  public static void attach(OutboundTrace trace) {
+    if (trace == null) {
+      current.remove();
+    } else {
+      current.set(trace);
+    }
+  }
+
+  /** Ends the trace on this thread, and returns it; null if there is none. */
+  public static OutboundTrace end() {
+    OutboundTrace trace = current.get();
+    current.remove();
+    return trace;
+  }
+
+  /** A description of the inbound request on this thread, for log messages. */
+  public static String describeCurrent() {
+    OutboundTrace trace = current.get();
+    return (trace == null) ? "background work" : trace.inbound;
+  }
+
+  /** Adds a call to the trace on this thread, if there is one. */
+  public static void record(Call call) {
+    OutboundTrace trace = current.get();
+    if (trace != null) {
+      trace.calls.add(call);
+    }
+  }
+
+  public String inbound() {
+    return inbound;
+  }
+
+  public List<Call> calls() {
+    return calls;
+  }
+
+  public int callCount() {
+    return calls.size();
+  }
+
+  /**
+   * The time during which at least one call was in flight: the sum of the durations of calls made
+   * one after another, but only the span of calls made at the same time, as by a handler that fans
+   * out.
+   */
+  public double elapsedMillis() {
+    List<Call> byStart;
+    synchronized (calls) {
+      byStart = new ArrayList<>(calls);
+    }
+    byStart.sort(Comparator.comparingLong(Call::startNanos));
+    long elapsed = 0;
+    long spanStart = 0;
+    long spanEnd = 0;
+    boolean inSpan = false;
+    for (Call call : byStart) {
+      long end = call.startNanos() + call.durationNanos();
+      if (inSpan && call.startNanos() <= spanEnd) {
+        spanEnd = Math.max(spanEnd, end);
+      } else {
+        if (inSpan) {
+          elapsed += spanEnd - spanStart;
+        }
+        spanStart = call.startNanos();
+        spanEnd = end;
+        inSpan = true;
+      }
+    }
+    if (inSpan) {
+      elapsed += spanEnd - spanStart;
+    }
+    return elapsed / 1_000_000.0;
+  }
+
+  /** The calls, one per line, for a log message. */
+  public String describeCalls() {
+    StringBuilder description = new StringBuilder();
+    List<Call> snapshot;
+    synchronized (calls) {
+      snapshot = new ArrayList<>(calls);
+    }
+    for (Call call : snapshot) {
+      description.append(
+          String.format(
+              "%n  %s %s -> %s, %d bytes (%d decoded), %d ms",
+              call.method(),
+              call.pathTemplate(),
+              call.status(),
+              call.bytes(),
+              call.decodedBytes(),
+              TimeUnit.NANOSECONDS.toMillis(call.durationNanos())));
+    }
+    return description.toString();
+  }
+}
@@ -0,0 +1,36 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.model;
+
+import com.google.example.devportalexp.model.apigee.DeveloperApp;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the portal shows on its first pages after sign-in, as returned by GET /api/me/bootstrap:
+ * the build, the developer, their apps with details, and the API products. A section that could
+ * not be loaded is left out, and its status and error are given under errors, by section name.
+ */
+public record Bootstrap(
+    Map<String, String> version,
+    DeveloperDetails me,
+    List<DeveloperApp> apps,
+    List<ApiProduct> apiProducts,
+    Map<String, SectionError> errors) {
+
+  /** Why a section is missing: the HTTP status it would have had on its own, and a message. */
+  public record SectionError(int status, String error) {}
+}
@@ -0,0 +1,59 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.model;
+
+import com.google.example.devportalexp.model.apigee.Attribute;
+import com.google.example.devportalexp.model.apigee.Developer;
+import java.util.List;
+
+/**
+ * The developer, as the portal shows it at GET /api/me: the details from Apigee, with the
+ * certificates separated from the other attributes.
+ */
+public record DeveloperDetails(
+    String email,
+    String firstName,
+    String lastName,
+    String userName,
+    String developerId,
+    String organizationName,
+    String status,
+    String createdAt,
+    String lastModifiedAt,
+    List<String> apps,
+    List<Attribute> attribute,
+    List<Certificate> certificates) {
+
+  /** A registered certificate: the name of its fingerprint attribute, and the fingerprint. */
+  public record Certificate(String id, String fingerprint) {}
+
+  public static DeveloperDetails of(
+      Developer developer, List<Attribute> attributes, List<Certificate> certificates) {
+    return new DeveloperDetails(
+        developer.email(),
+        developer.firstName(),
+        developer.lastName(),
+        developer.userName(),
+        developer.developerId(),
+        developer.organizationName(),
+        developer.status(),
+        developer.createdAt(),
+        developer.lastModifiedAt(),
+        developer.apps(),
+        attributes,
+        certificates);
+  }
+}
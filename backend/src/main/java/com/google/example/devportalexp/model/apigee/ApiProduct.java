@@ -0,0 +1,53 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.model.apigee;
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/** An API product, as Apigee describes it. */
+public record ApiProduct(
+    String name, String displayName, String description, List<Attribute> attributes) {
+
+  public static ApiProduct read(JsonParser in) throws IOException {
+    String name = null;
+    String displayName = null;
+    String description = null;
+    List<Attribute> attributes = Collections.emptyList();
+    for (String field = in.nextFieldName(); field != null; field = in.nextFieldName()) {
+      in.nextToken();
+      switch (field) {
+        case "name" -> name = ApigeeJson.string(in);
+        case "displayName" -> displayName = ApigeeJson.string(in);
+        case "description" -> description = ApigeeJson.string(in);
+        case "attributes" -> attributes = ApigeeJson.list(in, Attribute::read);
+        default -> in.skipChildren();
+      }
+    }
+    return new ApiProduct(name, displayName, description, attributes);
+  }
+
+  /** The value of the named attribute, if the product has it. */
+  public Optional<String> attribute(String attributeName) {
+    return attributes.stream()
+        .filter(attribute -> attributeName.equals(attribute.name()) && attribute.value() != null)
+        .map(Attribute::value)
+        .findFirst();
+  }
+}
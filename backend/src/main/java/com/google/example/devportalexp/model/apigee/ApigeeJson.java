@@ -0,0 +1,208 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.model.apigee;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.example.devportalexp.json.Json;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming decoders for the responses of the Apigee management API.
+ *
+ * <p>Each decoder reads the tokens of a response as they arrive, keeps the fields that the portal
+ * uses, and skips the rest without building anything for them. Neither the body as a string nor a
+ * tree of maps is ever held in memory. Unknown and unexpected fields are skipped, so that an error
+ * response, which has none of the expected fields, decodes to an empty value rather than failing.
+ */
+public final class ApigeeJson {
+
+  /**
+   * Reads one value from the stream. The parser is on the first token of the value when the
+   * decoder is called, and must be left on its last token.
+   */
+  @FunctionalInterface
+  public interface Decoder<T> {
+    T read(JsonParser in) throws IOException;
+  }
+
+  // One instance of each decoder that callers pass around. Every evaluation of a method reference
+  // may make a new object, so callers that compare decoders, to share a read between them, must
+  // use these rather than writing the reference themselves.
+  public static final Decoder<Developer> DEVELOPER = Developer::read;
+  public static final Decoder<DeveloperApp> DEVELOPER_APP = DeveloperApp::read;
+  public static final Decoder<List<Attribute>> ATTRIBUTE_LIST = ApigeeJson::attributeList;
+  public static final Decoder<List<ApiProduct>> API_PRODUCT_LIST = ApigeeJson::apiProductList;
+  public static final Decoder<ApiProduct> API_PRODUCT = ApigeeJson::apiProduct;
+  public static final Decoder<List<String>> APP_ID_LIST = ApigeeJson::appIdList;
+  public static final Decoder<List<DeveloperApp>> APP_LIST = ApigeeJson::appList;
+  public static final Decoder<List<String>> DEVELOPER_EMAIL_LIST = ApigeeJson::developerEmailList;
+  public static final Decoder<Void> DISCARD = ApigeeJson::discard;
+
+  private ApigeeJson() {}
+
+  /**
+   * Decodes a response body.
+   *
+   * @return the decoded value, or null if the body is empty.
+   */
+  public static <T> T decode(InputStream body, Decoder<T> decoder) throws IOException {
+    try (JsonParser in = Json.parser(body)) {
+      if (in.nextToken() == null) {
+        return null;
+      }
+      return decoder.read(in);
+    }
+  }
+
+  /** Skips the whole response. */
+  public static Void discard(JsonParser in) throws IOException {
+    in.skipChildren();
+    return null;
+  }
+
+  /** The message of an error, from {"error": {"code": ..., "message": ...}}. */
+  public static String errorMessage(JsonParser in) throws IOException {
+    if (in.currentToken() != JsonToken.START_OBJECT) {
+      in.skipChildren();
+      return null;
+    }
+    String message = null;
+    for (String field = in.nextFieldName(); field != null; field = in.nextFieldName()) {
+      if (in.nextToken() == JsonToken.START_OBJECT && field.equals("error")) {
+        for (String inner = in.nextFieldName(); inner != null; inner = in.nextFieldName()) {
+          in.nextToken();
+          if (inner.equals("message")) {
+            message = string(in);
+          } else {
+            in.skipChildren();
+          }
+        }
+      } else {
+        in.skipChildren();
+      }
+    }
+    return message;
+  }
+
+  /** {"attribute": [...]}, as from /developers/{developer}/attributes. */
+  public static List<Attribute> attributeList(JsonParser in) throws IOException {
+    return listMember(in, "attribute", Attribute::read);
+  }
+
+  /** {"apiProduct": [...]}, as from /apiproducts. */
+  public static List<ApiProduct> apiProductList(JsonParser in) throws IOException {
+    return listMember(in, "apiProduct", ApiProduct::read);
+  }
+
+  /** One API product, as from /apiproducts/{apiproduct}. */
+  public static ApiProduct apiProduct(JsonParser in) throws IOException {
+    return ApiProduct.read(in);
+  }
+
+  /** The IDs of the apps in {"app": [{"appId": ...}]}, as from /developers/{developer}/apps. */
+  public static List<String> appIdList(JsonParser in) throws IOException {
+    return listMember(
+        in,
+        "app",
+        item -> {
+          if (item.currentToken() != JsonToken.START_OBJECT) {
+            return string(item);
+          }
+          String appId = null;
+          for (String field = item.nextFieldName(); field != null; field = item.nextFieldName()) {
+            item.nextToken();
+            if (field.equals("appId")) {
+              appId = string(item);
+            } else {
+              item.skipChildren();
+            }
+          }
+          return appId;
+        });
+  }
+
+  /** {"app": [...]}, as from /developers/{developer}/apps?expand=true. */
+  public static List<DeveloperApp> appList(JsonParser in) throws IOException {
+    return listMember(in, "app", DeveloperApp::read);
+  }
+
+  /**
+   * The emails in {"developer": [...]}, as from /developers. Each item is either an email, or a
+   * developer with an email.
+   */
+  public static List<String> developerEmailList(JsonParser in) throws IOException {
+    return listMember(
+        in,
+        "developer",
+        item ->
+            (item.currentToken() != JsonToken.START_OBJECT)
+                ? string(item)
+                : Developer.read(item).email());
+  }
+
+  /** A string, a number or boolean as a string, or null for anything else. */
+  static String string(JsonParser in) throws IOException {
+    switch (in.currentToken()) {
+      case VALUE_STRING, VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_TRUE, VALUE_FALSE:
+        return in.getText();
+      default:
+        in.skipChildren();
+        return null;
+    }
+  }
+
+  /**
+   * An array of items, or an empty list if the value is null or not an array. The list cannot be
+   * modified, since a decoded response may be shared by concurrent callers.
+   */
+  static <T> List<T> list(JsonParser in, Decoder<T> item) throws IOException {
+    if (in.currentToken() != JsonToken.START_ARRAY) {
+      in.skipChildren();
+      return Collections.emptyList();
+    }
+    List<T> items = new ArrayList<>();
+    for (JsonToken token = in.nextToken(); token != JsonToken.END_ARRAY; token = in.nextToken()) {
+      if (token != JsonToken.VALUE_NULL) {
+        items.add(item.read(in));
+      }
+    }
+    return Collections.unmodifiableList(items);
+  }
+
+  /** The array that is the named member of an object, skipping the other members. */
+  private static <T> List<T> listMember(JsonParser in, String name, Decoder<T> item)
+      throws IOException {
+    if (in.currentToken() != JsonToken.START_OBJECT) {
+      in.skipChildren();
+      return Collections.emptyList();
+    }
+    List<T> items = Collections.emptyList();
+    for (String field = in.nextFieldName(); field != null; field = in.nextFieldName()) {
+      in.nextToken();
+      if (field.equals(name)) {
+        items = list(in, item);
+      } else {
+        in.skipChildren();
+      }
+    }
+    return items;
+  }
+}
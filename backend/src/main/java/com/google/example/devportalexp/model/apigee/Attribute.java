@@ -0,0 +1,52 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.model.apigee;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+
+/** A name-value pair attached to a developer, an app, or an API product in Apigee. */
+public record Attribute(String name, String value) {
+
+  static Attribute read(JsonParser in) throws IOException {
+    if (in.currentToken() != JsonToken.START_OBJECT) {
+      in.skipChildren();
+      return new Attribute(null, null);
+    }
+    String name = null;
+    String value = null;
+    for (String field = in.nextFieldName(); field != null; field = in.nextFieldName()) {
+      in.nextToken();
+      switch (field) {
+        case "name" -> name = ApigeeJson.string(in);
+        case "value" -> value = ApigeeJson.string(in);
+        default -> in.skipChildren();
+      }
+    }
+    return new Attribute(name, value);
+  }
+
+  /** Whether this attribute holds the fingerprint of a certificate, as cert-{id}-fingerprint. */
+  public boolean holdsCertificateFingerprint() {
+    return name != null && name.startsWith("cert-") && name.endsWith("-fingerprint");
+  }
+
+  /** Whether this attribute is one of those that hold a certificate. */
+  public boolean holdsCertificate() {
+    return name != null && name.startsWith("cert-");
+  }
+}
@@ -0,0 +1,82 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.model.apigee;
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A developer, as Apigee describes it. The apps are listed by name; the attributes are only present
+ * when Apigee includes them.
+ */
+public record Developer(
+    String email,
+    String firstName,
+    String lastName,
+    String userName,
+    String developerId,
+    String organizationName,
+    String status,
+    String createdAt,
+    String lastModifiedAt,
+    List<String> apps,
+    List<Attribute> attributes) {
+
+  public static Developer read(JsonParser in) throws IOException {
+    String email = null;
+    String firstName = null;
+    String lastName = null;
+    String userName = null;
+    String developerId = null;
+    String organizationName = null;
+    String status = null;
+    String createdAt = null;
+    String lastModifiedAt = null;
+    List<String> apps = Collections.emptyList();
+    List<Attribute> attributes = Collections.emptyList();
+    for (String field = in.nextFieldName(); field != null; field = in.nextFieldName()) {
+      in.nextToken();
+      switch (field) {
+        case "email" -> email = ApigeeJson.string(in);
+        case "firstName" -> firstName = ApigeeJson.string(in);
+        case "lastName" -> lastName = ApigeeJson.string(in);
+        case "userName" -> userName = ApigeeJson.string(in);
+        case "developerId" -> developerId = ApigeeJson.string(in);
+        case "organizationName" -> organizationName = ApigeeJson.string(in);
+        case "status" -> status = ApigeeJson.string(in);
+        case "createdAt" -> createdAt = ApigeeJson.string(in);
+        case "lastModifiedAt" -> lastModifiedAt = ApigeeJson.string(in);
+        case "apps" -> apps = ApigeeJson.list(in, ApigeeJson::string);
+        case "attributes" -> attributes = ApigeeJson.list(in, Attribute::read);
+        default -> in.skipChildren();
+      }
+    }
+    return new Developer(
+        email,
+        firstName,
+        lastName,
+        userName,
+        developerId,
+        organizationName,
+        status,
+        createdAt,
+        lastModifiedAt,
+        apps,
+        attributes);
+  }
+}
@@ -0,0 +1,121 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.model.apigee;
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/** A developer app, with its credentials, as Apigee describes it. */
+public record DeveloperApp(
+    String appId,
+    String name,
+    String status,
+    String createdAt,
+    String lastModifiedAt,
+    String developerId,
+    String appFamily,
+    List<Attribute> attributes,
+    List<Credential> credentials) {
+
+  /** A key and secret of an app, and the products they grant access to. */
+  public record Credential(
+      List<ProductStatus> apiProducts,
+      String consumerKey,
+      String consumerSecret,
+      String expiresAt,
+      String issuedAt,
+      String status) {
+
+    static Credential read(JsonParser in) throws IOException {
+      List<ProductStatus> apiProducts = Collections.emptyList();
+      String consumerKey = null;
+      String consumerSecret = null;
+      String expiresAt = null;
+      String issuedAt = null;
+      String status = null;
+      for (String field = in.nextFieldName(); field != null; field = in.nextFieldName()) {
+        in.nextToken();
+        switch (field) {
+          case "apiProducts" -> apiProducts = ApigeeJson.list(in, ProductStatus::read);
+          case "consumerKey" -> consumerKey = ApigeeJson.string(in);
+          case "consumerSecret" -> consumerSecret = ApigeeJson.string(in);
+          case "expiresAt" -> expiresAt = ApigeeJson.string(in);
+          case "issuedAt" -> issuedAt = ApigeeJson.string(in);
+          case "status" -> status = ApigeeJson.string(in);
+          default -> in.skipChildren();
+        }
+      }
+      return new Credential(apiProducts, consumerKey, consumerSecret, expiresAt, issuedAt, status);
+    }
+  }
+
+  /** Whether a credential is approved for an API product. */
+  public record ProductStatus(String apiproduct, String status) {
+
+    static ProductStatus read(JsonParser in) throws IOException {
+      String apiproduct = null;
+      String status = null;
+      for (String field = in.nextFieldName(); field != null; field = in.nextFieldName()) {
+        in.nextToken();
+        switch (field) {
+          case "apiproduct" -> apiproduct = ApigeeJson.string(in);
+          case "status" -> status = ApigeeJson.string(in);
+          default -> in.skipChildren();
+        }
+      }
+      return new ProductStatus(apiproduct, status);
+    }
+  }
+
+  public static DeveloperApp read(JsonParser in) throws IOException {
+    String appId = null;
+    String name = null;
+    String status = null;
+    String createdAt = null;
+    String lastModifiedAt = null;
+    String developerId = null;
+    String appFamily = null;
+    List<Attribute> attributes = Collections.emptyList();
+    List<Credential> credentials = Collections.emptyList();
+    for (String field = in.nextFieldName(); field != null; field = in.nextFieldName()) {
+      in.nextToken();
+      switch (field) {
+        case "appId" -> appId = ApigeeJson.string(in);
+        case "name" -> name = ApigeeJson.string(in);
+        case "status" -> status = ApigeeJson.string(in);
+        case "createdAt" -> createdAt = ApigeeJson.string(in);
+        case "lastModifiedAt" -> lastModifiedAt = ApigeeJson.string(in);
+        case "developerId" -> developerId = ApigeeJson.string(in);
+        case "appFamily" -> appFamily = ApigeeJson.string(in);
+        case "attributes" -> attributes = ApigeeJson.list(in, Attribute::read);
+        case "credentials" -> credentials = ApigeeJson.list(in, Credential::read);
+        default -> in.skipChildren();
+      }
+    }
+    return new DeveloperApp(
+        appId,
+        name,
+        status,
+        createdAt,
+        lastModifiedAt,
+        developerId,
+        appFamily,
+        attributes,
+        credentials);
+  }
+}
@@ -0,0 +1,86 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of concurrent calls to a dependency, with a bounded queue in front.
+ *
+ * <p>When the dependency slows down, calls to it pile up. Without a limit they would take every
+ * worker thread, and requests that never touch the dependency, like those for static files, would
+ * wait too. A call that finds every slot taken waits in the queue, for no longer than its timeout;
+ * a call that finds the queue full as well is rejected at once.
+ */
+public final class Bulkhead {
+  private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+  private final String name;
+  private final int maxConcurrent;
+  private final int maxQueued;
+  private final Semaphore slots;
+  private final AtomicInteger queued = new AtomicInteger();
+
+  public Bulkhead(String name, int maxConcurrent, int maxQueued) {
+    this.name = name;
+    this.maxConcurrent = maxConcurrent;
+    this.maxQueued = maxQueued;
+    this.slots = new Semaphore(maxConcurrent, true);
+  }
+
+  /**
+   * Takes a slot, waiting up to the given time for one. Every slot taken must be given back with
+   * {@link #release}.
+   */
+  public void acquire(Duration maxWait) throws RejectedCallException, InterruptedException {
+    if (slots.tryAcquire()) {
+      return;
+    }
+    if (queued.incrementAndGet() > maxQueued) {
+      queued.decrementAndGet();
+      throw new RejectedCallException(
+          name, RejectedCallException.Reason.BULKHEAD_FULL, RETRY_AFTER);
+    }
+    try {
+      if (!slots.tryAcquire(Math.max(0, maxWait.toNanos()), TimeUnit.NANOSECONDS)) {
+        throw new RejectedCallException(
+            name, RejectedCallException.Reason.BULKHEAD_FULL, RETRY_AFTER);
+      }
+    } finally {
+      queued.decrementAndGet();
+    }
+  }
+
+  /** Takes a slot only if one is free, without waiting. */
+  public boolean tryAcquire() {
+    return slots.tryAcquire();
+  }
+
+  public void release() {
+    slots.release();
+  }
+
+  public int inUse() {
+    return maxConcurrent - slots.availablePermits();
+  }
+
+  public int queued() {
+    return queued.get();
+  }
+}
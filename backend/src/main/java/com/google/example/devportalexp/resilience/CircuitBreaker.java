@@ -0,0 +1,210 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.resilience;
+
+import java.time.Duration;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stops calling a dependency that is failing, and probes it until it recovers.
+ *
+ * <p>The breaker keeps the outcomes of the last calls in a window. While it is closed, every call
+ * goes through; once the window holds enough calls and the share of failures reaches the
+ * threshold, it opens. While it is open, calls are rejected at once, without waiting on a
+ * dependency that will most likely fail them anyway. After a cool-off it turns half-open and lets
+ * a few probe calls through: if they all succeed it closes, and if any fails it opens again.
+ */
+public final class CircuitBreaker {
+  private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  public enum State {
+    CLOSED(0),
+    HALF_OPEN(1),
+    OPEN(2);
+
+    /** The value of the state gauge in metrics. */
+    public final int gaugeValue;
+
+    State(int gaugeValue) {
+      this.gaugeValue = gaugeValue;
+    }
+  }
+
+  /** Leave to make one call; report its outcome with {@link #onSuccess} or {@link #onFailure}. */
+  public record Permit(long generation) {}
+
+  private final String name;
+  private final boolean[] window;
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final long openNanos;
+  private final int probes;
+  private final BiConsumer<State, State> onTransition;
+
+  private State state = State.CLOSED;
+  // Outcomes of calls permitted in an earlier state are ignored.
+  private long generation;
+  private int windowNext;
+  private int windowCount;
+  private int windowFailures;
+  private long openedAt;
+  private int probesPermitted;
+  private int probesSucceeded;
+
+  /**
+   * @param windowSize the number of recent calls whose outcomes count.
+   * @param minimumCalls the number of calls in the window before the breaker may open.
+   * @param failureRateThreshold the share of failures in the window, from 0 to 1, that opens it.
+   * @param openDuration how long it stays open before probing.
+   * @param probes the number of probe calls let through while half-open.
+   * @param onTransition told of every change of state, outside the lock.
+   */
+  public CircuitBreaker(
+      String name,
+      int windowSize,
+      int minimumCalls,
+      double failureRateThreshold,
+      Duration openDuration,
+      int probes,
+      BiConsumer<State, State> onTransition) {
+    this.name = name;
+    this.window = new boolean[windowSize];
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.openNanos = openDuration.toNanos();
+    this.probes = probes;
+    this.onTransition = onTransition;
+  }
+
+  /** Permission to make a call; rejected while the breaker is open. */
+  public Permit acquire() throws RejectedCallException {
+    State from;
+    State to;
+    Permit permit;
+    synchronized (this) {
+      from = state;
+      if (state == State.OPEN) {
+        long waited = System.nanoTime() - openedAt;
+        if (waited < openNanos) {
+          throw new RejectedCallException(
+              name,
+              RejectedCallException.Reason.CIRCUIT_OPEN,
+              Duration.ofNanos(openNanos - waited));
+        }
+        moveTo(State.HALF_OPEN);
+      }
+      if (state == State.HALF_OPEN) {
+        if (probesPermitted >= probes) {
+          throw new RejectedCallException(
+              name, RejectedCallException.Reason.CIRCUIT_OPEN, Duration.ofSeconds(1));
+        }
+        probesPermitted++;
+      }
+      permit = new Permit(generation);
+      to = state;
+    }
+    notifyTransition(from, to);
+    return permit;
+  }
+
+  public void onSuccess(Permit permit) {
+    onOutcome(permit, true);
+  }
+
+  public void onFailure(Permit permit) {
+    onOutcome(permit, false);
+  }
+
+  /** Gives back a permit that was not used, so that a probe slot is not lost. */
+  public synchronized void release(Permit permit) {
+    if (permit.generation() == generation && state == State.HALF_OPEN) {
+      probesPermitted--;
+    }
+  }
+
+  private void onOutcome(Permit permit, boolean success) {
+    State from;
+    State to;
+    synchronized (this) {
+      from = state;
+      if (permit.generation() != generation) {
+        return;
+      }
+      if (state == State.HALF_OPEN) {
+        if (!success) {
+          moveTo(State.OPEN);
+        } else if (++probesSucceeded >= probes) {
+          moveTo(State.CLOSED);
+        }
+      } else if (state == State.CLOSED) {
+        record(success);
+        if (windowCount >= minimumCalls
+            && windowFailures >= failureRateThreshold * windowCount) {
+          moveTo(State.OPEN);
+        }
+      }
+      to = state;
+    }
+    notifyTransition(from, to);
+  }
+
+  private void record(boolean success) {
+    if (windowCount == window.length) {
+      if (window[windowNext]) {
+        windowFailures--;
+      }
+    } else {
+      windowCount++;
+    }
+    window[windowNext] = !success;
+    if (!success) {
+      windowFailures++;
+    }
+    windowNext = (windowNext + 1) % window.length;
+  }
+
+  // Called with the lock held.
+  private void moveTo(State next) {
+    state = next;
+    generation++;
+    windowNext = 0;
+    windowCount = 0;
+    windowFailures = 0;
+    probesPermitted = 0;
+    probesSucceeded = 0;
+    if (next == State.OPEN) {
+      openedAt = System.nanoTime();
+    }
+  }
+
+  private void notifyTransition(State from, State to) {
+    if (from == to) {
+      return;
+    }
+    if (to == State.OPEN) {
+      log.warn("Circuit {} opened after repeated failures", name);
+    } else {
+      log.info("Circuit {} is now {}", name, to);
+    }
+    onTransition.accept(from, to);
+  }
+
+  public synchronized State state() {
+    return state;
+  }
+}
@@ -0,0 +1,169 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrent requests to a route, with a limit that adapts to latency.
+ *
+ * <p>The limit follows the gradient between the usual latency of the route, averaged over many
+ * requests, and its latency now, averaged over a few. While the two agree, the limit grows by
+ * about its square root, to find out whether more concurrency still comes for free. Once requests
+ * take longer than usual, they are queueing for something, like the CPU, and the limit shrinks in
+ * proportion, down to half at a time. The limit does not grow while less than half of it is in
+ * use, since latency then says nothing about more.
+ *
+ * <p>A request over the limit waits in a bounded queue, in order of arrival, for no longer than its
+ * timeout; one that finds the queue full, or times out, is rejected, so that it fails fast rather
+ * than taking a thread while the route is overloaded.
+ */
+public final class ConcurrencyLimiter {
+  private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+  private static final int LONG_WINDOW = 100;
+  private static final int SHORT_WINDOW = 10;
+  // Latency may exceed the long-term average by this factor before the limit shrinks.
+  private static final double TOLERANCE = 1.5;
+  private static final double SMOOTHING = 0.2;
+
+  /** A request that was admitted. Give it back with {@link #release}. */
+  public record Permit(long startNanos, int inFlight) {}
+
+  private final String name;
+  private final int minLimit;
+  private final int maxLimit;
+  private final int maxQueued;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private double limit;
+  private int inFlight;
+  private int queued;
+  private double longRttNanos;
+  private double shortRttNanos;
+
+  public ConcurrencyLimiter(
+      String name, int initialLimit, int minLimit, int maxLimit, int maxQueued) {
+    this.name = name;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.maxQueued = maxQueued;
+    this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+  }
+
+  /**
+   * Admits a request, waiting up to the given time if the route is at its limit.
+   *
+   * @throws RejectedCallException if the queue is full, or the wait runs out.
+   */
+  public Permit acquire(Duration maxWait) throws RejectedCallException, InterruptedException {
+    lock.lock();
+    try {
+      if (queued == 0 && inFlight < (int) limit) {
+        return admit();
+      }
+      if (queued >= maxQueued) {
+        throw new RejectedCallException(
+            name, RejectedCallException.Reason.OVERLOADED, RETRY_AFTER);
+      }
+      long remaining = maxWait.toNanos();
+      queued++;
+      try {
+        while (inFlight >= (int) limit) {
+          if (remaining <= 0) {
+            throw new RejectedCallException(
+                name, RejectedCallException.Reason.DEADLINE_EXCEEDED, RETRY_AFTER);
+          }
+          remaining = released.awaitNanos(remaining);
+        }
+        return admit();
+      } finally {
+        queued--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Permit admit() {
+    inFlight++;
+    return new Permit(System.nanoTime(), inFlight);
+  }
+
+  /** Gives back a permit, and adjusts the limit to the latency of the request. */
+  public void release(Permit permit) {
+    long rttNanos = System.nanoTime() - permit.startNanos();
+    lock.lock();
+    try {
+      inFlight--;
+      update(rttNanos, permit.inFlight());
+      int free = (int) limit - inFlight;
+      for (int i = 0; i < Math.min(free, queued); i++) {
+        released.signal();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void update(long rttNanos, int inFlightAtStart) {
+    if (longRttNanos == 0) {
+      longRttNanos = rttNanos;
+      shortRttNanos = rttNanos;
+      return;
+    }
+    longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+    shortRttNanos += (rttNanos - shortRttNanos) / SHORT_WINDOW;
+    // After a long stretch of high latency, let the usual latency catch up as it comes down.
+    if (longRttNanos > 2 * shortRttNanos) {
+      longRttNanos *= 0.95;
+    }
+    if (inFlightAtStart < limit / 2) {
+      return;
+    }
+    double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / shortRttNanos));
+    double target = limit * gradient + Math.sqrt(limit);
+    limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+  }
+
+  public int limit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int inFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int queued() {
+    lock.lock();
+    try {
+      return queued;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.resilience;
+
+import java.time.Duration;
+
+/**
+ * The time left to handle the inbound request on this thread.
+ *
+ * <p>A before-filter starts the deadline when a request arrives, and the matching after-filter
+ * ends it. Outbound calls made in between take no longer than the time that is left, and are not
+ * retried once it has run out: the user has stopped waiting by then. Work on other threads, like
+ * the background rebuild of the certificate index, has no deadline.
+ */
+public final class Deadline {
+  private static final ThreadLocal<Long> current = new ThreadLocal<>();
+
+  private Deadline() {}
+
+  /** Starts a deadline for the request handled on this thread. */
+  public static void begin(Duration budget) {
+    current.set(System.nanoTime() + budget.toNanos());
+  }
+
+  public static void end() {
+    current.remove();
+  }
+
+  /**
+   * The deadline on this thread, in System.nanoTime() terms, or null if there is none; for work
+   * done for the same request on another thread, which takes it up with {@link #resume}.
+   */
+  public static Long current() {
+    return current.get();
+  }
+
+  /** Takes up, on this thread, a deadline from {@link #current}; or none, if it is null. */
+  public static void resume(Long deadline) {
+    if (deadline == null) {
+      current.remove();
+    } else {
+      current.set(deadline);
+    }
+  }
+
+  /**
+   * The given timeout, shortened to the time left before the deadline on this thread, if there is
+   * one. The result is zero or negative once the deadline has passed.
+   */
+  public static Duration cap(Duration timeout) {
+    Long deadline = current.get();
+    if (deadline == null) {
+      return timeout;
+    }
+    long remaining = deadline - System.nanoTime();
+    return (remaining < timeout.toNanos()) ? Duration.ofNanos(remaining) : timeout;
+  }
+
+  /** Whether the deadline on this thread, if any, leaves at least the given time. */
+  public static boolean allows(Duration needed) {
+    Long deadline = current.get();
+    return deadline == null || deadline - System.nanoTime() >= needed.toNanos();
+  }
+}
@@ -0,0 +1,52 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.resilience;
+
+/**
+ * Limits hedged calls to a share of all calls.
+ *
+ * <p>Each call earns a fraction of a hedge, and each hedge spends a whole one, so that over time
+ * hedges are at most the given percentage of calls. The balance is capped, which allows a short
+ * run of hedges after a quiet spell, but not a flood. When the dependency slows down for everyone,
+ * every call is slow enough to want a hedge; the balance runs out within a few calls, and the rest
+ * wait for their first attempt, as they would without hedging, rather than doubling the load on a
+ * dependency that is already struggling.
+ */
+public final class HedgeBudget {
+  private static final double MAX_BALANCE = 10;
+
+  private final double earnedPerCall;
+  private double balance;
+
+  /** A budget of the given percentage of calls, from 0 to 100. */
+  public HedgeBudget(double percentOfCalls) {
+    this.earnedPerCall = Math.max(0, Math.min(percentOfCalls, 100)) / 100;
+  }
+
+  /** Counts a call that might be hedged. */
+  public synchronized void onCall() {
+    balance = Math.min(MAX_BALANCE, balance + earnedPerCall);
+  }
+
+  /** Spends one hedge, if the budget has one. */
+  public synchronized boolean tryAcquire() {
+    if (balance < 1) {
+      return false;
+    }
+    balance -= 1;
+    return true;
+  }
+}
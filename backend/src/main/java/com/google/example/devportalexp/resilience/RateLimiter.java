@@ -0,0 +1,70 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket for each key, like the email of a developer, so that one client that calls too
+ * often is refused without taking from the allowance of the others.
+ *
+ * <p>A bucket that has not been used for as long as it takes to fill up is no different from a new
+ * one, so it is dropped then. The number of buckets is capped as well; if a flood of keys evicts a
+ * bucket early, its key starts over with a full one.
+ */
+public final class RateLimiter {
+  private static final int MAX_KEYS = 100_000;
+
+  private final String name;
+  private final double perSecond;
+  private final int burst;
+  private final Cache<String, TokenBucket> buckets;
+
+  public RateLimiter(String name, double perSecond, int burst) {
+    this.name = name;
+    this.perSecond = perSecond;
+    this.burst = burst;
+    long refillNanos = new TokenBucket(perSecond, burst).refillNanos();
+    this.buckets =
+        Caffeine.newBuilder()
+            .expireAfterAccess(Math.max(refillNanos, 1), TimeUnit.NANOSECONDS)
+            .maximumSize(MAX_KEYS)
+            .build();
+  }
+
+  /**
+   * Takes a token from the bucket for the given key.
+   *
+   * @throws RejectedCallException if the bucket is empty, with the time until it has a token.
+   */
+  public void acquire(String key) throws RejectedCallException {
+    if (perSecond <= 0) {
+      return;
+    }
+    long wait = buckets.get(key, ignored -> new TokenBucket(perSecond, burst)).tryAcquire();
+    if (wait > 0) {
+      throw new RejectedCallException(
+          name, RejectedCallException.Reason.RATE_LIMITED, Duration.ofNanos(wait));
+    }
+  }
+
+  public long size() {
+    return buckets.estimatedSize();
+  }
+}
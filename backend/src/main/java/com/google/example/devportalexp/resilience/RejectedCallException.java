@@ -0,0 +1,67 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.resilience;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * A call that was refused without being attempted, because the dependency is known to be failing,
+ * too busy, or too slow for the time that is left, or because the caller has made too many calls.
+ * The dependency may be this service itself, for a route that is overloaded. The caller should
+ * answer 503, or 429 if the call was rate limited.
+ */
+public class RejectedCallException extends IOException {
+
+  public enum Reason {
+    CIRCUIT_OPEN("circuit_open"),
+    BULKHEAD_FULL("bulkhead_full"),
+    DEADLINE_EXCEEDED("deadline_exceeded"),
+    RATE_LIMITED("rate_limited"),
+    OVERLOADED("overloaded");
+
+    /** The value of the reason label in metrics. */
+    public final String label;
+
+    Reason(String label) {
+      this.label = label;
+    }
+  }
+
+  private final String dependency;
+  private final Reason reason;
+  private final Duration retryAfter;
+
+  public RejectedCallException(String dependency, Reason reason, Duration retryAfter) {
+    super(String.format("Call to %s rejected: %s", dependency, reason.label));
+    this.dependency = dependency;
+    this.reason = reason;
+    this.retryAfter = retryAfter;
+  }
+
+  public String dependency() {
+    return dependency;
+  }
+
+  public Reason reason() {
+    return reason;
+  }
+
+  /** How long the client should wait before trying again. */
+  public Duration retryAfter() {
+    return retryAfter;
+  }
+}
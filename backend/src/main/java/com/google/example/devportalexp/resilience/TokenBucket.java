@@ -0,0 +1,78 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket: calls at a steady rate, with bursts up to a fixed size.
+ *
+ * <p>The bucket keeps no count of tokens. It keeps the time at which it would be full again, as in
+ * the generic cell rate algorithm, so that taking a token is a read of the clock and one
+ * compare-and-set, with no lock and no background refill.
+ */
+public final class TokenBucket {
+  private final long intervalNanos;
+  private final long burstNanos;
+  private final AtomicLong fullAt;
+
+  /** A bucket that earns the given number of tokens per second, and holds up to burst of them. */
+  public TokenBucket(double perSecond, int burst) {
+    this.intervalNanos = (perSecond > 0) ? (long) (1_000_000_000L / perSecond) : 0;
+    this.burstNanos = intervalNanos * Math.max(burst, 1);
+    this.fullAt = new AtomicLong(System.nanoTime());
+  }
+
+  /** Whether the bucket never runs out, because it was given no rate. */
+  public boolean isUnlimited() {
+    return intervalNanos == 0;
+  }
+
+  /**
+   * Takes a token if there is one, and returns 0; otherwise takes nothing, and returns the time in
+   * nanoseconds until there will be one.
+   */
+  public long tryAcquire() {
+    if (intervalNanos == 0) {
+      return 0;
+    }
+    long now = System.nanoTime();
+    while (true) {
+      long full = fullAt.get();
+      long next = ((full - now > 0) ? full : now) + intervalNanos;
+      long wait = next - now - burstNanos;
+      if (wait > 0) {
+        return wait;
+      }
+      if (fullAt.compareAndSet(full, next)) {
+        return 0;
+      }
+    }
+  }
+
+  /** Takes a token, waiting for one if there is none. */
+  public void acquire() throws InterruptedException {
+    for (long wait = tryAcquire(); wait > 0; wait = tryAcquire()) {
+      TimeUnit.NANOSECONDS.sleep(wait);
+    }
+  }
+
+  /** The time, in nanoseconds, for an empty bucket to fill up. */
+  public long refillNanos() {
+    return burstNanos;
+  }
+}
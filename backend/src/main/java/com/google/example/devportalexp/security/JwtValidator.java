@@ -18,40 +18,106 @@ package com.google.example.devportalexp.security;
 import com.auth0.jwk.Jwk;
 import com.auth0.jwk.JwkException;
 import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.JwkProviderBuilder;
 import com.auth0.jwk.UrlJwkProvider;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.example.devportalexp.diagnostics.FlightEvents;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.net.URL;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class JwtValidator {
   private static final Logger log = LoggerFactory.getLogger(JwtValidator.class);
-  private static final String JWKS_URL =
+  private static final String DEFAULT_JWKS_URL =
       "https://www.googleapis.com/robot/v1/metadata/jwk/securetoken@system.gserviceaccount.com";
   private static final String ISSUER_PREFIX = "https://securetoken.google.com/";
+  // Google rotates these keys every few days; an unknown kid is fetched on demand.
+  private static final Duration JWKS_CACHE_DURATION = Duration.ofHours(6);
 
+  private final URL jwksUrl;
   private final JwkProvider jwkProvider;
   private final String expectedIssuer;
   private final String expectedAudience;
 
   public JwtValidator(Map<String, Object> appSettings) {
+    // The jwksUrl setting points elsewhere, for example at a stand-in during load tests.
+    final String configuredJwksUrl =
+        (String) appSettings.getOrDefault("jwksUrl", DEFAULT_JWKS_URL);
     try {
       final String firebaseProject = (String) appSettings.get("project");
-      this.jwkProvider = new UrlJwkProvider(URI.create(JWKS_URL).toURL());
+      this.jwksUrl = URI.create(configuredJwksUrl).toURL();
+      this.jwkProvider =
+          new JwkProviderBuilder(jwksUrl)
+              .cached(10, JWKS_CACHE_DURATION)
+              .rateLimited(10, 1, TimeUnit.MINUTES)
+              .build();
       this.expectedIssuer = ISSUER_PREFIX + firebaseProject;
       this.expectedAudience = firebaseProject;
     } catch (MalformedURLException | IllegalArgumentException e) {
-      log.error("Invalid JWKS URL: {}", JWKS_URL, e);
+      log.error("Invalid JWKS URL: {}", configuredJwksUrl, e);
       throw new RuntimeException("Failed to initialize JwkProvider due to invalid URL", e);
     }
   }
 
+  /**
+   * Validates tokens against the given keys, rather than the Firebase JWKS; for benchmarks and
+   * tests that mint their own tokens.
+   */
+  public JwtValidator(Map<String, Object> appSettings, JwkProvider jwkProvider) {
+    final String firebaseProject = (String) appSettings.get("project");
+    this.jwksUrl = null;
+    this.jwkProvider = jwkProvider;
+    this.expectedIssuer = ISSUER_PREFIX + firebaseProject;
+    this.expectedAudience = firebaseProject;
+  }
+
+  /**
+   * Prepares for the first login: loads every key in the JWKS into the cache, then signs and
+   * verifies a throwaway token, so that the verification code is loaded and compiled.
+   *
+   * @throws Exception if the JWKS cannot be fetched.
+   */
+  public void warmUp() throws Exception {
+    if (jwksUrl != null) {
+      for (Jwk jwk : new UrlJwkProvider(jwksUrl).getAll()) {
+        jwkProvider.get(jwk.getId());
+      }
+    }
+
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    Algorithm algorithm =
+        Algorithm.RSA256((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate());
+    String token =
+        JWT.create()
+            .withKeyId("warm-up")
+            .withIssuer(expectedIssuer)
+            .withAudience(expectedAudience)
+            .withSubject("warm-up")
+            .withExpiresAt(Instant.now().plusSeconds(60))
+            .sign(algorithm);
+    JWT.require(algorithm)
+        .withIssuer(expectedIssuer)
+        .withAudience(expectedAudience)
+        .acceptLeeway(30)
+        .build()
+        .verify(JWT.decode(token));
+  }
+
   /**
    * Validates the Firebase ID token. Checks signature, issuer, audience, and expiry.
    *
@@ -59,6 +125,19 @@ public class JwtValidator {
    * @return The decoded JWT if valid, otherwise null.
    */
   public DecodedJWT validateToken(String token) {
+    FlightEvents.JwtVerification event = new FlightEvents.JwtVerification();
+    event.begin();
+    DecodedJWT verifiedJwt = verify(token);
+    event.end();
+    if (event.shouldCommit()) {
+      event.keyId = (verifiedJwt != null) ? verifiedJwt.getKeyId() : null;
+      event.verified = (verifiedJwt != null);
+      event.commit();
+    }
+    return verifiedJwt;
+  }
+
+  private DecodedJWT verify(String token) {
     try {
       // Decode without verification first to get kid
       DecodedJWT jwt = JWT.decode(token);
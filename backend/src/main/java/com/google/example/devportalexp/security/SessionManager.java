@@ -15,6 +15,7 @@
 
 package com.google.example.devportalexp.security;
 
+import com.google.example.devportalexp.diagnostics.FlightEvents;
 import com.google.example.devportalexp.model.Session;
 import io.javalin.http.Context;
 import java.security.SecureRandom;
@@ -94,6 +95,18 @@ public class SessionManager {
 
   /** Retrieves the current session based on the request cookie. */
   public Optional<Session> getSession(Context ctx) {
+    FlightEvents.SessionLookup event = new FlightEvents.SessionLookup();
+    event.begin();
+    Optional<Session> session = lookUpSession(ctx);
+    event.end();
+    if (event.shouldCommit()) {
+      event.outcome = session.isPresent() ? "valid" : "none";
+      event.commit();
+    }
+    return session;
+  }
+
+  private Optional<Session> lookUpSession(Context ctx) {
     String sessionId = ctx.cookie(SESSION_COOKIE_NAME);
     if (sessionId == null) {
       return Optional.empty();
@@ -118,6 +131,11 @@ public class SessionManager {
     return Optional.of(session);
   }
 
+  /** The number of sessions that have not expired. */
+  public long activeSessionCount() {
+    return activeSessions.values().stream().filter(session -> !session.isExpired()).count();
+  }
+
   /** Invalidates the session and clears the cookie. */
   public void invalidateSession(Context ctx) {
     String sessionId = ctx.cookie(SESSION_COOKIE_NAME);
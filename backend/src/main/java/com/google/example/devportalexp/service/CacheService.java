@@ -18,14 +18,19 @@ package com.google.example.devportalexp.service;
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.example.devportalexp.diagnostics.FlightEvents;
+import com.google.example.devportalexp.metrics.MetricsRegistry;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class CacheService {
+  private static final Logger log = LoggerFactory.getLogger(CacheService.class);
   private static CacheService instance;
 
   private final LoadingCache<String, Object> cache;
@@ -50,8 +55,17 @@ public class CacheService {
                   .findFirst()
                   .map(
                       entry -> {
-                        System.out.printf("--- CacheLoader: Loading data for key: %s ---\n", key);
-                        return entry.getValue().apply(key);
+                        log.debug("Loading data for key: {}", key);
+                        FlightEvents.CacheLoad event = new FlightEvents.CacheLoad();
+                        event.begin();
+                        Object loaded = entry.getValue().apply(key);
+                        event.end();
+                        if (event.shouldCommit()) {
+                          event.key = key;
+                          event.loaded = (loaded != null);
+                          event.commit();
+                        }
+                        return loaded;
                       });
 
           return result.orElse(null);
@@ -64,8 +78,11 @@ public class CacheService {
             .expireAfterWrite(3, TimeUnit.MINUTES)
             // Optionally, set a maximum size
             .maximumSize(500)
+            // Count hits and misses, for the metrics endpoint
+            .recordStats()
             // Build the cache with the loader defined above
             .build(cacheLoader);
+    MetricsRegistry.getInstance().registerCache("apigee", cache);
   }
 
   public Object get(final String key) {
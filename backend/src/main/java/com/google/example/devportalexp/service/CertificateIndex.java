@@ -0,0 +1,158 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.service;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index from certificate fingerprint to the developer that registered it. Certificate
+ * fingerprints live in Apigee as "cert-TIMESTAMP-fingerprint" developer attributes; this index
+ * allows finding the owner of a fingerprint without scanning every developer.
+ *
+ * <p>The index is populated by a bulk scan (see ApigeeController#rebuildCertificateIndex), repeated
+ * periodically, and kept current as certificates are registered and deregistered through the
+ * portal. Changes that arrive while a scan is running are replayed on top of the scan results, so
+ * a slow scan does not undo them.
+ *
+ * <p>Until the first scan completes, the index cannot tell an unregistered fingerprint from one it
+ * has not yet seen; see {@link #isReady}. A registration reserves its fingerprint before writing
+ * it to Apigee, so that two registrations of the same fingerprint cannot both proceed.
+ */
+public class CertificateIndex {
+  private static final CertificateIndex instance = new CertificateIndex();
+
+  /**
+   * The owner of a registered certificate.
+   *
+   * @param developerEmail The email of the developer that registered the certificate.
+   * @param certId The name of the fingerprint attribute, eg "cert-20250411-071800-fingerprint".
+   * @param notAfter The expiry of the certificate, or null if it could not be determined.
+   */
+  public record CertificateOwner(String developerEmail, String certId, Instant notAfter) {}
+
+  private volatile Map<String, CertificateOwner> owners = new ConcurrentHashMap<>();
+
+  // Non-null while a rebuild is running. A value of Optional.empty() records a removal.
+  private volatile Map<String, Optional<CertificateOwner>> changesDuringRebuild;
+  private volatile Instant lastRebuilt;
+  // Fingerprints being registered, from before the write to Apigee until they are in the index.
+  private final Set<String> reserved = new HashSet<>();
+
+  public static CertificateIndex getInstance() {
+    return instance;
+  }
+
+  private CertificateIndex() {}
+
+  /**
+   * Normalizes a fingerprint to the padding-free standard base64 form that the portal stores,
+   * accepting the URL-safe alphabet and trailing padding as well.
+   */
+  public static String normalizeFingerprint(String fingerprint) {
+    String s = fingerprint.trim().replace('-', '+').replace('_', '/');
+    int end = s.length();
+    while (end > 0 && s.charAt(end - 1) == '=') {
+      end--;
+    }
+    return s.substring(0, end);
+  }
+
+  public Optional<CertificateOwner> lookup(String fingerprint) {
+    return Optional.ofNullable(owners.get(normalizeFingerprint(fingerprint)));
+  }
+
+  /** Whether a bulk scan has completed, so that a fingerprint not found is not registered. */
+  public boolean isReady() {
+    return lastRebuilt != null;
+  }
+
+  /**
+   * Reserves a fingerprint for registration by the given developer. Call {@link #release} once the
+   * registration is in the index, with {@link #put}, or has failed.
+   *
+   * @return false if the fingerprint is registered to another developer, or is being registered.
+   */
+  public synchronized boolean reserve(String fingerprint, String developerEmail) {
+    CertificateOwner owner = owners.get(fingerprint);
+    if (owner != null && !owner.developerEmail().equalsIgnoreCase(developerEmail)) {
+      return false;
+    }
+    return reserved.add(fingerprint);
+  }
+
+  public synchronized void release(String fingerprint) {
+    reserved.remove(fingerprint);
+  }
+
+  public synchronized void put(String fingerprint, CertificateOwner owner) {
+    owners.put(fingerprint, owner);
+    if (changesDuringRebuild != null) {
+      changesDuringRebuild.put(fingerprint, Optional.of(owner));
+    }
+  }
+
+  public synchronized void remove(String fingerprint) {
+    owners.remove(fingerprint);
+    if (changesDuringRebuild != null) {
+      changesDuringRebuild.put(fingerprint, Optional.empty());
+    }
+  }
+
+  /**
+   * Marks the start of a bulk scan.
+   *
+   * @return false if a scan is already in progress.
+   */
+  public synchronized boolean beginRebuild() {
+    if (changesDuringRebuild != null) {
+      return false;
+    }
+    changesDuringRebuild = new ConcurrentHashMap<>();
+    return true;
+  }
+
+  /** Replaces the index contents with the result of a bulk scan. */
+  public synchronized void completeRebuild(Map<String, CertificateOwner> scanned) {
+    Map<String, CertificateOwner> rebuilt = new ConcurrentHashMap<>(scanned);
+    changesDuringRebuild.forEach(
+        (fingerprint, change) ->
+            change.ifPresentOrElse(
+                owner -> rebuilt.put(fingerprint, owner), () -> rebuilt.remove(fingerprint)));
+    owners = rebuilt;
+    changesDuringRebuild = null;
+    lastRebuilt = Instant.now();
+  }
+
+  /** Abandons a bulk scan that failed, leaving the current contents in place. */
+  public synchronized void abortRebuild() {
+    changesDuringRebuild = null;
+  }
+
+  public Map<String, Object> getStatus() {
+    return Map.of(
+        "size",
+        owners.size(),
+        "rebuilding",
+        changesDuringRebuild != null,
+        "lastRebuilt",
+        (lastRebuilt != null) ? lastRebuilt.toString() : "never");
+  }
+}
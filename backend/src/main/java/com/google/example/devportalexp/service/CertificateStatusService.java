@@ -0,0 +1,247 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.example.devportalexp.KeyUtility;
+import com.google.example.devportalexp.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Answers "is this certificate still good?" for the client certificates issued by
+ * X509CertificateService, in the manner of an OCSP responder.
+ *
+ * <p>The status of each serial number is held in memory, along with the issuer that signed the
+ * certificate. It is rebuilt from the issuance journal on startup, and updated as certificates are
+ * issued and revoked. Each answer is a JWT signed with the key of the certificate's own issuer,
+ * which may have been retired since, carrying the serial (as the subject), the status, and the
+ * thisUpdate and nextUpdate times (as iat and exp). Signed answers are computed once per serial
+ * and reused until shortly before their nextUpdate, or until the status changes, so that polling
+ * gateways do not cost a signature per request.
+ *
+ * <p>Serial numbers this service did not issue get no signed answer at all; signing answers for
+ * arbitrary serials would let any caller make us compute signatures at will.
+ */
+public class CertificateStatusService {
+  private static final Logger log = LoggerFactory.getLogger(CertificateStatusService.class);
+  private static final Duration RESPONSE_VALIDITY = Duration.ofHours(1);
+  // Replace cached answers this long before their nextUpdate, so none is served nearly stale.
+  private static final Duration RESPONSE_REFRESH_MARGIN = Duration.ofMinutes(5);
+  private static final long MAX_CACHED_RESPONSES = 100_000;
+  private static CertificateStatusService instance;
+
+  public enum Status {
+    GOOD,
+    REVOKED
+  }
+
+  private record StatusRecord(
+      Status status, Instant notAfter, Instant revokedAt, String issuerFingerprint) {}
+
+  /** A revoked certificate, and the fingerprint of the issuer that signed it. */
+  public record RevokedCertificate(
+      BigInteger serial, String issuerFingerprint, Instant revokedAt, Instant notAfter) {}
+
+  /** A signed status answer, ready to serve until nextUpdate. */
+  public record SignedStatus(String token, String etag, Instant nextUpdate) {}
+
+  private final Map<BigInteger, StatusRecord> statusBySerial = new ConcurrentHashMap<>();
+  private final LoadingCache<BigInteger, SignedStatus> signedResponses =
+      Caffeine.newBuilder()
+          .maximumSize(MAX_CACHED_RESPONSES)
+          .expireAfter(
+              Expiry.creating(
+                  (BigInteger serial, SignedStatus signed) ->
+                      Duration.between(Instant.now(), signed.nextUpdate())
+                          .minus(RESPONSE_REFRESH_MARGIN)))
+          .recordStats()
+          .build(this::sign);
+
+  public static synchronized CertificateStatusService getInstance() {
+    if (instance == null) {
+      instance = new CertificateStatusService();
+    }
+    return instance;
+  }
+
+  private CertificateStatusService() {
+    try {
+      IssuanceJournal.getInstance().forEach(this::apply);
+      log.info("Loaded status for {} issued certificates.", statusBySerial.size());
+    } catch (IOException exc1) {
+      // Not loaded from an empty journal: answering "good" for revoked certificates is worse.
+      throw new UncheckedIOException("cannot load certificate status from the journal", exc1);
+    }
+    long withoutIssuer =
+        statusBySerial.values().stream()
+            .filter(record -> record.issuerFingerprint() == null)
+            .count();
+    if (withoutIssuer > 0) {
+      log.warn(
+          "The issuer of {} journaled certificates is no longer loaded; their status cannot be"
+              + " signed.",
+          withoutIssuer);
+    }
+    MetricsRegistry.getInstance().registerCache("certificate-status", signedResponses);
+  }
+
+  private void apply(IssuanceJournal.JournalEntry entry) {
+    if (entry.type() == IssuanceJournal.RecordType.ISSUED) {
+      statusBySerial.putIfAbsent(
+          entry.serial(),
+          new StatusRecord(Status.GOOD, entry.notAfter(), null, issuerFingerprintOf(entry)));
+    } else if (entry.type() == IssuanceJournal.RecordType.REVOKED) {
+      StatusRecord issued = statusBySerial.get(entry.serial());
+      statusBySerial.put(
+          entry.serial(),
+          new StatusRecord(
+              Status.REVOKED,
+              entry.notAfter(),
+              entry.recordedAt(),
+              issued == null ? null : issued.issuerFingerprint()));
+    }
+  }
+
+  /** Finds which of our issuers signed a journaled certificate, by verifying its signature. */
+  private static String issuerFingerprintOf(IssuanceJournal.JournalEntry entry) {
+    try {
+      X509Certificate certificate = KeyUtility.decodeCertificate(entry.der());
+      return X509CertificateService.getInstance()
+          .findIssuer(certificate)
+          .map(IssuerKeyProvider.IssuerKeys::fingerprint)
+          .orElse(null);
+    } catch (KeyUtility.KeyParseException exc1) {
+      log.warn("Cannot decode journaled certificate {}", entry.serial().toString(16), exc1);
+      return null;
+    }
+  }
+
+  public void recordIssued(X509Certificate certificate, String issuerFingerprint) {
+    BigInteger serial = certificate.getSerialNumber();
+    statusBySerial.put(
+        serial,
+        new StatusRecord(
+            Status.GOOD, certificate.getNotAfter().toInstant(), null, issuerFingerprint));
+    signedResponses.invalidate(serial);
+  }
+
+  /**
+   * Marks a certificate as revoked.
+   *
+   * @return false if the certificate was already revoked.
+   */
+  public boolean recordRevoked(
+      X509Certificate certificate, String issuerFingerprint, Instant revokedAt) {
+    BigInteger serial = certificate.getSerialNumber();
+    StatusRecord previous =
+        statusBySerial.put(
+            serial,
+            new StatusRecord(
+                Status.REVOKED,
+                certificate.getNotAfter().toInstant(),
+                revokedAt,
+                issuerFingerprint));
+    signedResponses.invalidate(serial);
+    return previous == null || previous.status() != Status.REVOKED;
+  }
+
+  /** The revoked certificates that have not expired, for building CRLs. */
+  public List<RevokedCertificate> revokedCertificates() {
+    Instant now = Instant.now();
+    List<RevokedCertificate> revoked = new ArrayList<>();
+    statusBySerial.forEach(
+        (serial, record) -> {
+          if (record.status() == Status.REVOKED
+              && record.issuerFingerprint() != null
+              && record.notAfter().isAfter(now)) {
+            revoked.add(
+                new RevokedCertificate(
+                    serial, record.issuerFingerprint(), record.revokedAt(), record.notAfter()));
+          }
+        });
+    return revoked;
+  }
+
+  /**
+   * Returns the signed status answer for a serial number.
+   *
+   * @return the signed answer, or empty if the serial was not issued by this service, or its
+   *     issuer is no longer loaded.
+   */
+  public Optional<SignedStatus> getSignedStatus(BigInteger serial) {
+    if (!statusBySerial.containsKey(serial)) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(signedResponses.get(serial));
+  }
+
+  private SignedStatus sign(BigInteger serial) throws Exception {
+    StatusRecord record = statusBySerial.get(serial);
+    Optional<IssuerKeyProvider.IssuerKeys> issuer =
+        record.issuerFingerprint() == null
+            ? Optional.empty()
+            : IssuerKeyProvider.getInstance().getSnapshot().findIssuer(record.issuerFingerprint());
+    if (issuer.isEmpty()) {
+      log.warn("No issuer key to sign the status of serial {}", serial.toString(16));
+      return null;
+    }
+    IssuerKeyProvider.IssuerKeys issuerKeys = issuer.get();
+    X509Certificate issuerCertificate = issuerKeys.certificate();
+    Algorithm algorithm =
+        Algorithm.RSA256(
+            (RSAPublicKey) issuerCertificate.getPublicKey(),
+            (RSAPrivateKey) issuerKeys.privateKey());
+
+    Instant thisUpdate = Instant.now();
+    Instant nextUpdate = thisUpdate.plus(RESPONSE_VALIDITY);
+    String serialHex = serial.toString(16);
+    JWTCreator.Builder builder =
+        JWT.create()
+            .withKeyId(issuerKeys.fingerprint())
+            .withIssuer(issuerCertificate.getSubjectX500Principal().getName())
+            .withSubject(serialHex)
+            .withClaim("status", record.status().name().toLowerCase())
+            .withIssuedAt(thisUpdate)
+            .withExpiresAt(nextUpdate);
+    if (record.notAfter() != null) {
+      builder.withClaim("notAfter", record.notAfter().getEpochSecond());
+    }
+    if (record.revokedAt() != null) {
+      builder.withClaim("revokedAt", record.revokedAt().getEpochSecond());
+    }
+    String etag = String.format("\"%s-%d\"", serialHex, thisUpdate.toEpochMilli());
+    return new SignedStatus(builder.sign(algorithm), etag, nextUpdate);
+  }
+}
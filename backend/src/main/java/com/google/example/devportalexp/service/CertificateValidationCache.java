@@ -0,0 +1,117 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.example.devportalexp.KeyUtility;
+import com.google.example.devportalexp.metrics.MetricsRegistry;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Remembers the outcome of parsing and validating uploaded client certificates, so that a client
+ * that retries the same upload does not pay for the decode, the constraint checks, and the
+ * fingerprint computation again.
+ *
+ * <p>Entries are keyed by the base64 SHA-256 fingerprint of the DER bytes in the uploaded PEM. An
+ * accepted certificate is remembered until its notAfter, at which point the expiry check would
+ * start failing anyway. A rejected certificate can never become acceptable later, so it is
+ * remembered for a fixed period.
+ */
+public class CertificateValidationCache {
+  private static final CertificateValidationCache instance = new CertificateValidationCache();
+  private static final long MAX_ENTRIES = 2000;
+  private static final Duration REJECTION_LIFETIME = Duration.ofHours(1);
+
+  public record ValidatedCertificate(X509Certificate certificate, String fingerprint) {}
+
+  private record Verdict(X509Certificate certificate, String fingerprint, String rejection) {
+    Duration lifetime() {
+      if (rejection != null) {
+        return REJECTION_LIFETIME;
+      }
+      Duration untilExpiry = Duration.between(Instant.now(), certificate.getNotAfter().toInstant());
+      return untilExpiry.isNegative() ? Duration.ZERO : untilExpiry;
+    }
+  }
+
+  private final Cache<String, Verdict> verdicts =
+      Caffeine.newBuilder()
+          .maximumSize(MAX_ENTRIES)
+          .expireAfter(Expiry.creating((String key, Verdict verdict) -> verdict.lifetime()))
+          .recordStats()
+          .build();
+
+  public static CertificateValidationCache getInstance() {
+    return instance;
+  }
+
+  private CertificateValidationCache() {
+    MetricsRegistry.getInstance().registerCache("certificate-validation", verdicts);
+  }
+
+  /**
+   * Decodes the PEM-encoded certificate and enforces the client certificate constraints, reusing
+   * a previous verdict for the same certificate when one is available.
+   *
+   * @param certificatePem The PEM-encoded certificate, as uploaded.
+   * @return the parsed certificate along with its base64 SHA-256 fingerprint.
+   * @throws KeyUtility.KeyParseException if the certificate cannot be parsed.
+   * @throws IllegalArgumentException if the certificate violates a constraint.
+   */
+  public ValidatedCertificate decodeAndValidate(String certificatePem)
+      throws KeyUtility.KeyParseException,
+          NoSuchAlgorithmException,
+          NoSuchProviderException,
+          CertificateEncodingException {
+    String key = derFingerprint(certificatePem);
+    Verdict verdict = (key != null) ? verdicts.getIfPresent(key) : null;
+    if (verdict == null) {
+      // Parse failures are not remembered; there is no notAfter to bound them with.
+      X509Certificate certificate = KeyUtility.decodeCertificate(certificatePem);
+      String fingerprint = KeyUtility.fingerprintBase64(certificate);
+      String rejection = null;
+      try {
+        X509CertificateService.enforceClientCertificateConstraints(certificate);
+      } catch (IllegalArgumentException exc1) {
+        rejection = exc1.getMessage();
+      }
+      verdict = new Verdict(certificate, fingerprint, rejection);
+      verdicts.put((key != null) ? key : fingerprint, verdict);
+    }
+    if (verdict.rejection() != null) {
+      throw new IllegalArgumentException(verdict.rejection());
+    }
+    return new ValidatedCertificate(verdict.certificate(), verdict.fingerprint());
+  }
+
+  private static String derFingerprint(String certificatePem) throws NoSuchAlgorithmException {
+    byte[] der = KeyUtility.certificateDerFromPem(certificatePem);
+    if (der == null) {
+      return null;
+    }
+    byte[] digest = MessageDigest.getInstance("SHA-256").digest(der);
+    return Base64.getEncoder().withoutPadding().encodeToString(digest);
+  }
+}
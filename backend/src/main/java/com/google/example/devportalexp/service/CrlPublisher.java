@@ -0,0 +1,319 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.service;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v2CRLBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes certificate revocation lists for the client certificates issued by
+ * X509CertificateService.
+ *
+ * <p>Revocations are kept per issuer, and each issuer's CRLs are signed with that issuer's own key,
+ * as a CRL must be for a relying party to accept it. Retired issuers keep their CRLs for as long as
+ * IssuerKeyProvider keeps them, that is, until every certificate they issued has expired.
+ *
+ * <p>For each issuer, two CRLs are kept in memory, already signed and DER-encoded. The base CRL
+ * lists every revoked, unexpired certificate. The delta CRL (RFC 5280, section 5.2.4) lists only
+ * the revocations since the current base. A revocation re-signs just the delta of its issuer, which
+ * stays small. The base is consolidated, absorbing the delta, on a fixed schedule or once the
+ * delta grows past a threshold.
+ *
+ * <p>All CRLs draw their CRL numbers from one sequence, which must only increase (RFC 5280,
+ * section 5.2.3) across restarts too. Each number is the signing time in epoch milliseconds, or one
+ * more than the last number, whichever is greater. The ETag of a CRL is a hash of its encoding, so
+ * that a client never gets a 304 for a CRL it has not seen.
+ */
+public class CrlPublisher {
+  private static final Logger log = LoggerFactory.getLogger(CrlPublisher.class);
+  private static final String CRL_SIGNATURE_ALGORITHM = "SHA256withRSA";
+  private static final Duration BASE_CRL_INTERVAL = Duration.ofHours(6);
+  private static final Duration DELTA_CRL_INTERVAL = Duration.ofMinutes(15);
+  // Allow relying parties to keep using a CRL for a while if a refresh is late.
+  private static final Duration NEXT_UPDATE_GRACE = Duration.ofMinutes(30);
+  private static final int DELTA_CONSOLIDATION_THRESHOLD = 500;
+  private static CrlPublisher instance;
+
+  private record Revocation(Instant revokedAt, Instant notAfter) {}
+
+  /**
+   * A signed CRL, ready to serve.
+   *
+   * @param der The encoded CRL.
+   * @param etag The entity tag to serve it with, a hash of the encoding.
+   * @param crlNumber The number of this CRL.
+   * @param refreshAt When this publisher will replace the CRL, absent new revocations.
+   * @param nextUpdate The nextUpdate in the CRL, which allows some grace beyond refreshAt.
+   */
+  public record PublishedCrl(
+      byte[] der, String etag, BigInteger crlNumber, Instant refreshAt, Instant nextUpdate) {}
+
+  /** The revocations of one issuer, and the CRLs signed with its key. */
+  private static final class IssuerCrls {
+    private final IssuerKeyProvider.IssuerKeys issuerKeys;
+    private final Map<BigInteger, Revocation> revoked = new HashMap<>();
+    private final Map<BigInteger, Revocation> revokedSinceBase = new HashMap<>();
+    private BigInteger baseCrlNumber;
+    private volatile PublishedCrl baseCrl;
+    private volatile PublishedCrl deltaCrl;
+
+    IssuerCrls(IssuerKeyProvider.IssuerKeys issuerKeys) {
+      this.issuerKeys = issuerKeys;
+    }
+  }
+
+  private final Map<String, IssuerCrls> crlsByIssuer = new ConcurrentHashMap<>();
+  private BigInteger lastCrlNumber = BigInteger.ZERO;
+
+  public static synchronized CrlPublisher getInstance() {
+    if (instance == null) {
+      instance = new CrlPublisher();
+    }
+    return instance;
+  }
+
+  private CrlPublisher() {
+    IssuerKeyProvider.Snapshot snapshot = IssuerKeyProvider.getInstance().getSnapshot();
+    for (CertificateStatusService.RevokedCertificate revoked :
+        CertificateStatusService.getInstance().revokedCertificates()) {
+      snapshot
+          .findIssuer(revoked.issuerFingerprint())
+          .ifPresent(
+              issuerKeys ->
+                  crlsFor(issuerKeys)
+                      .revoked
+                      .put(
+                          revoked.serial(),
+                          new Revocation(revoked.revokedAt(), revoked.notAfter())));
+    }
+    consolidate();
+    // Publish CRLs for a new issuer as soon as it starts issuing.
+    IssuerKeyProvider.getInstance().addRotationListener(this::consolidate);
+
+    ScheduledExecutorService scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "crl-publisher");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.scheduleAtFixedRate(
+        this::consolidate,
+        BASE_CRL_INTERVAL.toMinutes(),
+        BASE_CRL_INTERVAL.toMinutes(),
+        TimeUnit.MINUTES);
+    scheduler.scheduleAtFixedRate(
+        this::refreshDeltas,
+        DELTA_CRL_INTERVAL.toMinutes(),
+        DELTA_CRL_INTERVAL.toMinutes(),
+        TimeUnit.MINUTES);
+  }
+
+  private IssuerCrls crlsFor(IssuerKeyProvider.IssuerKeys issuerKeys) {
+    return crlsByIssuer.computeIfAbsent(
+        issuerKeys.fingerprint(), fingerprint -> new IssuerCrls(issuerKeys));
+  }
+
+  /** Adds a revoked certificate to the delta CRL of the issuer that signed it. */
+  public synchronized void recordRevocation(
+      X509Certificate certificate, String issuerFingerprint, Instant revokedAt) {
+    IssuerCrls crls = crlsByIssuer.get(issuerFingerprint);
+    if (crls == null) {
+      Optional<IssuerKeyProvider.IssuerKeys> issuerKeys =
+          IssuerKeyProvider.getInstance().getSnapshot().findIssuer(issuerFingerprint);
+      if (issuerKeys.isEmpty()) {
+        log.warn(
+            "No issuer {} to list the revocation of serial {} under",
+            issuerFingerprint,
+            certificate.getSerialNumber().toString(16));
+        return;
+      }
+      crls = crlsFor(issuerKeys.get());
+    }
+    Revocation revocation = new Revocation(revokedAt, certificate.getNotAfter().toInstant());
+    BigInteger serial = certificate.getSerialNumber();
+    crls.revoked.put(serial, revocation);
+    crls.revokedSinceBase.put(serial, revocation);
+    if (crls.revokedSinceBase.size() >= DELTA_CONSOLIDATION_THRESHOLD) {
+      consolidate(crls);
+    } else {
+      refreshDelta(crls);
+    }
+  }
+
+  /**
+   * The base CRL of an issuer.
+   *
+   * @param issuerFingerprint The fingerprint of the issuer, or null for the current one.
+   * @return the CRL, or null if there is no such issuer, or no CRL yet.
+   */
+  public PublishedCrl getBaseCrl(String issuerFingerprint) {
+    IssuerCrls crls = find(issuerFingerprint);
+    return crls == null ? null : crls.baseCrl;
+  }
+
+  /**
+   * The delta CRL of an issuer.
+   *
+   * @param issuerFingerprint The fingerprint of the issuer, or null for the current one.
+   * @return the CRL, or null if there is no such issuer, or no CRL yet.
+   */
+  public PublishedCrl getDeltaCrl(String issuerFingerprint) {
+    IssuerCrls crls = find(issuerFingerprint);
+    return crls == null ? null : crls.deltaCrl;
+  }
+
+  /** Tells whether CRLs are published for the issuer with this fingerprint. */
+  public boolean hasIssuer(String issuerFingerprint) {
+    return crlsByIssuer.containsKey(issuerFingerprint);
+  }
+
+  private IssuerCrls find(String issuerFingerprint) {
+    return crlsByIssuer.get(
+        issuerFingerprint == null
+            ? IssuerKeyProvider.getInstance().current().fingerprint()
+            : issuerFingerprint);
+  }
+
+  /**
+   * Signs a new base CRL, and an empty delta on top of it, for each issuer whose certificates may
+   * not all have expired, and drops the CRLs of the others.
+   */
+  private synchronized void consolidate() {
+    Set<String> revocable = new HashSet<>();
+    for (IssuerKeyProvider.IssuerKeys issuerKeys :
+        IssuerKeyProvider.getInstance().getSnapshot().revocableIssuers()) {
+      revocable.add(issuerKeys.fingerprint());
+      consolidate(crlsFor(issuerKeys));
+    }
+    crlsByIssuer.keySet().retainAll(revocable);
+  }
+
+  /** Signs a new base CRL holding every unexpired revocation, and an empty delta on top of it. */
+  private void consolidate(IssuerCrls crls) {
+    try {
+      Instant now = Instant.now();
+      crls.revoked.values().removeIf(revocation -> revocation.notAfter().isBefore(now));
+      X509v2CRLBuilder builder = newBuilder(crls.issuerKeys, now, BASE_CRL_INTERVAL);
+      crls.revoked.forEach((serial, revocation) -> addEntry(builder, serial, revocation));
+      BigInteger number = nextCrlNumber();
+      builder.addExtension(Extension.cRLNumber, false, new CRLNumber(number));
+      crls.baseCrl = sign(crls.issuerKeys, builder, number, now, BASE_CRL_INTERVAL);
+      crls.baseCrlNumber = number;
+      crls.revokedSinceBase.clear();
+      log.info(
+          "Published base CRL #{} of issuer {} with {} entries",
+          number,
+          crls.issuerKeys.fingerprint(),
+          crls.revoked.size());
+      refreshDelta(crls);
+    } catch (Exception exc1) {
+      log.error("Cannot publish the base CRL of issuer {}", crls.issuerKeys.fingerprint(), exc1);
+    }
+  }
+
+  private synchronized void refreshDeltas() {
+    crlsByIssuer.values().forEach(this::refreshDelta);
+  }
+
+  /** Signs a new delta CRL holding the revocations since the current base. */
+  private void refreshDelta(IssuerCrls crls) {
+    if (crls.baseCrlNumber == null) {
+      return;
+    }
+    try {
+      Instant now = Instant.now();
+      X509v2CRLBuilder builder = newBuilder(crls.issuerKeys, now, DELTA_CRL_INTERVAL);
+      crls.revokedSinceBase.forEach((serial, revocation) -> addEntry(builder, serial, revocation));
+      BigInteger number = nextCrlNumber();
+      builder.addExtension(Extension.cRLNumber, false, new CRLNumber(number));
+      builder.addExtension(Extension.deltaCRLIndicator, true, new CRLNumber(crls.baseCrlNumber));
+      crls.deltaCrl = sign(crls.issuerKeys, builder, number, now, DELTA_CRL_INTERVAL);
+      log.debug(
+          "Published delta CRL #{} of issuer {} with {} entries",
+          number,
+          crls.issuerKeys.fingerprint(),
+          crls.revokedSinceBase.size());
+    } catch (Exception exc1) {
+      log.error("Cannot publish the delta CRL of issuer {}", crls.issuerKeys.fingerprint(), exc1);
+    }
+  }
+
+  private BigInteger nextCrlNumber() {
+    BigInteger now = BigInteger.valueOf(System.currentTimeMillis());
+    lastCrlNumber = lastCrlNumber.add(BigInteger.ONE).max(now);
+    return lastCrlNumber;
+  }
+
+  private static X509v2CRLBuilder newBuilder(
+      IssuerKeyProvider.IssuerKeys issuerKeys, Instant thisUpdate, Duration interval)
+      throws Exception {
+    X509Certificate issuerCertificate = issuerKeys.certificate();
+    X509v2CRLBuilder builder = new JcaX509v2CRLBuilder(issuerCertificate, Date.from(thisUpdate));
+    builder.setNextUpdate(Date.from(thisUpdate.plus(interval).plus(NEXT_UPDATE_GRACE)));
+    builder.addExtension(
+        Extension.authorityKeyIdentifier,
+        false,
+        new JcaX509ExtensionUtils().createAuthorityKeyIdentifier(issuerCertificate));
+    return builder;
+  }
+
+  private static void addEntry(X509v2CRLBuilder builder, BigInteger serial, Revocation revocation) {
+    builder.addCRLEntry(
+        serial, Date.from(revocation.revokedAt()), CRLReason.cessationOfOperation);
+  }
+
+  private static PublishedCrl sign(
+      IssuerKeyProvider.IssuerKeys issuerKeys,
+      X509v2CRLBuilder builder,
+      BigInteger number,
+      Instant thisUpdate,
+      Duration interval)
+      throws Exception {
+    ContentSigner signer =
+        new JcaContentSignerBuilder(CRL_SIGNATURE_ALGORITHM).build(issuerKeys.privateKey());
+    byte[] der = builder.build(signer).getEncoded();
+    byte[] digest = MessageDigest.getInstance("SHA-256").digest(der);
+    String etag =
+        String.format("\"%s\"", Base64.getUrlEncoder().withoutPadding().encodeToString(digest));
+    Instant refreshAt = thisUpdate.plus(interval);
+    return new PublishedCrl(der, etag, number, refreshAt, refreshAt.plus(NEXT_UPDATE_GRACE));
+  }
+}
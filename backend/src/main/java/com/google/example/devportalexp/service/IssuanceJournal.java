@@ -0,0 +1,503 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.service;
+
+import com.google.example.devportalexp.KeyUtility;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only, binary journal of the certificates issued by X509CertificateService.
+ *
+ * <p>The file starts with an 8-byte header (the magic "DPIJ" and a format version). Each record
+ * that follows is laid out as:
+ *
+ * <pre>
+ *   int   length of the body
+ *   body: byte type, long recordedAt (epoch millis), bytes serial, string fingerprint,
+ *         string subject, long notAfter (epoch millis), bytes DER
+ *   int   CRC32 of the body
+ * </pre>
+ *
+ * where "bytes" and "string" are an int length followed by that many bytes (UTF-8 for strings).
+ * Revocations are journaled as records of type REVOKED, with an empty DER.
+ *
+ * <p>On startup the file is memory-mapped and scanned once to rebuild an index from serial number
+ * to record offset. A torn record at the tail, left by a crash during a write, is truncated away.
+ * A bad record with more data after it is not torn but damaged, and the journal is not opened:
+ * truncating there would drop the records that follow, and un-revoke the certificates they
+ * revoke. Appends go through a FileChannel, one write per record, and are forced to disk before
+ * they return, so that a certificate handed out or revoked is on record even if the process dies.
+ * An append that fails is cut off the file again.
+ *
+ * <p>The journal is the record of what was issued and revoked, so it belongs on a persistent
+ * volume, set with ISSUANCE_JOURNAL. There is no default: without it, the journal is never
+ * opened, and certificates are neither issued nor revoked.
+ *
+ * <p>Certificate status and the CRLs are held in memory and rebuilt from this journal, so only one
+ * instance may use it at a time. The journal is opened under an exclusive file lock; an instance
+ * that finds the lock held, such as the new one while a revision rolls out, waits for it before
+ * loading anything. Until then, isOpen() is false, and the routes that issue, revoke, or report on
+ * certificates answer 503.
+ *
+ * <p>The waiting instance also leaves a handover request, a file next to the journal, and the
+ * instance that holds the journal closes it when it sees one. Without that, a rollout would wait
+ * on itself: the platform keeps the old instance until the new one is ready, and the new one is
+ * not ready until it holds the journal. Once it has handed the journal over, isOpen() is false in
+ * the old instance as well.
+ */
+public class IssuanceJournal {
+  private static final Logger log = LoggerFactory.getLogger(IssuanceJournal.class);
+  private static final int MAGIC = 0x44504A49; // "DPIJ"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final long LOCK_RETRY_MILLIS = 1000;
+  private static final ReentrantLock instanceLock = new ReentrantLock();
+  private static volatile IssuanceJournal instance;
+
+  public enum RecordType {
+    ISSUED((byte) 1),
+    REVOKED((byte) 2);
+
+    final byte code;
+
+    RecordType(byte code) {
+      this.code = code;
+    }
+
+    static RecordType fromCode(byte code) {
+      for (RecordType type : values()) {
+        if (type.code == code) {
+          return type;
+        }
+      }
+      return null;
+    }
+  }
+
+  public record JournalEntry(
+      RecordType type,
+      Instant recordedAt,
+      BigInteger serial,
+      String fingerprint,
+      String subject,
+      Instant notAfter,
+      byte[] der) {}
+
+  private final Path path;
+  private final Path handoverRequest;
+  private final FileChannel channel;
+  private final Map<BigInteger, Long> offsetsBySerial = new ConcurrentHashMap<>();
+  private final Map<BigInteger, Long> revocationOffsetsBySerial = new ConcurrentHashMap<>();
+  private long endOfJournal;
+  private volatile boolean handedOver;
+
+  /**
+   * Opens the journal on first use.
+   *
+   * @throws IOException if ISSUANCE_JOURNAL is not set, or the journal cannot be opened. No
+   *     instance is kept, so that a later call tries again.
+   */
+  public static IssuanceJournal getInstance() throws IOException {
+    // Not synchronized: the first call may wait a long time for another instance to release the
+    // file lock, and a virtual thread that waits inside a monitor holds on to its carrier thread.
+    instanceLock.lock();
+    try {
+      if (instance == null) {
+        Path path = journalPath(StateService.getInstance().getSettings());
+        if (path == null) {
+          throw new IOException("ISSUANCE_JOURNAL is not set");
+        }
+        instance = new IssuanceJournal(path);
+        instance.watchForHandover();
+      } else if (instance.handedOver) {
+        throw new IOException("issuance journal " + instance.path + " was handed over");
+      }
+      return instance;
+    } finally {
+      instanceLock.unlock();
+    }
+  }
+
+  /**
+   * Tells whether the journal has been opened and loaded, without waiting for it. Callers that
+   * must not block behind another instance's lock check this first.
+   */
+  public static boolean isOpen() {
+    IssuanceJournal journal = instance;
+    return journal != null && !journal.handedOver;
+  }
+
+  /** Tells whether ISSUANCE_JOURNAL is set; without it, the journal is never opened. */
+  public static boolean isConfigured() {
+    return journalPath(StateService.getInstance().getSettings()) != null;
+  }
+
+  private static Path journalPath(Map<String, Object> appSettings) {
+    String configured = (String) appSettings.get("issuanceJournal");
+    if (configured == null || configured.isBlank()) {
+      return null;
+    }
+    return Paths.get(configured);
+  }
+
+  IssuanceJournal(Path path) throws IOException {
+    this.path = path;
+    this.handoverRequest = path.resolveSibling(path.getFileName() + ".handover");
+    FileChannel opened = null;
+    try {
+      opened =
+          FileChannel.open(
+              path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      // Held until the process exits, or the journal is handed over.
+      FileLock lock = opened.tryLock();
+      if (lock == null) {
+        log.warn(
+            "Issuance journal {} is locked by another instance; asking for it to be handed over.",
+            path);
+        try {
+          Files.createFile(handoverRequest);
+        } catch (FileAlreadyExistsException ignored) {
+          // another instance asked already
+        }
+        while ((lock = opened.tryLock()) == null) {
+          sleepBeforeRetry();
+        }
+        log.info("Issuance journal {} was released by the other instance.", path);
+      }
+      // Whether this instance asked for it or an earlier one did, the request is answered.
+      Files.deleteIfExists(handoverRequest);
+      if (opened.size() == 0) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION);
+        opened.write(header.flip(), 0);
+        endOfJournal = HEADER_SIZE;
+      } else {
+        endOfJournal = scan(opened);
+        if (endOfJournal < opened.size()) {
+          log.warn(
+              "Truncating torn record at offset {} of issuance journal {}", endOfJournal, path);
+          opened.truncate(endOfJournal);
+        }
+      }
+      log.info(
+          "Issuance journal {} holds {} certificates ({} bytes)",
+          path,
+          offsetsBySerial.size(),
+          endOfJournal);
+    } catch (IOException exc1) {
+      closeQuietly(opened);
+      throw exc1;
+    }
+    this.channel = opened;
+  }
+
+  /**
+   * Watches for a handover request from another instance, and closes the journal, which releases
+   * the lock, once one comes.
+   */
+  private void watchForHandover() {
+    Thread.ofVirtual()
+        .name("issuance-journal-handover")
+        .start(
+            () -> {
+              try {
+                while (!Files.exists(handoverRequest)) {
+                  Thread.sleep(LOCK_RETRY_MILLIS);
+                }
+              } catch (InterruptedException exc1) {
+                return;
+              }
+              handOver();
+            });
+  }
+
+  private synchronized void handOver() {
+    log.warn(
+        "Another instance asked for issuance journal {}; handing it over. This instance no longer"
+            + " issues, revokes, or reports on certificates.",
+        path);
+    handedOver = true;
+    closeQuietly(channel);
+  }
+
+  private static void sleepBeforeRetry() throws IOException {
+    try {
+      Thread.sleep(LOCK_RETRY_MILLIS);
+    } catch (InterruptedException exc1) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while waiting for the issuance journal lock", exc1);
+    }
+  }
+
+  private long scan(FileChannel fileChannel) throws IOException {
+    MappedByteBuffer mapped = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+    if (mapped.remaining() < HEADER_SIZE
+        || mapped.getInt() != MAGIC
+        || mapped.getInt() != FORMAT_VERSION) {
+      throw new IOException("not an issuance journal: " + path);
+    }
+    while (mapped.remaining() >= Integer.BYTES) {
+      long offset = mapped.position();
+      int length = mapped.getInt();
+      if (length > mapped.remaining() - Integer.BYTES) {
+        // Runs past the end of the file.
+        return offset;
+      }
+      if (length <= 0) {
+        return checkTornTail(mapped, offset, mapped.position());
+      }
+      ByteBuffer body = mapped.slice(mapped.position(), length);
+      mapped.position(mapped.position() + length);
+      if (mapped.getInt() != crc(body.duplicate())) {
+        return checkTornTail(mapped, offset, mapped.position());
+      }
+      JournalEntry entry = decode(body);
+      if (entry.type() == RecordType.ISSUED) {
+        offsetsBySerial.put(entry.serial(), offset);
+      } else if (entry.type() == RecordType.REVOKED) {
+        revocationOffsetsBySerial.putIfAbsent(entry.serial(), offset);
+      }
+    }
+    return mapped.position();
+  }
+
+  /**
+   * Checks that the bad record at offset, which ends at end, is the torn tail of an interrupted
+   * append: nothing but zeros, if anything, follows it.
+   *
+   * @return offset, the end of the intact records.
+   * @throws IOException if more data follows, since then the record is damaged mid-journal.
+   */
+  private long checkTornTail(MappedByteBuffer mapped, long offset, int end) throws IOException {
+    for (int i = end; i < mapped.limit(); i++) {
+      if (mapped.get(i) != 0) {
+        throw new IOException(
+            String.format(
+                "corrupt record at offset %d of issuance journal %s, with more records after it",
+                offset, path));
+      }
+    }
+    return offset;
+  }
+
+  /**
+   * Appends a record of a newly issued certificate.
+   *
+   * @throws IOException if the record cannot be written.
+   */
+  public void recordIssuance(X509Certificate certificate)
+      throws IOException, GeneralSecurityException {
+    JournalEntry entry =
+        new JournalEntry(
+            RecordType.ISSUED,
+            Instant.now(),
+            certificate.getSerialNumber(),
+            KeyUtility.fingerprintBase64(certificate),
+            certificate.getSubjectX500Principal().getName(),
+            certificate.getNotAfter().toInstant(),
+            certificate.getEncoded());
+    offsetsBySerial.put(entry.serial(), append(entry));
+  }
+
+  /**
+   * Appends a record of the revocation of a previously issued certificate.
+   *
+   * @throws IOException if the record cannot be written.
+   */
+  public void recordRevocation(X509Certificate certificate)
+      throws IOException, GeneralSecurityException {
+    long offset =
+        append(
+            new JournalEntry(
+                RecordType.REVOKED,
+                Instant.now(),
+                certificate.getSerialNumber(),
+                KeyUtility.fingerprintBase64(certificate),
+                certificate.getSubjectX500Principal().getName(),
+                certificate.getNotAfter().toInstant(),
+                new byte[0]));
+    revocationOffsetsBySerial.putIfAbsent(certificate.getSerialNumber(), offset);
+  }
+
+  private synchronized long append(JournalEntry entry) throws IOException {
+    if (handedOver) {
+      throw new IOException("issuance journal " + path + " was handed over");
+    }
+    ByteBuffer body = encode(entry);
+    ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + body.remaining() + Integer.BYTES);
+    record.putInt(body.remaining()).put(body.duplicate()).putInt(crc(body)).flip();
+    long offset = endOfJournal;
+    try {
+      while (record.hasRemaining()) {
+        endOfJournal += channel.write(record, endOfJournal);
+      }
+      channel.force(false);
+    } catch (IOException exc1) {
+      // Cut off what was written, so that the next record follows the last whole one.
+      endOfJournal = offset;
+      try {
+        channel.truncate(offset);
+      } catch (IOException exc2) {
+        exc1.addSuppressed(exc2);
+      }
+      throw exc1;
+    }
+    return offset;
+  }
+
+  /** Finds the issuance record for a serial number without a scan. */
+  public Optional<JournalEntry> findBySerial(BigInteger serial) {
+    return find(offsetsBySerial.get(serial));
+  }
+
+  /** Finds the first revocation record for a serial number without a scan. */
+  public Optional<JournalEntry> findRevocation(BigInteger serial) {
+    return find(revocationOffsetsBySerial.get(serial));
+  }
+
+  private Optional<JournalEntry> find(Long offset) {
+    if (offset == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(readAt(offset));
+    } catch (IOException exc1) {
+      log.error("Cannot read issuance journal at offset {}", offset, exc1);
+      return Optional.empty();
+    }
+  }
+
+  /** Visits every record in the journal, in the order written. */
+  public void forEach(Consumer<JournalEntry> consumer) throws IOException {
+    long offset = HEADER_SIZE;
+    long end;
+    synchronized (this) {
+      end = endOfJournal;
+    }
+    while (offset < end) {
+      int length = readLength(offset);
+      consumer.accept(readAt(offset));
+      offset += Integer.BYTES + length + Integer.BYTES;
+    }
+  }
+
+  public int size() {
+    return offsetsBySerial.size();
+  }
+
+  private int readLength(long offset) throws IOException {
+    ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    readFully(lengthBuffer, offset);
+    return lengthBuffer.flip().getInt();
+  }
+
+  private JournalEntry readAt(long offset) throws IOException {
+    ByteBuffer body = ByteBuffer.allocate(readLength(offset));
+    readFully(body, offset + Integer.BYTES);
+    return decode(body.flip());
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int n = channel.read(buffer, position + buffer.position());
+      if (n < 0) {
+        throw new IOException("unexpected end of issuance journal");
+      }
+    }
+  }
+
+  private static ByteBuffer encode(JournalEntry entry) {
+    byte[] serial = entry.serial().toByteArray();
+    byte[] fingerprint = entry.fingerprint().getBytes(StandardCharsets.UTF_8);
+    byte[] subject = entry.subject().getBytes(StandardCharsets.UTF_8);
+    int size =
+        1
+            + Long.BYTES
+            + Integer.BYTES * 4
+            + serial.length
+            + fingerprint.length
+            + subject.length
+            + Long.BYTES
+            + entry.der().length;
+    return ByteBuffer.allocate(size)
+        .put(entry.type().code)
+        .putLong(entry.recordedAt().toEpochMilli())
+        .putInt(serial.length)
+        .put(serial)
+        .putInt(fingerprint.length)
+        .put(fingerprint)
+        .putInt(subject.length)
+        .put(subject)
+        .putLong(entry.notAfter().toEpochMilli())
+        .putInt(entry.der().length)
+        .put(entry.der())
+        .flip();
+  }
+
+  private static JournalEntry decode(ByteBuffer body) {
+    RecordType type = RecordType.fromCode(body.get());
+    Instant recordedAt = Instant.ofEpochMilli(body.getLong());
+    BigInteger serial = new BigInteger(getBytes(body));
+    String fingerprint = new String(getBytes(body), StandardCharsets.UTF_8);
+    String subject = new String(getBytes(body), StandardCharsets.UTF_8);
+    Instant notAfter = Instant.ofEpochMilli(body.getLong());
+    byte[] der = getBytes(body);
+    return new JournalEntry(type, recordedAt, serial, fingerprint, subject, notAfter, der);
+  }
+
+  private static byte[] getBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static int crc(ByteBuffer body) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(body);
+    return (int) crc32.getValue();
+  }
+
+  private static void closeQuietly(FileChannel fileChannel) {
+    if (fileChannel != null) {
+      try {
+        fileChannel.close();
+      } catch (IOException ignored) {
+        // nothing more to do
+      }
+    }
+  }
+}
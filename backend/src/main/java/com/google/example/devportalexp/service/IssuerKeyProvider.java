@@ -0,0 +1,404 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.service;
+
+import com.google.example.devportalexp.AppUtils;
+import com.google.example.devportalexp.KeyUtility;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the issuer certificate and signing key used by X509CertificateService, and replaces them
+ * without a restart when new ones appear in a watched directory.
+ *
+ * <p>The directory is given by the issuerKeyDir setting, typically a mounted secret. It holds
+ * files named like the ones packaged in the jar, issuer-certificate-*.pem and
+ * issuer-rsa-private-key-*.pem; when several match, the last by name wins, so a date suffix orders
+ * them. A WatchService thread reloads the directory after any change. A new pair is swapped in
+ * only if the key matches the certificate. When the directory is not set, or holds no usable pair
+ * at startup, the pair packaged in the jar is used. At startup, the older pairs in the directory,
+ * matched by suffix, are loaded as retired issuers, each taken to have retired when the
+ * certificate that follows it became valid (its notBefore). Unlike the modification time of the
+ * file, which on a mounted secret is the time of the mount, that does not move at each restart.
+ *
+ * <p>The current pair and the retired ones are published together as one immutable snapshot,
+ * through an AtomicReference. Signers read the snapshot once and use it throughout, so they never
+ * wait on a rotation, and never mix the certificate of one issuer with the key of another. A
+ * retired issuer stays active, for verifying the certificates it issued, during the overlap
+ * window given by the issuerOverlapHours setting. It is kept for longer, until the last
+ * certificate it could have issued expires, so that those certificates can still be revoked, and
+ * their status and CRLs signed with its key.
+ */
+public class IssuerKeyProvider {
+  private static final Logger log = LoggerFactory.getLogger(IssuerKeyProvider.class);
+  private static final String CERTIFICATE_PREFIX = "issuer-certificate-";
+  private static final String PRIVATE_KEY_PREFIX = "issuer-rsa-private-key-";
+  private static final String CERTIFICATE_PATTERN = CERTIFICATE_PREFIX + "*.pem";
+  private static final String PRIVATE_KEY_PATTERN = PRIVATE_KEY_PREFIX + "*.pem";
+  private static final Duration DEFAULT_OVERLAP = Duration.ofDays(30);
+  private static final Duration CERTIFICATE_LIFETIME =
+      Duration.ofSeconds(X509CertificateService.CERTIFICATE_VALIDITY_SECONDS);
+  // Secret mounts change several files at once; wait for the burst of events to settle.
+  private static final Duration RELOAD_SETTLE_TIME = Duration.ofMillis(500);
+  private static IssuerKeyProvider instance;
+
+  /** An issuer certificate and its private key. */
+  public record IssuerKeys(
+      X509Certificate certificate, PrivateKey privateKey, String fingerprint, String source) {}
+
+  /**
+   * An issuer that has been replaced, when it stops being accepted, and when the last certificate
+   * it could have issued expires.
+   */
+  public record RetiredIssuer(IssuerKeys keys, Instant retiresAt, Instant revocableUntil) {}
+
+  /** The keys in use at one moment: the current issuer, and the retired ones still kept. */
+  public record Snapshot(IssuerKeys current, List<RetiredIssuer> retired) {
+    /** The retired issuers still within their overlap window, and so still active. */
+    public List<RetiredIssuer> activeRetired() {
+      Instant now = Instant.now();
+      return retired.stream().filter(previous -> previous.retiresAt().isAfter(now)).toList();
+    }
+
+    /**
+     * The current issuer followed by the retired ones whose certificates may not all have expired,
+     * and so may still need to be revoked.
+     */
+    public List<IssuerKeys> revocableIssuers() {
+      Instant now = Instant.now();
+      List<IssuerKeys> revocable = new ArrayList<>();
+      revocable.add(current);
+      retired.stream()
+          .filter(previous -> previous.revocableUntil().isAfter(now))
+          .forEach(previous -> revocable.add(previous.keys()));
+      return revocable;
+    }
+
+    /** Finds a revocable issuer by the fingerprint of its certificate. */
+    public Optional<IssuerKeys> findIssuer(String fingerprint) {
+      return revocableIssuers().stream()
+          .filter(keys -> keys.fingerprint().equals(fingerprint))
+          .findFirst();
+    }
+  }
+
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+  private final List<Runnable> rotationListeners = new CopyOnWriteArrayList<>();
+  private final Path keyDirectory;
+  private final Duration overlap;
+
+  public static synchronized IssuerKeyProvider getInstance() {
+    if (instance == null) {
+      instance = new IssuerKeyProvider(StateService.getInstance().getSettings());
+    }
+    return instance;
+  }
+
+  private IssuerKeyProvider(Map<String, Object> appSettings) {
+    String configuredDirectory = (String) appSettings.get("issuerKeyDir");
+    keyDirectory =
+        (configuredDirectory == null || configuredDirectory.isBlank())
+            ? null
+            : Paths.get(configuredDirectory);
+    overlap = overlapFromSettings(appSettings);
+
+    IssuerKeys initial = null;
+    List<RetiredIssuer> retired = List.of();
+    if (keyDirectory != null) {
+      try {
+        initial = loadFromDirectory(keyDirectory);
+        if (initial != null) {
+          retired = loadRetiredFromDirectory(keyDirectory, initial);
+        }
+      } catch (Exception exc1) {
+        log.warn("Cannot load issuer keys from {}; using the packaged keys.", keyDirectory, exc1);
+      }
+    }
+    if (initial == null) {
+      try {
+        initial = loadFromClasspath();
+      } catch (Exception exc1) {
+        throw new RuntimeException("cannot load the issuer certificate and key", exc1);
+      }
+    }
+    snapshot.set(new Snapshot(initial, retired));
+    log.info("Issuer {} loaded from {}", initial.fingerprint(), initial.source());
+    for (RetiredIssuer previous : retired) {
+      log.info(
+          "Retired issuer {} loaded from {}; its certificates can be revoked until {}",
+          previous.keys().fingerprint(),
+          previous.keys().source(),
+          previous.revocableUntil());
+    }
+
+    if (keyDirectory != null && Files.isDirectory(keyDirectory)) {
+      Thread watcher = new Thread(this::watch, "issuer-key-watcher");
+      watcher.setDaemon(true);
+      watcher.start();
+    }
+  }
+
+  private static Duration overlapFromSettings(Map<String, Object> appSettings) {
+    Object configured = appSettings.get("issuerOverlapHours");
+    if (configured == null) {
+      return DEFAULT_OVERLAP;
+    }
+    try {
+      return Duration.ofHours((long) Double.parseDouble(configured.toString()));
+    } catch (NumberFormatException exc1) {
+      log.warn("Ignoring invalid issuerOverlapHours setting: {}", configured);
+      return DEFAULT_OVERLAP;
+    }
+  }
+
+  /** The keys in use now. Callers should read this once per operation. */
+  public Snapshot getSnapshot() {
+    return snapshot.get();
+  }
+
+  public IssuerKeys current() {
+    return snapshot.get().current();
+  }
+
+  /** Registers an action to run, on the watcher thread, after each rotation. */
+  public void addRotationListener(Runnable listener) {
+    rotationListeners.add(listener);
+  }
+
+  private void watch() {
+    try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+      keyDirectory.register(
+          watchService,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY,
+          StandardWatchEventKinds.ENTRY_DELETE);
+      log.info("Watching {} for new issuer keys", keyDirectory);
+      while (true) {
+        WatchKey key = watchService.take();
+        // Drain whatever else arrives while the files are being replaced.
+        do {
+          key.pollEvents();
+          if (!key.reset()) {
+            log.warn("Issuer key directory {} is no longer watchable", keyDirectory);
+            return;
+          }
+          key = watchService.poll(RELOAD_SETTLE_TIME.toMillis(), TimeUnit.MILLISECONDS);
+        } while (key != null);
+        reload();
+      }
+    } catch (InterruptedException | ClosedWatchServiceException exc1) {
+      Thread.currentThread().interrupt();
+    } catch (IOException exc1) {
+      log.error("Cannot watch issuer key directory {}", keyDirectory, exc1);
+    }
+  }
+
+  private void reload() {
+    IssuerKeys loaded;
+    try {
+      loaded = loadFromDirectory(keyDirectory);
+    } catch (Exception exc1) {
+      log.warn("Ignoring unusable issuer keys in {}", keyDirectory, exc1);
+      return;
+    }
+    if (loaded == null || loaded.fingerprint().equals(current().fingerprint())) {
+      return;
+    }
+    rotateTo(loaded);
+  }
+
+  private void rotateTo(IssuerKeys next) {
+    Instant now = Instant.now();
+    Snapshot previous =
+        snapshot.getAndUpdate(
+            prior -> {
+              List<RetiredIssuer> retired = new ArrayList<>();
+              retired.add(
+                  new RetiredIssuer(
+                      prior.current(), now.plus(overlap), now.plus(CERTIFICATE_LIFETIME)));
+              prior.retired().stream()
+                  .filter(
+                      old ->
+                          old.revocableUntil().isAfter(now)
+                              && !old.keys().fingerprint().equals(next.fingerprint()))
+                  .forEach(retired::add);
+              return new Snapshot(next, List.copyOf(retired));
+            });
+    log.info(
+        "Rotated issuer from {} to {}; the previous issuer stays active until {}",
+        previous.current().fingerprint(),
+        next.fingerprint(),
+        now.plus(overlap));
+    for (Runnable listener : rotationListeners) {
+      try {
+        listener.run();
+      } catch (RuntimeException exc1) {
+        log.error("Issuer rotation listener failed", exc1);
+      }
+    }
+  }
+
+  private static IssuerKeys loadFromDirectory(Path directory) throws Exception {
+    Path certificateFile = lastMatching(directory, CERTIFICATE_PATTERN);
+    Path privateKeyFile = lastMatching(directory, PRIVATE_KEY_PATTERN);
+    if (certificateFile == null || privateKeyFile == null) {
+      return null;
+    }
+    return toIssuerKeys(
+        Files.readString(certificateFile, StandardCharsets.UTF_8),
+        Files.readString(privateKeyFile, StandardCharsets.UTF_8),
+        certificateFile.toString());
+  }
+
+  /**
+   * Loads the pairs in the directory that are older than the current one, newest first, skipping
+   * those whose certificates have all expired.
+   */
+  private List<RetiredIssuer> loadRetiredFromDirectory(Path directory, IssuerKeys current)
+      throws IOException {
+    List<Path> certificateFiles = sortedMatching(directory, CERTIFICATE_PATTERN);
+    Instant now = Instant.now();
+    List<RetiredIssuer> retired = new ArrayList<>();
+    for (int i = certificateFiles.size() - 2; i >= 0; i--) {
+      Path certificateFile = certificateFiles.get(i);
+      Path privateKeyFile =
+          directory.resolve(
+              certificateFile
+                  .getFileName()
+                  .toString()
+                  .replace(CERTIFICATE_PREFIX, PRIVATE_KEY_PREFIX));
+      Instant retiredAt;
+      try {
+        retiredAt =
+            KeyUtility.decodeCertificate(
+                    Files.readString(certificateFiles.get(i + 1), StandardCharsets.UTF_8))
+                .getNotBefore()
+                .toInstant();
+      } catch (KeyUtility.KeyParseException exc1) {
+        log.warn(
+            "Ignoring retired issuer keys {}: the certificate that replaced them is unreadable",
+            certificateFile,
+            exc1);
+        continue;
+      }
+      Instant revocableUntil = retiredAt.plus(CERTIFICATE_LIFETIME);
+      if (!revocableUntil.isAfter(now) || !Files.isRegularFile(privateKeyFile)) {
+        continue;
+      }
+      try {
+        IssuerKeys keys =
+            toIssuerKeys(
+                Files.readString(certificateFile, StandardCharsets.UTF_8),
+                Files.readString(privateKeyFile, StandardCharsets.UTF_8),
+                certificateFile.toString());
+        if (!keys.fingerprint().equals(current.fingerprint())) {
+          retired.add(new RetiredIssuer(keys, retiredAt.plus(overlap), revocableUntil));
+        }
+      } catch (Exception exc1) {
+        log.warn("Ignoring unusable retired issuer keys {}", certificateFile, exc1);
+      }
+    }
+    return retired;
+  }
+
+  private static Path lastMatching(Path directory, String glob) throws IOException {
+    List<Path> matches = sortedMatching(directory, glob);
+    return matches.isEmpty() ? null : matches.get(matches.size() - 1);
+  }
+
+  /** The regular files in the directory that match the glob, sorted by name. */
+  private static List<Path> sortedMatching(Path directory, String glob) throws IOException {
+    List<Path> sorted = new ArrayList<>();
+    try (DirectoryStream<Path> matches = Files.newDirectoryStream(directory, glob)) {
+      for (Path match : matches) {
+        if (Files.isRegularFile(match)) {
+          sorted.add(match);
+        }
+      }
+    }
+    sorted.sort((a, b) -> a.getFileName().compareTo(b.getFileName()));
+    return sorted;
+  }
+
+  private static IssuerKeys loadFromClasspath() throws Exception {
+    String certResourceName = AppUtils.findResourceNameByPattern("keys/" + CERTIFICATE_PATTERN);
+    if (certResourceName == null) {
+      throw new IOException(
+          "Issuer certificate file not found for pattern keys/" + CERTIFICATE_PATTERN);
+    }
+    String privateKeyResourceName =
+        AppUtils.findResourceNameByPattern("keys/" + PRIVATE_KEY_PATTERN);
+    if (privateKeyResourceName == null) {
+      throw new IOException(
+          "Issuer private key file not found for pattern keys/" + PRIVATE_KEY_PATTERN);
+    }
+    return toIssuerKeys(
+        new String(
+            AppUtils.getResourceAsStream(certResourceName).readAllBytes(), StandardCharsets.UTF_8),
+        new String(
+            AppUtils.getResourceAsStream(privateKeyResourceName).readAllBytes(),
+            StandardCharsets.UTF_8),
+        "classpath:" + certResourceName);
+  }
+
+  private static IssuerKeys toIssuerKeys(String certificatePem, String privateKeyPem, String source)
+      throws Exception {
+    X509Certificate certificate = KeyUtility.decodeCertificate(certificatePem);
+    PrivateKey privateKey = KeyUtility.decodePrivateKey(privateKeyPem, null).getPrivate();
+    checkKeyMatchesCertificate(certificate, privateKey);
+    return new IssuerKeys(
+        certificate, privateKey, KeyUtility.fingerprintBase64(certificate), source);
+  }
+
+  private static void checkKeyMatchesCertificate(X509Certificate certificate, PrivateKey key)
+      throws GeneralSecurityException {
+    byte[] probe = certificate.getEncoded();
+    Signature signer = Signature.getInstance("SHA256withRSA");
+    signer.initSign(key);
+    signer.update(probe);
+    byte[] signature = signer.sign();
+    Signature verifier = Signature.getInstance("SHA256withRSA");
+    verifier.initVerify(certificate.getPublicKey());
+    verifier.update(probe);
+    if (!verifier.verify(signature)) {
+      throw new GeneralSecurityException("the issuer private key does not match the certificate");
+    }
+  }
+}
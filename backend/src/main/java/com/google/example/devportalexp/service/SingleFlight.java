@@ -0,0 +1,72 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package com.google.example.devportalexp.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Coalesces identical concurrent calls, so that one of them does the work and the others share its
+ * result.
+ *
+ * <p>The first caller for a key becomes the leader of a flight: it does the work on its own thread
+ * and lands the flight with the result or the failure. Callers that join while the flight is in
+ * the air are followers, and wait on its future. Once landed, the flight is gone; the next caller
+ * for the key starts a new one. Nothing is cached.
+ *
+ * <p>{@link #forget} detaches flights whose results may be stale, for example because a write
+ * happened while they were in the air. Their followers still get the result, but later callers
+ * start a new flight instead of joining them.
+ */
+public final class SingleFlight<K, V> {
+
+  /** A caller's place in a flight. */
+  public record Flight<V>(CompletableFuture<V> result, boolean leader) {}
+
+  private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * Joins the flight for the key, or starts one. A leader must land the flight, with {@link
+   * #complete} or {@link #fail}, whatever happens.
+   */
+  public Flight<V> join(K key) {
+    CompletableFuture<V> started = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, started);
+    return (existing == null) ? new Flight<>(started, true) : new Flight<>(existing, false);
+  }
+
+  public void complete(K key, Flight<V> flight, V value) {
+    inFlight.remove(key, flight.result());
+    flight.result().complete(value);
+  }
+
+  public void fail(K key, Flight<V> flight, Throwable failure) {
+    inFlight.remove(key, flight.result());
+    flight.result().completeExceptionally(failure);
+  }
+
+  /** Detaches the flights whose keys match, so that no one else joins them. */
+  public void forget(Predicate<K> stale) {
+    inFlight.keySet().removeIf(stale);
+  }
+
+  /** The number of flights in the air. */
+  public int size() {
+    return inFlight.size();
+  }
+}
@@ -16,23 +16,49 @@
 package com.google.example.devportalexp.service;
 
 import com.google.example.devportalexp.AppUtils;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.example.devportalexp.json.Json;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class StateService {
+  private static final Logger log = LoggerFactory.getLogger(StateService.class);
   private static StateService instance;
   private Map<String, Object> settings;
   private Map<String, String> buildInfo;
 
   private static final Map<String, String> environmentVariables =
-      Map.of("APIGEE_PROJECT", "project");
+      Map.ofEntries(
+          Map.entry("ADMIN_TOKEN", "adminToken"),
+          Map.entry("ADMISSION_CONTROL", "admissionControl"),
+          Map.entry("ADMISSION_QUEUE_TIMEOUT_MILLIS", "admissionQueueTimeoutMillis"),
+          Map.entry("APIGEE_ACCESS_TOKEN", "apigeeAccessToken"),
+          Map.entry("APIGEE_BASE_URL", "apigeeBaseUrl"),
+          Map.entry("APIGEE_CALL_BURST", "apigeeCallBurst"),
+          Map.entry("APIGEE_CALL_TIMEOUT_MILLIS", "apigeeCallTimeoutMillis"),
+          Map.entry("APIGEE_CALLS_PER_SECOND", "apigeeCallsPerSecond"),
+          Map.entry("APIGEE_HEDGE_BUDGET_PERCENT", "apigeeHedgeBudgetPercent"),
+          Map.entry("APIGEE_HEDGE_PERCENTILE", "apigeeHedgePercentile"),
+          Map.entry("APIGEE_MAX_CONCURRENT_CALLS", "apigeeMaxConcurrentCalls"),
+          Map.entry("APIGEE_MAX_QUEUED_CALLS", "apigeeMaxQueuedCalls"),
+          Map.entry("APIGEE_PROJECT", "project"),
+          Map.entry("CERTIFICATE_INDEX_REFRESH_MINUTES", "certificateIndexRefreshMinutes"),
+          Map.entry("DEVELOPER_REQUEST_BURST", "developerRequestBurst"),
+          Map.entry("DEVELOPER_REQUESTS_PER_MINUTE", "developerRequestsPerMinute"),
+          Map.entry("DEV_LOGGING", "devLogging"),
+          Map.entry("FLIGHT_RECORDING", "flightRecording"),
+          Map.entry("GATEWAY_API_KEY", "gatewayApiKey"),
+          Map.entry("ISSUANCE_JOURNAL", "issuanceJournal"),
+          Map.entry("ISSUER_KEY_DIR", "issuerKeyDir"),
+          Map.entry("ISSUER_OVERLAP_HOURS", "issuerOverlapHours"),
+          Map.entry("JWKS_URL", "jwksUrl"),
+          Map.entry("METRICS_TOKEN", "metricsToken"),
+          Map.entry("REQUEST_DEADLINE_MILLIS", "requestDeadlineMillis"),
+          Map.entry("SLOW_APIGEE_CALL_MILLIS", "slowApigeeCallMillis"));
 
   public static StateService getInstance() {
     if (instance == null) {
@@ -46,24 +72,10 @@ public class StateService {
     // file if the needed values are missing.
 
     // First, read from the config file.
-    try {
-      Type mapType = new TypeToken<HashMap<String, Object>>() {}.getType();
-      @SuppressWarnings("unchecked")
-      Map<String, Object> castable =
-          (Map<String, Object>)
-              new GsonBuilder()
-                  .setPrettyPrinting()
-                  .create()
-                  .fromJson(
-                      new String(
-                          AppUtils.getResourceAsStream("conf/settings.json").readAllBytes(),
-                          StandardCharsets.UTF_8),
-                      mapType);
-      settings = castable;
-
+    try (InputStream input = AppUtils.getResourceAsStream("conf/settings.json")) {
+      settings = Json.readMap(input);
     } catch (java.lang.Exception exc1) {
-      System.out.println("Exception:" + exc1.toString());
-      exc1.printStackTrace();
+      log.error("Cannot load the settings", exc1);
       throw new RuntimeException("uncaught exception", exc1);
     }
 
@@ -84,7 +96,7 @@ public class StateService {
     try (InputStream input = StateService.class.getResourceAsStream("/git.properties")) {
       Properties props = new Properties();
       if (input == null) {
-        System.out.println("WARNING: git.properties not found. Build info will be unavailable.");
+        log.warn("git.properties not found. Build info will be unavailable.");
         this.buildInfo.put("commit", "dev");
         this.buildInfo.put("buildTime", "now");
       } else {
@@ -93,8 +105,7 @@ public class StateService {
         this.buildInfo.put("buildTime", props.getProperty("git.build.time", "unknown"));
       }
     } catch (IOException ex) {
-      System.out.println("ERROR: Failed to load git.properties.");
-      ex.printStackTrace();
+      log.error("Failed to load git.properties.", ex);
       this.buildInfo.put("commit", "error");
       this.buildInfo.put("buildTime", "error");
     }
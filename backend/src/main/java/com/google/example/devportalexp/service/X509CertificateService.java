@@ -15,15 +15,16 @@
 
 package com.google.example.devportalexp.service;
 
-import com.google.example.devportalexp.AppUtils;
 import com.google.example.devportalexp.KeyUtility;
+import com.google.example.devportalexp.diagnostics.FlightEvents;
+import com.google.example.devportalexp.metrics.Histogram;
+import com.google.example.devportalexp.metrics.MetricsRegistry;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
-import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.SignatureException;
@@ -38,6 +39,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import javax.security.auth.x500.X500Principal;
 import org.bouncycastle.asn1.pkcs.RSAPublicKey;
 import org.bouncycastle.asn1.x509.BasicConstraints;
@@ -56,54 +58,101 @@ import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 public class X509CertificateService {
   private static final X509CertificateService instance;
   private static final String CERT_SIGNATURE_ALGORITHM = "SHA256withRSA";
-  private static final long CERTIFICATE_VALIDITY_SECONDS = 365L * 24 * 60 * 60; // 365 days
+  static final long CERTIFICATE_VALIDITY_SECONDS = 365L * 24 * 60 * 60; // 365 days
+
+  // OIDs checked on every uploaded certificate; resolved once rather than per call.
+  private static final String CLIENT_AUTH_OID = KeyPurposeId.id_kp_clientAuth.toOID().toString();
+  private static final Set<String> PROHIBITED_EKU_OIDS =
+      Set.of(
+          KeyPurposeId.id_kp_OCSPSigning.toOID().toString(),
+          KeyPurposeId.id_kp_codeSigning.toOID().toString(),
+          KeyPurposeId.id_kp_timeStamping.toOID().toString());
+  private static final Histogram issuanceDuration =
+      MetricsRegistry.getInstance()
+          .histogram(
+              "devportal_certificate_issuance_duration_seconds",
+              "Time to sign and journal a new client certificate.")
+          .labels();
 
   static {
-    java.security.Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+    KeyUtility.ensureProviderRegistered();
     instance = new X509CertificateService();
   }
 
-  private PrivateKey signingPrivateKey;
-  private X509Certificate issuerCertificate;
+  private final IssuerKeyProvider issuerKeyProvider;
 
   public static X509CertificateService getInstance() {
     return instance;
   }
 
   private X509CertificateService() {
+    issuerKeyProvider = IssuerKeyProvider.getInstance();
+  }
+
+  public X509Certificate generateNewSignedCertificate(
+      PublicKey publicKeyToSign, String subjectDN, String devEmail, String partnerOrgName)
+      throws CertificateException,
+          NoSuchAlgorithmException,
+          InvalidKeyException,
+          SignatureException,
+          OperatorCreationException,
+          NoSuchProviderException,
+          IOException {
+    long begin = System.nanoTime();
+    // Use one issuer throughout, even if the keys rotate meanwhile.
+    IssuerKeyProvider.IssuerKeys issuerKeys = issuerKeyProvider.current();
+    FlightEvents.CertificateSigning event = new FlightEvents.CertificateSigning();
+    event.begin();
+    X509Certificate newCertificate = null;
     try {
-      // Find the certificate file name matching the pattern
-      String certResourceName = AppUtils.findResourceNameByPattern("keys/issuer-certificate-*.pem");
-      if (certResourceName == null) {
-        throw new IOException(
-            "Issuer certificate file not found for pattern keys/issuer-certificate-*.pem");
-      }
-      String certPemString =
-          new String(
-              AppUtils.getResourceAsStream(certResourceName).readAllBytes(),
-              StandardCharsets.UTF_8);
-      issuerCertificate = KeyUtility.decodeCertificate(certPemString);
-
-      // Find the private key file name matching the pattern
-      String privateKeyResourceName =
-          AppUtils.findResourceNameByPattern("keys/issuer-rsa-private-key-*.pem");
-      if (privateKeyResourceName == null) {
-        throw new IOException(
-            "Issuer private key file not found for pattern keys/issuer-rsa-private-key-*.pem");
+      newCertificate =
+          signCertificate(issuerKeys, publicKeyToSign, subjectDN, devEmail, partnerOrgName);
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.issuerFingerprint = issuerKeys.fingerprint();
+        event.signed = (newCertificate != null);
+        event.commit();
       }
-      String privateKeyPemString =
-          new String(
-              AppUtils.getResourceAsStream(privateKeyResourceName).readAllBytes(),
-              StandardCharsets.UTF_8);
-      signingPrivateKey = KeyUtility.decodePrivateKey(privateKeyPemString, null).getPrivate();
-    } catch (java.lang.Exception exc1) {
-      exc1.printStackTrace();
-      throw new RuntimeException("uncaught exception", exc1);
     }
+
+    // Keep a record of what was issued. If this fails, the certificate is not handed out.
+    try {
+      IssuanceJournal.getInstance().recordIssuance(newCertificate);
+    } catch (java.security.GeneralSecurityException exc1) {
+      throw new IOException("cannot journal the issued certificate", exc1);
+    }
+    CertificateStatusService.getInstance().recordIssued(newCertificate, issuerKeys.fingerprint());
+    issuanceDuration.recordNanos(System.nanoTime() - begin);
+    return newCertificate;
   }
 
-  public X509Certificate generateNewSignedCertificate(
-      PublicKey publicKeyToSign, String subjectDN, String devEmail, String partnerOrgName)
+  /**
+   * Runs the issuance path once, on a throwaway key, so that the first developer to request a
+   * certificate does not pay for loading and compiling it. The certificate is signed, encoded, and
+   * checked like an uploaded one, but is not journaled, and its status is not recorded.
+   */
+  public void warmUp() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    X509Certificate certificate =
+        signCertificate(
+            issuerKeyProvider.current(),
+            generator.generateKeyPair().getPublic(),
+            "CN=warm-up",
+            "warm-up@example.com",
+            "warm-up");
+    X509Certificate decoded = KeyUtility.decodeCertificate(KeyUtility.toPem(certificate));
+    KeyUtility.fingerprintBase64(decoded);
+    enforceClientCertificateConstraints(decoded);
+  }
+
+  private X509Certificate signCertificate(
+      IssuerKeyProvider.IssuerKeys issuerKeys,
+      PublicKey publicKeyToSign,
+      String subjectDN,
+      String devEmail,
+      String partnerOrgName)
       throws CertificateException,
           NoSuchAlgorithmException,
           InvalidKeyException,
@@ -117,6 +166,7 @@ public class X509CertificateService {
 
     BigInteger serialNumber = new BigInteger(160, new SecureRandom());
     X500Principal subject = new X500Principal(subjectDN);
+    X509Certificate issuerCertificate = issuerKeys.certificate();
 
     // Use information from the issuer certificate
     X500Principal issuer = new X500Principal(issuerCertificate.getSubjectX500Principal().getName());
@@ -158,7 +208,7 @@ public class X509CertificateService {
 
     // --- Sign the Certificate ---
     JcaContentSignerBuilder signerBuilder = new JcaContentSignerBuilder(CERT_SIGNATURE_ALGORITHM);
-    ContentSigner contentSigner = signerBuilder.build(signingPrivateKey);
+    ContentSigner contentSigner = signerBuilder.build(issuerKeys.privateKey());
 
     JcaX509CertificateConverter converter = new JcaX509CertificateConverter().setProvider("BC");
     X509Certificate newCertificate = converter.getCertificate(certBuilder.build(contentSigner));
@@ -169,6 +219,61 @@ public class X509CertificateService {
     return newCertificate;
   }
 
+  public X509Certificate getIssuerCertificate() {
+    return issuerKeyProvider.current().certificate();
+  }
+
+  /**
+   * Finds the issuer of a certificate issued by this service: the one of our issuers, current or
+   * retired, that the certificate names and whose key signed it. Retired issuers are considered
+   * for as long as any certificate they issued may be unexpired, not just during their overlap.
+   *
+   * @return the issuer, or empty if the certificate was not issued by this service.
+   */
+  public Optional<IssuerKeyProvider.IssuerKeys> findIssuer(X509Certificate certificate) {
+    for (IssuerKeyProvider.IssuerKeys issuerKeys :
+        issuerKeyProvider.getSnapshot().revocableIssuers()) {
+      X509Certificate issuerCertificate = issuerKeys.certificate();
+      if (!certificate
+          .getIssuerX500Principal()
+          .equals(issuerCertificate.getSubjectX500Principal())) {
+        continue;
+      }
+      try {
+        certificate.verify(issuerCertificate.getPublicKey());
+        return Optional.of(issuerKeys);
+      } catch (java.security.GeneralSecurityException exc1) {
+        // try the next issuer
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Records the revocation of a certificate issued by this service, so that status queries and the
+   * CRLs of its issuer report it as revoked. Certificates that were not issued by this service are
+   * ignored.
+   *
+   * @param certificate The certificate being deregistered.
+   * @return true if the certificate was issued here and is now revoked.
+   */
+  public boolean revokeCertificate(X509Certificate certificate)
+      throws IOException, java.security.GeneralSecurityException {
+    Optional<IssuerKeyProvider.IssuerKeys> issuer = findIssuer(certificate);
+    if (issuer.isEmpty()) {
+      return false;
+    }
+    String issuerFingerprint = issuer.get().fingerprint();
+    Instant revokedAt = Instant.now();
+    // Journal first: a revocation that status queries report must survive a restart.
+    IssuanceJournal.getInstance().recordRevocation(certificate);
+    if (CertificateStatusService.getInstance()
+        .recordRevoked(certificate, issuerFingerprint, revokedAt)) {
+      CrlPublisher.getInstance().recordRevocation(certificate, issuerFingerprint, revokedAt);
+    }
+    return true;
+  }
+
   /**
    * Verifies constraints on the provided certificate, including (1) is not a CA, (2) is not
    * expired, (3) has the required clientAuth OID registered for extended key usage, (4) eku must
@@ -229,30 +334,20 @@ public class X509CertificateService {
     try {
       ekuOIDs = certificate.getExtendedKeyUsage();
     } catch (java.security.cert.CertificateParsingException exc1) {
-      exc1.printStackTrace();
       throw new IllegalArgumentException("the certificate cannot be parsed", exc1);
     }
     if (ekuOIDs == null) {
       throw new IllegalArgumentException(
           "the certificate is missing extended Key Usage (clientAuth)");
     }
-    String clientAuthOIDString =
-        org.bouncycastle.asn1.x509.KeyPurposeId.id_kp_clientAuth.toOID().toString();
-    Optional<String> clientAuthOID =
-        ekuOIDs.stream().filter(ekuOID -> ekuOID.equals(clientAuthOIDString)).findFirst();
-    if (!clientAuthOID.isPresent()) {
+    if (!ekuOIDs.contains(CLIENT_AUTH_OID)) {
       throw new IllegalArgumentException(
           "the certificate is missing extended Key Usage (clientAuth)");
     }
 
     // 4. Extended Key Usage extension must not include codeSigning, timeStamping, or OCSPSigning
-    List<String> prohibitedOIDs =
-        Arrays.asList(
-            org.bouncycastle.asn1.x509.KeyPurposeId.id_kp_OCSPSigning.toOID().toString(),
-            org.bouncycastle.asn1.x509.KeyPurposeId.id_kp_codeSigning.toOID().toString(),
-            org.bouncycastle.asn1.x509.KeyPurposeId.id_kp_timeStamping.toOID().toString());
     Optional<String> prohibitedOID =
-        ekuOIDs.stream().filter(ekuOID -> prohibitedOIDs.contains(ekuOID)).findFirst();
+        ekuOIDs.stream().filter(PROHIBITED_EKU_OIDS::contains).findFirst();
     if (prohibitedOID.isPresent()) {
       throw new IllegalArgumentException(
           String.format(
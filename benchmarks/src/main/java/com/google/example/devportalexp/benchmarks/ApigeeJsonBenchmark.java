@@ -0,0 +1,108 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package com.google.example.devportalexp.benchmarks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.example.devportalexp.json.Json;
+import com.google.example.devportalexp.model.apigee.ApigeeJson;
+import com.google.example.devportalexp.model.apigee.DeveloperApp;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding Apigee responses, and encoding JSON, with the shared mapper that ApigeeController and
+ * the Javalin handlers use. The sample is a developer with several apps, each with credentials and
+ * products, which is the largest response the portal handles routinely. The map benchmarks show
+ * the cost of a tree of maps, for comparison with the streaming decoders into records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ApigeeJsonBenchmark {
+  private byte[] developerApps;
+  private Map<String, Object> decodedMap;
+  private List<DeveloperApp> decodedApps;
+
+  @Setup
+  public void setUp() throws IOException {
+    try (InputStream in = getClass().getResourceAsStream("/developer-apps.json")) {
+      developerApps = in.readAllBytes();
+    }
+    decodedMap = decodeMap();
+    decodedApps = decodeApps();
+  }
+
+  /** {"app": [...]}, with each app decoded in full. */
+  private static List<DeveloperApp> appList(JsonParser in) throws IOException {
+    List<DeveloperApp> apps = new ArrayList<>();
+    for (String field = in.nextFieldName(); field != null; field = in.nextFieldName()) {
+      if (in.nextToken() == JsonToken.START_ARRAY && field.equals("app")) {
+        while (in.nextToken() == JsonToken.START_OBJECT) {
+          apps.add(DeveloperApp.read(in));
+        }
+      } else {
+        in.skipChildren();
+      }
+    }
+    return apps;
+  }
+
+  @Benchmark
+  public Map<String, Object> decodeMap() throws IOException {
+    return Json.readMap(new ByteArrayInputStream(developerApps));
+  }
+
+  @Benchmark
+  public List<DeveloperApp> decodeApps() throws IOException {
+    return ApigeeJson.decode(
+        new ByteArrayInputStream(developerApps), ApigeeJsonBenchmark::appList);
+  }
+
+  @Benchmark
+  public List<String> decodeAppIds() throws IOException {
+    return ApigeeJson.decode(new ByteArrayInputStream(developerApps), ApigeeJson::appIdList);
+  }
+
+  @Benchmark
+  public byte[] encodeMap() throws IOException {
+    return Json.toBytes(decodedMap);
+  }
+
+  @Benchmark
+  public byte[] encodeApps() throws IOException {
+    return Json.toBytes(decodedApps);
+  }
+}
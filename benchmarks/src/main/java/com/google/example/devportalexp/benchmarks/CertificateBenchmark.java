@@ -0,0 +1,77 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package com.google.example.devportalexp.benchmarks;
+
+import com.google.example.devportalexp.service.X509CertificateService;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Issuing a client certificate, and checking an uploaded one.
+ *
+ * <p>Issuance signs with the issuer key, and appends to the issuance journal, so it needs the
+ * issuer keys (see ISSUER_KEY_DIR), and should be run with ISSUANCE_JOURNAL pointing at a scratch
+ * file. The forks inherit the environment of the launcher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class CertificateBenchmark {
+  private X509CertificateService certificateService;
+  private PublicKey publicKey;
+  private X509Certificate issued;
+
+  @Setup
+  public void setUp() throws Exception {
+    certificateService = X509CertificateService.getInstance();
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    publicKey = generator.generateKeyPair().getPublic();
+    issued = issue();
+  }
+
+  private X509Certificate issue() throws Exception {
+    return certificateService.generateNewSignedCertificate(
+        publicKey, "CN=benchmark,O=Benchmarks", "benchmark@example.com", "Benchmarks");
+  }
+
+  @Benchmark
+  public X509Certificate generateNewSignedCertificate() throws Exception {
+    return issue();
+  }
+
+  @Benchmark
+  public X509Certificate enforceClientCertificateConstraints() {
+    X509CertificateService.enforceClientCertificateConstraints(issued);
+    return issued;
+  }
+}
@@ -0,0 +1,121 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package com.google.example.devportalexp.benchmarks;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.example.devportalexp.security.JwtValidator;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Verifying a Firebase ID token, as on every login. The token is minted here, and the key that
+ * signed it is served from a local JWKS, so nothing is fetched from Google.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JwtValidationBenchmark {
+  private static final String PROJECT = "benchmark-project";
+  private static final String KEY_ID = "benchmark-key";
+
+  private JwtValidator validator;
+  private String token;
+
+  @Setup
+  public void setUp() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+
+    Jwk jwk =
+        Jwk.fromValues(
+            Map.of(
+                "kid", KEY_ID,
+                "kty", "RSA",
+                "alg", "RS256",
+                "use", "sig",
+                "n", base64Url(publicKey.getModulus()),
+                "e", base64Url(publicKey.getPublicExponent())));
+    JwkProvider jwks =
+        keyId -> {
+          if (!KEY_ID.equals(keyId)) {
+            throw new SigningKeyNotFoundException("no key " + keyId, null);
+          }
+          return jwk;
+        };
+    validator = new JwtValidator(Map.of("project", PROJECT), jwks);
+
+    token =
+        JWT.create()
+            .withKeyId(KEY_ID)
+            .withIssuer("https://securetoken.google.com/" + PROJECT)
+            .withAudience(PROJECT)
+            .withSubject("benchmark-user")
+            .withClaim("email", "benchmark@example.com")
+            .withClaim("email_verified", true)
+            .withClaim("firebase", Map.of("sign_in_provider", "google.com"))
+            .withClaim("auth_time", Instant.now().getEpochSecond())
+            .withArrayClaim("groups", List.of("developers").toArray(new String[0]))
+            .withIssuedAt(Instant.now())
+            // Long enough to outlast the run.
+            .withExpiresAt(Instant.now().plusSeconds(24 * 60 * 60))
+            .sign(Algorithm.RSA256(publicKey, (RSAPrivateKey) keyPair.getPrivate()));
+    if (validator.validateToken(token) == null) {
+      throw new IllegalStateException("the minted token does not validate");
+    }
+  }
+
+  private static String base64Url(BigInteger value) {
+    byte[] bytes = value.toByteArray();
+    int offset = (bytes.length > 1 && bytes[0] == 0) ? 1 : 0;
+    byte[] unsigned = new byte[bytes.length - offset];
+    System.arraycopy(bytes, offset, unsigned, 0, unsigned.length);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned);
+  }
+
+  @Benchmark
+  public DecodedJWT validateToken() {
+    return validator.validateToken(token);
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package com.google.example.devportalexp.benchmarks;
+
+import com.google.example.devportalexp.KeyUtility;
+import com.google.example.devportalexp.service.X509CertificateService;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing the PEM that developers upload, and fingerprinting certificates. These run on every
+ * certificate registration, and the fingerprint also on every certificate lookup.
+ *
+ * <p>The certificate is issued once, in setup, so this needs the issuer keys; see {@link
+ * CertificateBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class KeyUtilityBenchmark {
+  private String publicKeyPem;
+  private String certificatePem;
+  private X509Certificate certificate;
+
+  @Setup
+  public void setUp() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    PublicKey publicKey = generator.generateKeyPair().getPublic();
+    publicKeyPem =
+        "-----BEGIN PUBLIC KEY-----\n"
+            + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(publicKey.getEncoded())
+            + "\n-----END PUBLIC KEY-----\n";
+    certificate =
+        X509CertificateService.getInstance()
+            .generateNewSignedCertificate(
+                publicKey, "CN=benchmark,O=Benchmarks", "benchmark@example.com", "Benchmarks");
+    certificatePem = KeyUtility.toPem(certificate);
+  }
+
+  @Benchmark
+  public PublicKey decodePublicKey() throws Exception {
+    return KeyUtility.decodePublicKey(publicKeyPem);
+  }
+
+  @Benchmark
+  public X509Certificate decodeCertificate() throws Exception {
+    return KeyUtility.decodeCertificate(certificatePem);
+  }
+
+  @Benchmark
+  public String fingerprintBase64() throws Exception {
+    return KeyUtility.fingerprintBase64(certificate);
+  }
+}
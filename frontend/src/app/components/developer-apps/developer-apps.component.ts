@@ -15,8 +15,8 @@
 import { Component, OnInit, OnDestroy, inject } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { FormsModule } from '@angular/forms';
-import { Observable, of, forkJoin, Subscription } from 'rxjs';
-import { switchMap, catchError, map, tap, finalize } from 'rxjs/operators';
+import { Observable, of, Subscription } from 'rxjs';
+import { catchError, map, tap, finalize } from 'rxjs/operators';
 import { ApiService } from '../../services/api.service';
 import { DeveloperApp } from '../../models/developer-app.model';
 import { ApiProduct } from '../../models/api-product.model';
@@ -60,31 +60,9 @@ export class DeveloperAppsComponent implements OnInit, OnDestroy { // Implement
     this.errorLoading = false;
     this.developerApps = [];
     console.log('DeveloperAppsComponent: loadInitialData - Starting app loading (manual subscribe).');
-    const appsLoadingPipeline$ = this.apiService.getDeveloperApps().pipe(
-      tap(names => console.log('DeveloperAppsComponent: Received app names:', names)),
-      switchMap(appNames => {
-        if (!appNames || appNames.length === 0) {
-          console.log('No developer app names found.');
-          this.isLoading = false;
-          return of([]); // Return empty array if no names
-        }
-        console.log('Found app names:', appNames);
-        // Create an array of Observables, each fetching details for one app name
-        const detailObservables = appNames.map(name =>
-          this.apiService.getDeveloperAppDetails(name).pipe(
-            tap(details => console.log(`DeveloperAppsComponent: Received details for app ${name}:`, details)),
-            catchError(err => {
-              console.error(`Failed to load details for app ${name}`, err);
-              // Return a placeholder object on error for this specific app
-              return of({ appId: '', name: `${name} (Error Loading)`, status: 'Error' } as DeveloperApp);
-            })
-          )
-        );
-        // Use forkJoin to wait for all detail requests to complete
-        console.log(`DeveloperAppsComponent: Fetching details for ${detailObservables.length} apps.`);
-        return forkJoin(detailObservables);
-      }),
-      tap(apps => console.log('DeveloperAppsComponent: forkJoin completed, apps with details:', apps)),
+    // One request returns every app with its details.
+    const appsLoadingPipeline$ = this.apiService.getDeveloperAppsExpanded().pipe(
+      tap(apps => console.log('DeveloperAppsComponent: Received apps with details:', apps)),
       map(apps => {
           // No need to set isLoading here, finalize handles it
           return apps;
@@ -20,7 +20,6 @@ import { Subscription, lastValueFrom } from 'rxjs';
 import { take } from 'rxjs/operators';
 import { AuthService } from '../../services/auth.service';
 import { ApiService } from '../../services/api.service';
-import { HttpErrorResponse } from '@angular/common/http';
 
 @Component({
   selector: 'app-welcome',
@@ -68,27 +67,29 @@ export class WelcomeComponent implements OnInit, OnDestroy {
       await this.authService.googleSignIn();
       console.log('WelcomeComponent: Google Sign-In and session established.');
 
-      // Step 2: Check if the developer is registered
+      // Step 2: Check if the developer is registered, loading the dashboard data at the same time
       try {
-        console.log('WelcomeComponent: Checking developer details...');
+        console.log('WelcomeComponent: Loading bootstrap...');
         // Use lastValueFrom to convert Observable to Promise
-        await lastValueFrom(this.apiService.getDeveloperDetails());
-        console.log('WelcomeComponent: Developer found. Navigating to dashboard.');
-        this.router.navigate(['/dashboard']);
-        // No need to reset isSigningIn here as we are navigating away
-      } catch (detailsError) {
-        if (detailsError instanceof HttpErrorResponse && detailsError.status === 404) {
+        const bootstrap = await lastValueFrom(this.apiService.getBootstrap());
+        if (bootstrap.me) {
+          console.log('WelcomeComponent: Developer found. Navigating to dashboard.');
+          this.router.navigate(['/dashboard']);
+          // No need to reset isSigningIn here as we are navigating away
+        } else if (bootstrap.errors?.['me']?.status === 404) {
           // Step 3a: Developer not found (404), navigate to confirmation page
           console.log('WelcomeComponent: Developer not found (404). Navigating to registration confirmation.');
           this.router.navigate(['/register-confirm']);
           // No need to reset isSigningIn here as we are navigating away
         } else {
-          // Step 3b: Other error fetching details
-          console.error('WelcomeComponent: Error checking developer details:', detailsError);
-          this.signInError = 'Failed to verify developer status after sign-in.';
-          await this.authService.signOut(); // Sign out on error
-          this.isSigningIn = false; // Reset flag
+          throw bootstrap.errors?.['me'] ?? new Error('No developer details in bootstrap');
         }
+      } catch (detailsError) {
+        // Step 3b: Error fetching details
+        console.error('WelcomeComponent: Error checking developer details:', detailsError);
+        this.signInError = 'Failed to verify developer status after sign-in.';
+        await this.authService.signOut(); // Sign out on error
+        this.isSigningIn = false; // Reset flag
       }
     } catch (signInError) {
       // Step 1 failed (Firebase sign-in or session establishment)
@@ -0,0 +1,19 @@
+import { ApiProduct } from './api-product.model';
+import { DeveloperApp } from './developer-app.model';
+import { DeveloperDetails } from './developer-details.model';
+
+// Why a section of the bootstrap is missing: the status it would have had on its own, and a message
+export interface BootstrapSectionError {
+    status: number;
+    error: string;
+}
+
+// Defines the structure for the data received from GET /api/me/bootstrap.
+// A section that could not be loaded is absent, and has an entry in errors.
+export interface Bootstrap {
+    version?: any;
+    me?: DeveloperDetails;
+    apps?: DeveloperApp[];
+    apiProducts?: ApiProduct[];
+    errors?: { [section: string]: BootstrapSectionError };
+}
@@ -6,6 +6,7 @@ import { AuthService } from './auth.service';
 import { ApiProduct } from '../models/api-product.model';
 import { DeveloperApp } from '../models/developer-app.model';
 import { DeveloperDetails } from '../models/developer-details.model'; // Import DeveloperDetails
+import { Bootstrap } from '../models/bootstrap.model';
 
 @Injectable({
   providedIn: 'root'
@@ -19,6 +20,9 @@ export class ApiService {
   // --- Cache for Developer Apps ---
   private developerAppsCache$: Observable<string[]> | null = null;
   private developerAppsCacheTimestamp: number | null = null;
+  // Cache for the expanded list of apps, with their details
+  private expandedAppsCache$: Observable<DeveloperApp[]> | null = null;
+  private expandedAppsCacheTimestamp: number | null = null;
   // Cache for individual app details (keyed by app name)
   // Store observable and timestamp together
   private appDetailsCache = new Map<string, { observable: Observable<DeveloperApp>, timestamp: number }>();
@@ -26,6 +30,9 @@ export class ApiService {
   private developerDetailsCache$: Observable<DeveloperDetails> | null = null;
   private developerDetailsCacheTimestamp: number | null = null;
   private buildInfoCache$: Observable<any> | null = null;
+  // Cache for the API products, filled only by getBootstrap
+  private apiProductsCache$: Observable<ApiProduct[]> | null = null;
+  private apiProductsCacheTimestamp: number | null = null;
   // --- End Cache ---
 
   constructor() { }
@@ -38,6 +45,11 @@ export class ApiService {
   getApiProducts(): Observable<ApiProduct[]> {
     // No longer need to check getIdToken() here, rely on session cookie
     console.log('ApiService: > getApiProducts');
+    const now = Date.now();
+    if (this.apiProductsCache$ && this.apiProductsCacheTimestamp && (now - this.apiProductsCacheTimestamp < this.CACHE_LIFETIME_MS)) {
+      console.log('ApiService: > getApiProducts - Returning products from the bootstrap.');
+      return this.apiProductsCache$;
+    }
     // Add withCredentials: true to ensure cookies are sent
     return this.http.get<ApiProduct[]>(`${this.apiUrl}/apiproducts`, { withCredentials: true }).pipe(
       catchError(error => {
@@ -50,6 +62,46 @@ export class ApiService {
     );
   }
 
+  /**
+   * Fetches, in one request, everything shown on the first pages after sign-in:
+   * the build info, the developer details, the apps with their details, and the
+   * API products. Each section that loaded is placed in its cache, so that the
+   * dashboard does not request it again. A section that failed is absent, with
+   * its status in errors; errors.me.status is 404 if the developer is not registered.
+   * @returns Observable<Bootstrap>
+   */
+  getBootstrap(): Observable<Bootstrap> {
+    console.log('ApiService: > getBootstrap');
+    return this.http.get<Bootstrap>(`${this.apiUrl}/me/bootstrap`, { withCredentials: true }).pipe(
+      tap(bootstrap => {
+        const fetchedAt = Date.now();
+        if (bootstrap.version) {
+          this.buildInfoCache$ = of(bootstrap.version);
+        }
+        if (bootstrap.me) {
+          this.developerDetailsCache$ = of(bootstrap.me);
+          this.developerDetailsCacheTimestamp = fetchedAt;
+        }
+        if (bootstrap.apps) {
+          this.expandedAppsCache$ = of(bootstrap.apps);
+          this.expandedAppsCacheTimestamp = fetchedAt;
+          bootstrap.apps.forEach(app => this.appDetailsCache.set(app.name, { observable: of(app), timestamp: fetchedAt }));
+        }
+        if (bootstrap.apiProducts) {
+          this.apiProductsCache$ = of(bootstrap.apiProducts);
+          this.apiProductsCacheTimestamp = fetchedAt;
+        }
+        if (bootstrap.errors) {
+          console.warn('ApiService: Bootstrap is missing sections:', bootstrap.errors);
+        }
+      }),
+      catchError(error => {
+        console.error('ApiService: Error fetching bootstrap:', error);
+        throw error;
+      })
+    );
+  }
+
   /**
    * Fetches the list of developer app names for the authenticated user.
    * Implements caching with a 60-second lifetime using shareReplay.
@@ -83,6 +135,41 @@ export class ApiService {
     return this.developerAppsCache$;
   }
 
+  /**
+   * Fetches the details of all of the developer's apps, in one request.
+   * Each app is also placed in the per-app details cache, so that a later
+   * getDeveloperAppDetails for it does not go to the backend.
+   * @returns Observable<DeveloperApp[]>
+   */
+  getDeveloperAppsExpanded(): Observable<DeveloperApp[]> {
+    const now = Date.now();
+    const isCacheValid = this.expandedAppsCache$ && this.expandedAppsCacheTimestamp && (now - this.expandedAppsCacheTimestamp < this.CACHE_LIFETIME_MS);
+
+    if (isCacheValid) {
+      console.log('ApiService: > getDeveloperAppsExpanded - Returning valid cached observable.');
+      return this.expandedAppsCache$!; // Non-null assertion as isCacheValid checks it
+    }
+
+    console.log(`ApiService: > getDeveloperAppsExpanded - Cache miss. Creating new observable. Timestamp: ${this.expandedAppsCacheTimestamp}, Now: ${now}`);
+    this.expandedAppsCache$ = this.http.get<DeveloperApp[]>(`${this.apiUrl}/me/apps`, { params: { expand: 'true' }, withCredentials: true }).pipe(
+      tap(apps => {
+        console.log(`ApiService: Fetched details for ${apps.length} developer apps from backend.`);
+        const fetchedAt = Date.now();
+        this.expandedAppsCacheTimestamp = fetchedAt;
+        apps.forEach(app => this.appDetailsCache.set(app.name, { observable: of(app), timestamp: fetchedAt }));
+      }),
+      catchError(error => {
+        console.error('ApiService: Error fetching expanded developer apps:', error);
+        this.expandedAppsCache$ = null;
+        this.expandedAppsCacheTimestamp = null;
+        throw error;
+      }),
+      shareReplay({ bufferSize: 1, refCount: true })
+    );
+
+    return this.expandedAppsCache$;
+  }
+
   /**
    * Manually invalidates the developer apps cache.
    */
@@ -90,6 +177,8 @@ export class ApiService {
     console.log('ApiService: Clearing developer apps list and details caches.');
     this.developerAppsCache$ = null; // Clear the list observable
     this.developerAppsCacheTimestamp = null;
+    this.expandedAppsCache$ = null;
+    this.expandedAppsCacheTimestamp = null;
     this.appDetailsCache.clear(); // Clear the individual details map
     // No need to call .next() on a subject anymore
   }
@@ -311,6 +400,8 @@ export class ApiService {
   clearAllCaches(): void {
     this.clearDeveloperAppsCache();
     this.clearDeveloperDetailsCache();
+    this.apiProductsCache$ = null;
+    this.apiProductsCacheTimestamp = null;
   }
 
   /**
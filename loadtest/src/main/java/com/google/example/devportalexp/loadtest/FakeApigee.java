@@ -0,0 +1,276 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package com.google.example.devportalexp.loadtest;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An in-memory stand-in for the parts of the Apigee management API that the backend uses:
+ * developers, their attributes and apps, and API products. Responses have the same shape as those
+ * of Apigee, trimmed to the fields that the backend reads. Nothing is persisted.
+ */
+final class FakeApigee {
+  private static final String PREFIX = "/v1/organizations/{org}";
+  private static final List<Map<String, Object>> PRODUCTS =
+      List.of(
+          product("hotels-read", "30d"),
+          product("hotels-write", "8h"),
+          product("pricing", null),
+          product("weather", "1y"));
+
+  private static final class Developer {
+    final Map<String, Object> details;
+    List<Map<String, Object>> attributes = new ArrayList<>();
+    final Map<String, Map<String, Object>> apps = new ConcurrentHashMap<>();
+
+    Developer(Map<String, Object> details) {
+      this.details = details;
+    }
+  }
+
+  // Sorted, so that the developer list pages the way Apigee does.
+  private final Map<String, Developer> developers = new ConcurrentSkipListMap<>();
+
+  void addRoutes(Javalin app) {
+    app.before(PREFIX + "/*", FakeApigee::requireAccessToken);
+    app.get(PREFIX + "/apiproducts", this::listProducts);
+    app.get(PREFIX + "/apiproducts/{product}", this::getProduct);
+    app.get(PREFIX + "/developers", this::listDevelopers);
+    app.post(PREFIX + "/developers", this::createDeveloper);
+    app.get(PREFIX + "/developers/{email}", this::getDeveloper);
+    app.get(PREFIX + "/developers/{email}/attributes", this::getAttributes);
+    app.post(PREFIX + "/developers/{email}/attributes", this::replaceAttributes);
+    app.get(PREFIX + "/developers/{email}/apps", this::listApps);
+    app.post(PREFIX + "/developers/{email}/apps", this::createApp);
+    app.get(PREFIX + "/developers/{email}/apps/{app}", this::getApp);
+    app.delete(PREFIX + "/developers/{email}/apps/{app}", this::deleteApp);
+  }
+
+  int developerCount() {
+    return developers.size();
+  }
+
+  private static Map<String, Object> product(String name, String maxKeyLifetime) {
+    List<Map<String, Object>> attributes = new ArrayList<>();
+    attributes.add(Map.of("name", "access", "value", "public"));
+    if (maxKeyLifetime != null) {
+      attributes.add(Map.of("name", "max-key-lifetime", "value", maxKeyLifetime));
+    }
+    return Map.of(
+        "name", name,
+        "displayName", name,
+        "approvalType", "auto",
+        "attributes", attributes);
+  }
+
+  private static void requireAccessToken(Context ctx) {
+    String authorization = ctx.header("Authorization");
+    if (authorization == null || !authorization.startsWith("Bearer ")) {
+      error(ctx, HttpStatus.UNAUTHORIZED, "missing access token");
+      ctx.skipRemainingHandlers();
+    }
+  }
+
+  private static void error(Context ctx, HttpStatus status, String message) {
+    ctx.status(status)
+        .json(
+            Map.of(
+                "error",
+                Map.of("code", status.getCode(), "message", message, "status", status.name())));
+  }
+
+  private Developer developer(Context ctx) {
+    Developer developer = developers.get(ctx.pathParam("email").toLowerCase());
+    if (developer == null) {
+      error(
+          ctx,
+          HttpStatus.NOT_FOUND,
+          String.format("DeveloperId %s does not exist", ctx.pathParam("email")));
+    }
+    return developer;
+  }
+
+  private void listProducts(Context ctx) {
+    ctx.json(Map.of("apiProduct", PRODUCTS));
+  }
+
+  private void getProduct(Context ctx) {
+    String name = ctx.pathParam("product");
+    PRODUCTS.stream()
+        .filter(product -> product.get("name").equals(name))
+        .findFirst()
+        .ifPresentOrElse(
+            ctx::json,
+            () ->
+                error(
+                    ctx, HttpStatus.NOT_FOUND, String.format("ApiProduct %s does not exist", name)));
+  }
+
+  private void listDevelopers(Context ctx) {
+    int count = ctx.queryParamAsClass("count", Integer.class).getOrDefault(1000);
+    String startKey = ctx.queryParam("startKey");
+    List<Map<String, Object>> page = new ArrayList<>();
+    for (String email : developers.keySet()) {
+      if (page.size() == count) {
+        break;
+      }
+      if (startKey == null || email.compareTo(startKey) >= 0) {
+        page.add(Map.of("email", email));
+      }
+    }
+    ctx.json(Map.of("developer", page));
+  }
+
+  private void createDeveloper(Context ctx) {
+    @SuppressWarnings("unchecked")
+    Map<String, Object> body = ctx.bodyAsClass(Map.class);
+    String email = String.valueOf(body.get("email")).toLowerCase();
+    Map<String, Object> details = new LinkedHashMap<>(body);
+    details.put("email", email);
+    details.put("developerId", UUID.randomUUID().toString());
+    details.put("status", "active");
+    details.put("createdAt", String.valueOf(System.currentTimeMillis()));
+    if (developers.putIfAbsent(email, new Developer(details)) != null) {
+      error(ctx, HttpStatus.CONFLICT, String.format("Developer %s already exists", email));
+      return;
+    }
+    ctx.status(HttpStatus.CREATED).json(details);
+  }
+
+  private void getDeveloper(Context ctx) {
+    Developer developer = developer(ctx);
+    if (developer != null) {
+      Map<String, Object> view = new LinkedHashMap<>(developer.details);
+      synchronized (developer) {
+        view.put("attributes", developer.attributes);
+      }
+      view.put("apps", new ArrayList<>(developer.apps.keySet()));
+      ctx.json(view);
+    }
+  }
+
+  private void getAttributes(Context ctx) {
+    Developer developer = developer(ctx);
+    if (developer != null) {
+      synchronized (developer) {
+        ctx.json(Map.of("attribute", developer.attributes));
+      }
+    }
+  }
+
+  private void replaceAttributes(Context ctx) {
+    Developer developer = developer(ctx);
+    if (developer != null) {
+      @SuppressWarnings("unchecked")
+      Map<String, Object> body = ctx.bodyAsClass(Map.class);
+      @SuppressWarnings("unchecked")
+      List<Map<String, Object>> attributes = (List<Map<String, Object>>) body.get("attribute");
+      synchronized (developer) {
+        developer.attributes = (attributes != null) ? List.copyOf(attributes) : List.of();
+        ctx.json(Map.of("attribute", developer.attributes));
+      }
+    }
+  }
+
+  private void listApps(Context ctx) {
+    Developer developer = developer(ctx);
+    if (developer != null) {
+      if ("true".equals(ctx.queryParam("expand"))) {
+        ctx.json(Map.of("app", new ArrayList<>(developer.apps.values())));
+        return;
+      }
+      List<Map<String, Object>> apps = new ArrayList<>();
+      developer.apps.values().forEach(app -> apps.add(Map.of("appId", app.get("appId"))));
+      ctx.json(Map.of("app", apps));
+    }
+  }
+
+  private void createApp(Context ctx) {
+    Developer developer = developer(ctx);
+    if (developer == null) {
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    Map<String, Object> body = ctx.bodyAsClass(Map.class);
+    String name = String.valueOf(body.get("name"));
+    @SuppressWarnings("unchecked")
+    List<String> products = (List<String>) body.getOrDefault("apiProducts", List.of());
+    long now = System.currentTimeMillis();
+    Object keyExpiresIn = body.get("keyExpiresIn");
+    Map<String, Object> credential =
+        Map.of(
+            "consumerKey", UUID.randomUUID().toString().replace("-", ""),
+            "consumerSecret", UUID.randomUUID().toString().replace("-", ""),
+            "issuedAt", String.valueOf(now),
+            "expiresAt",
+                (keyExpiresIn == null)
+                    ? "-1"
+                    : String.valueOf(now + Long.parseLong(keyExpiresIn.toString())),
+            "status", "approved",
+            "apiProducts",
+                products.stream()
+                    .map(product -> Map.of("apiproduct", product, "status", "approved"))
+                    .toList());
+    Map<String, Object> app = new LinkedHashMap<>();
+    app.put("appId", UUID.randomUUID().toString());
+    app.put("name", name);
+    app.put("developerId", developer.details.get("developerId"));
+    app.put("status", "approved");
+    app.put("attributes", body.getOrDefault("attributes", List.of()));
+    app.put("createdAt", String.valueOf(now));
+    app.put("lastModifiedAt", String.valueOf(now));
+    app.put("credentials", List.of(credential));
+    if (developer.apps.putIfAbsent(name, app) != null) {
+      error(ctx, HttpStatus.CONFLICT, String.format("App named %s already exists", name));
+      return;
+    }
+    ctx.status(HttpStatus.CREATED).json(app);
+  }
+
+  private void getApp(Context ctx) {
+    Developer developer = developer(ctx);
+    if (developer != null) {
+      Map<String, Object> app = developer.apps.get(ctx.pathParam("app"));
+      if (app == null) {
+        error(ctx, HttpStatus.NOT_FOUND, "App does not exist");
+        return;
+      }
+      ctx.json(app);
+    }
+  }
+
+  private void deleteApp(Context ctx) {
+    Developer developer = developer(ctx);
+    if (developer != null) {
+      Map<String, Object> app = developer.apps.remove(ctx.pathParam("app"));
+      if (app == null) {
+        error(ctx, HttpStatus.NOT_FOUND, "App does not exist");
+        return;
+      }
+      ctx.json(app);
+    }
+  }
+}
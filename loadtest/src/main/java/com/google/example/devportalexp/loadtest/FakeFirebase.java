@@ -0,0 +1,115 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package com.google.example.devportalexp.loadtest;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A stand-in for Firebase Authentication: it mints ID tokens like those of Firebase, for any email,
+ * and publishes the key that signs them as a JWKS. Point the backend at the JWKS with JWKS_URL, and
+ * set APIGEE_PROJECT to the same project as here, so that the issuer and audience match.
+ */
+final class FakeFirebase {
+  private static final String KEY_ID = "loadtest-key";
+  private static final Duration TOKEN_LIFETIME = Duration.ofHours(1);
+
+  private final String project;
+  private final RSAPublicKey publicKey;
+  private final Algorithm algorithm;
+
+  FakeFirebase(String project) throws NoSuchAlgorithmException {
+    this.project = project;
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    this.publicKey = (RSAPublicKey) keyPair.getPublic();
+    this.algorithm = Algorithm.RSA256(publicKey, (RSAPrivateKey) keyPair.getPrivate());
+  }
+
+  void addRoutes(Javalin app) {
+    app.get("/jwks", this::getJwks);
+    app.post("/token", this::issueToken);
+  }
+
+  /** An ID token for the given user, as Firebase would issue after a Google sign-in. */
+  String mintToken(String email, String name) {
+    Instant now = Instant.now();
+    return JWT.create()
+        .withKeyId(KEY_ID)
+        .withIssuer("https://securetoken.google.com/" + project)
+        .withAudience(project)
+        .withSubject(Integer.toHexString(email.hashCode()) + "-" + email.length())
+        .withClaim("email", email)
+        .withClaim("email_verified", true)
+        .withClaim("name", name)
+        .withClaim("auth_time", now.getEpochSecond())
+        .withClaim("firebase", Map.of("sign_in_provider", "google.com"))
+        .withIssuedAt(now)
+        .withExpiresAt(now.plus(TOKEN_LIFETIME))
+        .sign(algorithm);
+  }
+
+  /** GET /jwks */
+  private void getJwks(Context ctx) {
+    Map<String, Object> jwk =
+        Map.of(
+            "kid", KEY_ID,
+            "kty", "RSA",
+            "alg", "RS256",
+            "use", "sig",
+            "n", base64Url(publicKey.getModulus()),
+            "e", base64Url(publicKey.getPublicExponent()));
+    ctx.header("Cache-Control", "public, max-age=3600").json(Map.of("keys", List.of(jwk)));
+  }
+
+  /** POST /token, with a JSON body holding email and name. */
+  private void issueToken(Context ctx) {
+    @SuppressWarnings("unchecked")
+    Map<String, Object> body = ctx.bodyAsClass(Map.class);
+    Object email = body.get("email");
+    if (!(email instanceof String) || ((String) email).isBlank()) {
+      ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("error", "email is required"));
+      return;
+    }
+    String name = (body.get("name") instanceof String given) ? given : "Load Tester";
+    ctx.json(Map.of("idToken", mintToken((String) email, name)));
+  }
+
+  private static String base64Url(BigInteger value) {
+    byte[] bytes = value.toByteArray();
+    if (bytes.length > 1 && bytes[0] == 0) {
+      bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+}
@@ -0,0 +1,101 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package com.google.example.devportalexp.loadtest;
+
+import com.google.example.devportalexp.metrics.Histogram;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and latencies of each step of the workload, and of whole iterations, in the same
+ * histograms the backend uses for its own metrics.
+ */
+final class LatencyReport {
+  static final String ITERATION = "iteration";
+
+  private record Step(Histogram latency, LongAdder errors) {}
+
+  // Built once, in workload order, and only read after.
+  private final Map<String, Step> steps = new LinkedHashMap<>();
+
+  LatencyReport(List<String> stepNames) {
+    for (String name : stepNames) {
+      steps.put(name, new Step(new Histogram(), new LongAdder()));
+    }
+    steps.put(ITERATION, new Step(new Histogram(), new LongAdder()));
+  }
+
+  void record(String stepName, long durationNanos, boolean succeeded) {
+    Step step = steps.get(stepName);
+    step.latency().recordNanos(durationNanos);
+    if (!succeeded) {
+      step.errors().increment();
+    }
+  }
+
+  void print(PrintStream out, Duration elapsed) {
+    double seconds = elapsed.toMillis() / 1000.0;
+    long requests = 0;
+    long failedRequests = 0;
+    for (Map.Entry<String, Step> entry : steps.entrySet()) {
+      if (!entry.getKey().equals(ITERATION)) {
+        requests += entry.getValue().latency().snapshot().count();
+        failedRequests += entry.getValue().errors().sum();
+      }
+    }
+    Step iterations = steps.get(ITERATION);
+    long iterationCount = iterations.latency().snapshot().count();
+    long failedIterations = iterations.errors().sum();
+
+    out.printf("%nElapsed: %.1f s%n", seconds);
+    out.printf(
+        "Iterations: %d, %d failed, %.1f/s completed%n",
+        iterationCount, failedIterations, (iterationCount - failedIterations) / seconds);
+    out.printf(
+        "Requests: %d, %d failed, %.1f/s%n%n", requests, failedRequests, requests / seconds);
+    out.printf(
+        "%-22s %8s %7s %9s %9s %9s %9s %9s%n",
+        "step", "count", "errors", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms");
+    for (Map.Entry<String, Step> entry : steps.entrySet()) {
+      Histogram.Snapshot snapshot = entry.getValue().latency().snapshot();
+      if (snapshot.count() == 0) {
+        continue;
+      }
+      out.printf(
+          "%-22s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+          entry.getKey(),
+          snapshot.count(),
+          entry.getValue().errors().sum(),
+          snapshot.sumMicros() / 1000.0 / snapshot.count(),
+          millis(snapshot.quantileMicros(0.50)),
+          millis(snapshot.quantileMicros(0.90)),
+          millis(snapshot.quantileMicros(0.99)),
+          millis(snapshot.quantileMicros(1.0)));
+    }
+    out.println();
+    out.println("Percentiles are bucket upper bounds, within 12% of the true value.");
+  }
+
+  private static double millis(long micros) {
+    return micros / (double) TimeUnit.MILLISECONDS.toMicros(1);
+  }
+}
@@ -0,0 +1,180 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package com.google.example.devportalexp.loadtest;
+
+import com.google.example.devportalexp.json.Json;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the stand-ins, the workload, or both.
+ *
+ * <pre>
+ *   java -jar loadtest.jar stand-ins [--port=9090] [--project=...] [--apigee-latency=50]
+ *       [--apigee-jitter=50]
+ *   java -jar loadtest.jar run [--target=http://localhost:8080] [--stand-ins=http://host:port]
+ *       [--users=10] [--duration=60] [--ramp-up=10] [--think=0]
+ * </pre>
+ *
+ * <p>With run, and no --stand-ins, the stand-ins are started in this process, first; start the
+ * backend against them once they are up. Either way, the workload starts once the backend reports
+ * ready. Durations are in seconds, except the latencies and the think time, which are in
+ * milliseconds.
+ */
+public class LoadTest {
+  private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+  private static final Duration READY_TIMEOUT = Duration.ofMinutes(5);
+
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0 || !(args[0].equals("stand-ins") || args[0].equals("run"))) {
+      System.err.println("usage: java -jar loadtest.jar stand-ins|run [--option=value ...]");
+      System.exit(2);
+    }
+    Map<String, String> options = parseOptions(args);
+    if (args[0].equals("stand-ins")) {
+      startStandIns(options);
+      Thread.currentThread().join();
+    } else {
+      run(options);
+    }
+  }
+
+  private static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 1; i < args.length; i++) {
+      String arg = args[i];
+      int ix = arg.indexOf('=');
+      if (!arg.startsWith("--") || ix == -1) {
+        throw new IllegalArgumentException("expected --option=value, found " + arg);
+      }
+      options.put(arg.substring(2, ix), arg.substring(ix + 1));
+    }
+    return options;
+  }
+
+  private static long longOption(Map<String, String> options, String name, long defaultValue) {
+    String value = options.get(name);
+    return (value == null) ? defaultValue : Long.parseLong(value);
+  }
+
+  private static StandIns startStandIns(Map<String, String> options) throws Exception {
+    String project = options.getOrDefault("project", "loadtest-project");
+    StandIns standIns =
+        new StandIns(
+                project,
+                longOption(options, "apigee-latency", 50),
+                longOption(options, "apigee-jitter", 50))
+            .start((int) longOption(options, "port", 9090));
+    URI base = standIns.baseUri();
+    log.info(
+        "Stand-ins are up. Start the backend with:\n"
+            + "  APIGEE_PROJECT={} APIGEE_BASE_URL={} JWKS_URL={} APIGEE_ACCESS_TOKEN=loadtest"
+            + " APIGEE_CALLS_PER_SECOND=0",
+        project,
+        base,
+        base.resolve("/jwks"));
+    return standIns;
+  }
+
+  private static void run(Map<String, String> options) throws Exception {
+    URI target = URI.create(options.getOrDefault("target", "http://localhost:8080"));
+    Workload.TokenSource tokens;
+    if (options.containsKey("stand-ins")) {
+      tokens = remoteTokenSource(URI.create(options.get("stand-ins")).resolve("/token"));
+    } else {
+      tokens = startStandIns(options).firebase()::mintToken;
+    }
+
+    awaitReady(target);
+
+    int users = (int) longOption(options, "users", 10);
+    Duration duration = Duration.ofSeconds(longOption(options, "duration", 60));
+    Duration rampUp = Duration.ofSeconds(longOption(options, "ramp-up", 10));
+    LatencyReport report = new LatencyReport(Workload.STEPS);
+    Workload workload =
+        new Workload(target, tokens, report, Duration.ofMillis(longOption(options, "think", 0)));
+
+    log.info("Running {} users for {} against {}", users, duration, target);
+    long begin = System.nanoTime();
+    long deadline = begin + duration.toNanos();
+    // Virtual users block on the network, so each gets a virtual thread.
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int user = 0; user < users; user++) {
+        final int userNumber = user;
+        final long startDelayNanos = rampUp.toNanos() * user / Math.max(users, 1);
+        executor.submit(
+            () -> {
+              try {
+                TimeUnit.NANOSECONDS.sleep(startDelayNanos);
+              } catch (InterruptedException exc1) {
+                return;
+              }
+              workload.runUser(userNumber, deadline);
+            });
+      }
+    }
+    report.print(System.out, Duration.ofNanos(System.nanoTime() - begin));
+    System.exit(0);
+  }
+
+  private static Workload.TokenSource remoteTokenSource(URI tokenUri) {
+    HttpClient client = HttpClient.newHttpClient();
+    return (email, name) -> {
+      byte[] payload = Json.toBytes(Map.of("email", email, "name", name));
+      HttpRequest request =
+          HttpRequest.newBuilder(tokenUri)
+              .header("Content-Type", "application/json")
+              .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+              .build();
+      HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() != 200) {
+        throw new IOException("token issuer answered " + response.statusCode());
+      }
+      Map<String, Object> body = Json.readMap(response.body());
+      return (String) body.get("idToken");
+    };
+  }
+
+  private static void awaitReady(URI target) throws InterruptedException {
+    HttpClient client = HttpClient.newHttpClient();
+    HttpRequest request = HttpRequest.newBuilder(target.resolve("/api/ready")).GET().build();
+    long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+    log.info("Waiting for {} to report ready", target);
+    while (System.nanoTime() < deadline) {
+      try {
+        if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+          return;
+        }
+      } catch (IOException exc1) {
+        // Not listening yet.
+      }
+      Thread.sleep(1000);
+    }
+    throw new IllegalStateException(target + " did not become ready within " + READY_TIMEOUT);
+  }
+}
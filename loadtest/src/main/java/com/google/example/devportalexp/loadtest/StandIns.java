@@ -0,0 +1,85 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package com.google.example.devportalexp.loadtest;
+
+import io.javalin.Javalin;
+import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One HTTP server holding the stand-ins: the fake Apigee management API under /v1, and the fake
+ * Firebase JWKS and token issuer under /jwks and /token.
+ *
+ * <p>Apigee calls are delayed by a fixed latency plus a uniformly random jitter, to stand in for
+ * the round trip to Google. Handlers run on virtual threads, so the delay costs no platform thread,
+ * and the stand-ins are never the bottleneck.
+ */
+final class StandIns {
+  private final FakeApigee apigee = new FakeApigee();
+  private final FakeFirebase firebase;
+  private final long latencyMillis;
+  private final long jitterMillis;
+  private Javalin server;
+
+  StandIns(String project, long latencyMillis, long jitterMillis)
+      throws NoSuchAlgorithmException {
+    this.firebase = new FakeFirebase(project);
+    this.latencyMillis = latencyMillis;
+    this.jitterMillis = jitterMillis;
+  }
+
+  StandIns start(int port) {
+    server =
+        Javalin.create(
+            config -> {
+              config.useVirtualThreads = true;
+              config.showJavalinBanner = false;
+            });
+    server.before("/v1/*", ctx -> simulateLatency());
+    apigee.addRoutes(server);
+    firebase.addRoutes(server);
+    server.start(port);
+    return this;
+  }
+
+  void stop() {
+    server.stop();
+  }
+
+  URI baseUri() {
+    return URI.create("http://localhost:" + server.port());
+  }
+
+  FakeFirebase firebase() {
+    return firebase;
+  }
+
+  FakeApigee apigee() {
+    return apigee;
+  }
+
+  private void simulateLatency() throws InterruptedException {
+    long delay = latencyMillis;
+    if (jitterMillis > 0) {
+      delay += ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+    }
+    if (delay > 0) {
+      Thread.sleep(delay);
+    }
+  }
+}
@@ -0,0 +1,224 @@
+// Copyright © 2025 Google LLC.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package com.google.example.devportalexp.loadtest;
+
+import com.google.example.devportalexp.json.Json;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The scripted journey of one new developer through the portal: sign in, find no developer record,
+ * register, look at the dashboard, create an app, look at it, have a certificate issued, and sign
+ * out. Each virtual user runs the journey over and over, as a different developer each time, until
+ * the deadline. A step that answers with an unexpected status ends the iteration, as it would stop
+ * a real user.
+ */
+final class Workload {
+  private static final Logger log = LoggerFactory.getLogger(Workload.class);
+  private static final String SESSION_COOKIE = "devportalSessionId";
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+  private static final int KEY_POOL_SIZE = 8;
+
+  static final List<String> STEPS =
+      List.of(
+          "login",
+          "bootstrap-unregistered",
+          "register-developer",
+          "me",
+          "apps",
+          "apiproducts",
+          "create-app",
+          "apps-expanded",
+          "register-certificate",
+          "logout");
+
+  /** Obtains a Firebase ID token for a user. */
+  @FunctionalInterface
+  interface TokenSource {
+    String idToken(String email, String name) throws IOException, InterruptedException;
+  }
+
+  private static final class StepFailedException extends Exception {
+    StepFailedException(String message) {
+      super(message);
+    }
+  }
+
+  private final URI target;
+  private final TokenSource tokens;
+  private final LatencyReport report;
+  private final Duration thinkTime;
+  private final String runId = Long.toString(System.currentTimeMillis(), 36);
+  private final HttpClient client =
+      HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_1_1)
+          .connectTimeout(Duration.ofSeconds(10))
+          .build();
+  // Certificates are issued per developer, so a few keys serve every iteration.
+  private final List<String> publicKeyPems = new ArrayList<>();
+
+  Workload(URI target, TokenSource tokens, LatencyReport report, Duration thinkTime)
+      throws NoSuchAlgorithmException {
+    this.target = target;
+    this.tokens = tokens;
+    this.report = report;
+    this.thinkTime = thinkTime;
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    Base64.Encoder encoder = Base64.getMimeEncoder(64, "\n".getBytes());
+    for (int i = 0; i < KEY_POOL_SIZE; i++) {
+      publicKeyPems.add(
+          "-----BEGIN PUBLIC KEY-----\n"
+              + encoder.encodeToString(generator.generateKeyPair().getPublic().getEncoded())
+              + "\n-----END PUBLIC KEY-----\n");
+    }
+  }
+
+  /** Runs iterations for one virtual user until the deadline, from System.nanoTime(). */
+  void runUser(int user, long deadlineNanos) {
+    for (int iteration = 0; System.nanoTime() < deadlineNanos; iteration++) {
+      long begin = System.nanoTime();
+      boolean succeeded = false;
+      try {
+        runIteration(user, iteration);
+        succeeded = true;
+      } catch (StepFailedException | IOException exc1) {
+        log.debug("User {} iteration {} failed: {}", user, iteration, exc1.getMessage());
+      } catch (InterruptedException exc1) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      report.record(LatencyReport.ITERATION, System.nanoTime() - begin, succeeded);
+    }
+  }
+
+  private void runIteration(int user, int iteration)
+      throws StepFailedException, IOException, InterruptedException {
+    String email = String.format("lt-%s-%d-%d@example.com", runId, user, iteration);
+    String appName = "loadtest-app-" + iteration;
+
+    String idToken = tokens.idToken(email, "Load Tester");
+    HttpResponse<String> login =
+        call("login", post("/api/auth/login", null, Map.of("idToken", idToken)), 200);
+    String session = sessionCookie(login);
+
+    call("bootstrap-unregistered", get("/api/me/bootstrap", session), 200);
+    call("register-developer", post("/api/registerSelfAsDeveloper", session, Map.of()), 201);
+    think();
+
+    call("me", get("/api/me", session), 200);
+    call("apps", get("/api/me/apps", session), 200);
+    call("apiproducts", get("/api/apiproducts", session), 200);
+    think();
+
+    call(
+        "create-app",
+        post(
+            "/api/me/apps",
+            session,
+            Map.of("name", appName, "apiProducts", List.of("hotels-read", "pricing"))),
+        201);
+    call("apps-expanded", get("/api/me/apps?expand=true", session), 200);
+    think();
+
+    String publicKey = publicKeyPems.get((user + iteration) % publicKeyPems.size());
+    call(
+        "register-certificate",
+        post(
+            "/api/me/certificates",
+            session,
+            Map.of("keyId", "loadtest-key-" + iteration, "publicKey", publicKey)),
+        200);
+    call("logout", post("/api/auth/logout", session, Map.of()), 204);
+  }
+
+  private void think() throws InterruptedException {
+    if (!thinkTime.isZero()) {
+      Thread.sleep(thinkTime);
+    }
+  }
+
+  private HttpRequest.Builder request(String path, String session) {
+    HttpRequest.Builder builder =
+        HttpRequest.newBuilder(target.resolve(path))
+            .timeout(REQUEST_TIMEOUT)
+            .header("Accept", "application/json");
+    if (session != null) {
+      builder.header("Cookie", SESSION_COOKIE + "=" + session);
+    }
+    return builder;
+  }
+
+  private HttpRequest get(String path, String session) {
+    return request(path, session).GET().build();
+  }
+
+  private HttpRequest post(String path, String session, Map<String, Object> body)
+      throws IOException {
+    return request(path, session)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofByteArray(Json.toBytes(body)))
+        .build();
+  }
+
+  private HttpResponse<String> call(String step, HttpRequest request, int expectedStatus)
+      throws StepFailedException, IOException, InterruptedException {
+    long begin = System.nanoTime();
+    HttpResponse<String> response;
+    try {
+      response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    } catch (IOException exc1) {
+      report.record(step, System.nanoTime() - begin, false);
+      throw exc1;
+    }
+    boolean succeeded = response.statusCode() == expectedStatus;
+    report.record(step, System.nanoTime() - begin, succeeded);
+    if (!succeeded) {
+      throw new StepFailedException(
+          String.format(
+              "%s %s -> %d, expected %d: %s",
+              request.method(),
+              request.uri().getPath(),
+              response.statusCode(),
+              expectedStatus,
+              response.body()));
+    }
+    return response;
+  }
+
+  private static String sessionCookie(HttpResponse<String> login) throws StepFailedException {
+    for (String header : login.headers().allValues("Set-Cookie")) {
+      if (header.startsWith(SESSION_COOKIE + "=")) {
+        int end = header.indexOf(';');
+        return header.substring(SESSION_COOKIE.length() + 1, (end < 0) ? header.length() : end);
+      }
+    }
+    throw new StepFailedException("login set no session cookie");
+  }
+}